@@ -31,7 +31,7 @@ public class ChangeOrder implements Comparator<Change> {
 
 	@Override
 	public int compare(Change c1, Change c2) {
-		return c1.getRevision().compareTo(c2.getRevision());
+		return Long.compare(c1.getRevision(), c2.getRevision());
 	}
 
 }
@@ -21,21 +21,27 @@ import com.subcherry.repository.command.log.LogEntryHandler;
 import com.subcherry.repository.core.LogEntry;
 import com.subcherry.repository.core.RepositoryException;
 
+/**
+ * {@link LogEntryHandler} that forwards each log entry to all of its given handlers.
+ * 
+ * <p>
+ * Allows to process a single log read with multiple handlers instead of reading the same log
+ * multiple times.
+ * </p>
+ */
 public class CombinedLogEntryHandler implements LogEntryHandler {
 
-	private LogEntryHandler _handler1;
-
-	private LogEntryHandler _handler2;
+	private final LogEntryHandler[] _handlers;
 
-	public CombinedLogEntryHandler(LogEntryHandler handler1, LogEntryHandler handler2) {
-		_handler1 = handler1;
-		_handler2 = handler2;
+	public CombinedLogEntryHandler(LogEntryHandler... handlers) {
+		_handlers = handlers;
 	}
 
 	@Override
 	public void handleLogEntry(LogEntry logEntry) throws RepositoryException {
-		_handler1.handleLogEntry(logEntry);
-		_handler2.handleLogEntry(logEntry);
+		for (LogEntryHandler handler : _handlers) {
+			handler.handleLogEntry(logEntry);
+		}
 	}
 
 }
@@ -20,4 +20,17 @@ package com.subcherry;
 
 public interface CommitConfig extends WorkspaceConfig {
 
+	/**
+	 * Whether only the committed resources and their parent directories are updated to the new
+	 * revision after a commit, instead of updating all touched modules to the head revision.
+	 * 
+	 * <p>
+	 * The touched modules are updated completely, if a commit fails because the workspace is out
+	 * of date.
+	 * </p>
+	 */
+	boolean getUpdateCommittedOnly();
+
+	void setUpdateCommittedOnly(boolean value);
+
 }
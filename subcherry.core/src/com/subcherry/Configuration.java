@@ -65,6 +65,19 @@ public interface Configuration extends MergeConfig, CommitConfig, BranchConfig {
 	boolean getNoCommit();
 
 	void setNoCommit(boolean value);
+
+	/**
+	 * Whether merges are only created for all revisions without executing them.
+	 * 
+	 * <p>
+	 * Neither the workspace nor the repository is modified. Instead, a report with the time, the
+	 * number of repository requests and the number of commands of each merge is printed. Since
+	 * no merge is executed, merges of later revisions are based on the unmodified workspace.
+	 * </p>
+	 */
+	boolean getPlanOnly();
+
+	void setPlanOnly(boolean value);
 	
 	boolean getRebase();
 
@@ -212,6 +225,18 @@ public interface Configuration extends MergeConfig, CommitConfig, BranchConfig {
 
 		void setExcludePath(Pattern value);
 
+		/**
+		 * File to write the dependency report to in JSON lines format, one line per potential
+		 * conflict path.
+		 * 
+		 * <p>
+		 * If not given, the report is only printed to the console.
+		 * </p>
+		 */
+		File getFile();
+
+		void setFile(File value);
+
 	}
 
 	/**
@@ -232,6 +257,133 @@ public interface Configuration extends MergeConfig, CommitConfig, BranchConfig {
 
 	void setSkipDependencies(boolean value);
 
+	/**
+	 * Directory in which the log of the source and target branch is cached between runs.
+	 * 
+	 * <p>
+	 * If not given, the log is always read from the repository.
+	 * </p>
+	 */
+	File getLogCache();
+
+	void setLogCache(File value);
+
+	/**
+	 * Number of concurrent requests the log of all modules is read with.
+	 * 
+	 * <p>
+	 * Each request reads a part of the revision range. The requests are served from the
+	 * connection pool, which has at least this size.
+	 * </p>
+	 * 
+	 * @see #getClientPoolSize()
+	 */
+	int getLogShards();
+
+	void setLogShards(int value);
+
+	/**
+	 * File in which Trac tickets are cached between runs.
+	 * 
+	 * <p>
+	 * If not given, all tickets are fetched from Trac in each run.
+	 * </p>
+	 */
+	File getTicketCache();
+
+	void setTicketCache(File value);
+
+	/**
+	 * File in which the consolidated history for dependency analysis is stored between runs.
+	 * 
+	 * <p>
+	 * If not given, the history is rebuilt from the complete log in each run.
+	 * </p>
+	 */
+	File getHistorySnapshot();
+
+	void setHistorySnapshot(File value);
+
+	/**
+	 * Directory in which the log entries of single revisions are cached between runs.
+	 * 
+	 * <p>
+	 * Such entries are required for following copies across branches and for additional
+	 * revisions not found on the source branch. If not given, these entries are only cached in
+	 * memory.
+	 * </p>
+	 */
+	File getRevisionCache();
+
+	void setRevisionCache(File value);
+
+	/**
+	 * Maximum number of log entries of single revisions kept in memory.
+	 */
+	int getRevisionCacheSize();
+
+	void setRevisionCacheSize(int value);
+
+	/**
+	 * Number of concurrent Trac requests fetching tickets in the background while the log is read.
+	 * 
+	 * <p>
+	 * If not given, tickets are fetched after the log has been read completely. The same number of
+	 * concurrent requests is used for fetching the tickets required by the dependency report.
+	 * </p>
+	 */
+	int getTicketFetchThreads();
+
+	void setTicketFetchThreads(int value);
+
+	/**
+	 * Number of upcoming revisions for which merges are created in the background while the
+	 * current revision is merged and committed.
+	 * 
+	 * <p>
+	 * If not given, each merge is created directly before it is executed.
+	 * </p>
+	 */
+	int getMergeLookAhead();
+
+	void setMergeLookAhead(int value);
+
+	/**
+	 * Maximum number of conflict-free revisions that are merged into the workspace before they
+	 * are committed together.
+	 * 
+	 * <p>
+	 * Only used with {@link #getAutoCommit()}. The commit message is the combination of the
+	 * messages of all grouped revisions. After the first conflict, revisions are committed one by
+	 * one. If not given, each revision is committed separately.
+	 * </p>
+	 */
+	int getCommitGroupSize();
+
+	void setCommitGroupSize(int value);
+
+	/**
+	 * Maximum number of repository connections used concurrently for reading from the repository.
+	 * 
+	 * <p>
+	 * If given, all repository requests are served from a pool of connections, so that
+	 * requests from different threads do not block each other. If not given, a single connection
+	 * is used.
+	 * </p>
+	 */
+	int getClientPoolSize();
+
+	void setClientPoolSize(int value);
+
+	/**
+	 * Time in seconds after which an unused pooled connection is closed.
+	 * 
+	 * @see #getClientPoolSize()
+	 */
+	int getClientIdleTimeout();
+
+	void setClientIdleTimeout(int value);
+
 	/**
 	 * Whether a merged change that has itself has been merged from somewhere else, is committed as
 	 * if it was directly merged from its original source.
@@ -0,0 +1,372 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.subcherry;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import com.subcherry.Configuration.DependencyReport;
+import com.subcherry.history.Change;
+import com.subcherry.history.DependencyBuilder.Dependency;
+import com.subcherry.history.Node;
+import com.subcherry.trac.TicketStub;
+import com.subcherry.trac.TracConnection;
+import com.subcherry.trac.TracTicket;
+
+/**
+ * Report of potential conflicts found by the dependency analysis.
+ *
+ * <p>
+ * Conflicts are collected in a single structure grouped by the ticket of the missing change, the
+ * missing change, and the node where the conflict is expected. Excluded paths and tickets are
+ * dropped when a {@link Dependency} is {@link #add(Dependency) added}. Tickets required by the
+ * added dependencies should be fetched in advance, see {@link #getRequiredTicketIds(Collection)}.
+ * </p>
+ *
+ * <p>
+ * The report is printed after all dependencies have been added, since a later dependency may still
+ * contribute to any ticket section. When {@link #print(ReportPrinter, PrintWriter) printed}, each
+ * ticket section is written and released before the next one is processed.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+public class ConflictReport {
+
+	private static final String NO_TICKET_ID = "";
+
+	private static final Comparator<Node> PATH_ORDER = new Comparator<Node>() {
+		@Override
+		public int compare(Node n1, Node n2) {
+			int result = n1.getPath().compareTo(n2.getPath());
+			if (result != 0) {
+				return result;
+			}
+			// Different nodes with the same path are ordered by time.
+			result = Long.compare(n1.getRevMin(), n2.getRevMin());
+			if (result != 0) {
+				return result;
+			}
+			return Long.compare(n1.getRevMax(), n2.getRevMax());
+		}
+	};
+
+	private final TracConnection _trac;
+
+	private final Pattern _excludeTicketMilestone;
+
+	private final Pattern _excludePath;
+
+	/**
+	 * Report sections indexed by ticket ID.
+	 */
+	private final TreeMap<String, Section> _sections = new TreeMap<>();
+
+	/**
+	 * Ticket IDs already checked against the excluded milestones, mapped to whether the ticket is
+	 * excluded.
+	 */
+	private final Map<String, Boolean> _excludedTickets = new HashMap<>();
+
+	/**
+	 * Nodes already checked against the excluded paths, mapped to whether the node is excluded.
+	 */
+	private final Map<Node, Boolean> _excludedNodes = new HashMap<>();
+
+	/**
+	 * Creates a {@link ConflictReport}.
+	 *
+	 * @param trac
+	 *        The connection to retrieve tickets from.
+	 * @param config
+	 *        The report configuration.
+	 */
+	public ConflictReport(TracConnection trac, DependencyReport config) {
+		_trac = trac;
+		_excludeTicketMilestone = config.getExcludeTicketMilestone();
+		_excludePath = config.getExcludePath();
+	}
+
+	/**
+	 * The IDs of all tickets with changes required by the given dependencies.
+	 */
+	public static Set<String> getRequiredTicketIds(Collection<Dependency> dependencies) {
+		Set<String> result = new HashSet<>();
+		for (Dependency dependency : dependencies) {
+			for (Change missingChange : dependency.getRequiredChanges().keySet()) {
+				String ticketId = missingChange.getTicketId();
+				if (ticketId != null) {
+					result.add(ticketId);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds all requirements of the given {@link Dependency} to this report.
+	 */
+	public void add(Dependency dependency) {
+		Change conflictingChange = dependency.getChange();
+		for (Entry<Change, Set<Node>> requirement : dependency.getRequiredChanges().entrySet()) {
+			Change missingChange = requirement.getKey();
+			String ticketId = missingChange.getTicketId();
+			if (ticketId == null) {
+				ticketId = NO_TICKET_ID;
+			}
+			Section section = mkSection(ticketId);
+			if (section == null) {
+				continue;
+			}
+
+			for (Node conflictNode : requirement.getValue()) {
+				if (isExcluded(conflictNode)) {
+					continue;
+				}
+				section.add(missingChange, conflictNode, conflictingChange);
+			}
+		}
+	}
+
+	/**
+	 * Prints this report ordered by ticket ID, missing change and conflict path.
+	 *
+	 * <p>
+	 * Printed sections are removed from this report.
+	 * </p>
+	 *
+	 * @param printer
+	 *        The text output.
+	 * @param json
+	 *        Optional output receiving one JSON object per conflict path, <code>null</code> for no
+	 *        machine-readable output.
+	 */
+	public void print(ReportPrinter printer, PrintWriter json) {
+		printer.startReport();
+		while (!_sections.isEmpty()) {
+			Entry<String, Section> entry = _sections.pollFirstEntry();
+			String ticketId = entry.getKey();
+			Section section = entry.getValue();
+
+			printer.setTicket(ticketId, section.getTicket());
+			for (Entry<Change, Map<Node, Set<Change>>> missing : section.getMissingChanges().entrySet()) {
+				Change missingChange = missing.getKey();
+				printer.setMissingChange(missingChange);
+
+				Map<Node, Set<Change>> conflicts = missing.getValue();
+				List<Node> conflictNodes = new ArrayList<>(conflicts.keySet());
+				Collections.sort(conflictNodes, PATH_ORDER);
+				for (Node conflictNode : conflictNodes) {
+					Set<Change> conflictingChanges = conflicts.get(conflictNode);
+					printer.setConflictNode(conflictNode);
+					for (Change conflictingChange : conflictingChanges) {
+						printer.printConflictingChange(conflictingChange);
+					}
+
+					if (json != null) {
+						writeJson(json, ticketId, section.getTicket(), missingChange, conflictNode, conflictingChanges);
+					}
+				}
+			}
+			printer.endTicket();
+
+			if (json != null) {
+				json.flush();
+			}
+		}
+		printer.endReport();
+	}
+
+	private Section mkSection(String ticketId) {
+		Section section = _sections.get(ticketId);
+		if (section != null) {
+			return section;
+		}
+		if (Boolean.TRUE.equals(_excludedTickets.get(ticketId))) {
+			return null;
+		}
+
+		TracTicket ticket;
+		if (ticketId.equals(NO_TICKET_ID)) {
+			ticket = null;
+		} else {
+			ticket = TicketStub.getTicket(_trac, Integer.parseInt(ticketId));
+
+			boolean excluded = matches(_excludeTicketMilestone, ticket.getMilestone());
+			_excludedTickets.put(ticketId, Boolean.valueOf(excluded));
+			if (excluded) {
+				return null;
+			}
+		}
+
+		section = new Section(ticket);
+		_sections.put(ticketId, section);
+		return section;
+	}
+
+	private boolean isExcluded(Node node) {
+		Boolean excluded = _excludedNodes.get(node);
+		if (excluded == null) {
+			excluded = Boolean.valueOf(matches(_excludePath, node.getPath()));
+			_excludedNodes.put(node, excluded);
+		}
+		return excluded.booleanValue();
+	}
+
+	private static boolean matches(Pattern pattern, String text) {
+		if (pattern == null) {
+			return false;
+		}
+
+		return pattern.matcher(text).find();
+	}
+
+	private static void writeJson(PrintWriter out, String ticketId, TracTicket ticket, Change missingChange,
+			Node conflictNode, Set<Change> conflicts) {
+		StringBuilder line = new StringBuilder();
+		line.append("{\"ticket\":");
+		appendString(line, ticketId.equals(NO_TICKET_ID) ? null : ticketId);
+		line.append(",\"milestone\":");
+		appendString(line, ticket == null ? null : ticket.getMilestone());
+		line.append(",\"missing\":");
+		appendChange(line, missingChange);
+		line.append(",\"path\":");
+		appendString(line, conflictNode.getPath());
+		if (!conflictNode.isAlive()) {
+			line.append(",\"deleted\":");
+			line.append(conflictNode.getRevMax() + 1);
+		}
+		line.append(",\"conflicts\":[");
+		boolean first = true;
+		for (Change conflict : conflicts) {
+			if (first) {
+				first = false;
+			} else {
+				line.append(',');
+			}
+			appendChange(line, conflict);
+		}
+		line.append("]}");
+		out.println(line);
+	}
+
+	private static void appendChange(StringBuilder out, Change change) {
+		out.append("{\"revision\":");
+		out.append(change.getRevision());
+		out.append(",\"author\":");
+		appendString(out, change.getAuthor());
+		out.append(",\"message\":");
+		appendString(out, change.getMessage());
+		out.append('}');
+	}
+
+	private static void appendString(StringBuilder out, String value) {
+		if (value == null) {
+			out.append("null");
+			return;
+		}
+		out.append('"');
+		for (int n = 0, cnt = value.length(); n < cnt; n++) {
+			char ch = value.charAt(n);
+			switch (ch) {
+				case '"':
+					out.append("\\\"");
+					break;
+				case '\\':
+					out.append("\\\\");
+					break;
+				case '\n':
+					out.append("\\n");
+					break;
+				case '\r':
+					out.append("\\r");
+					break;
+				case '\t':
+					out.append("\\t");
+					break;
+				default:
+					if (ch < 0x20) {
+						out.append(String.format("\\u%04x", (int) ch));
+					} else {
+						out.append(ch);
+					}
+			}
+		}
+		out.append('"');
+	}
+
+	/**
+	 * Conflicts caused by the missing changes of a single ticket.
+	 */
+	private static final class Section {
+
+		private final TracTicket _ticket;
+
+		/**
+		 * Missing changes mapped to nodes where conflicts are expected mapped to merged changes
+		 * that are potentially in conflict with the missing change.
+		 * 
+		 * <p>
+		 * Conflict nodes are only sorted when printed, since distinct nodes may be equal in
+		 * {@link ConflictReport#PATH_ORDER}.
+		 * </p>
+		 */
+		private final TreeMap<Change, Map<Node, Set<Change>>> _missingChanges =
+			new TreeMap<>(ChangeOrder.INSTANCE);
+
+		public Section(TracTicket ticket) {
+			_ticket = ticket;
+		}
+
+		public TracTicket getTicket() {
+			return _ticket;
+		}
+
+		public TreeMap<Change, Map<Node, Set<Change>>> getMissingChanges() {
+			return _missingChanges;
+		}
+
+		public void add(Change missingChange, Node conflictNode, Change conflictingChange) {
+			Map<Node, Set<Change>> conflictNodes = _missingChanges.get(missingChange);
+			if (conflictNodes == null) {
+				conflictNodes = new HashMap<>();
+				_missingChanges.put(missingChange, conflictNodes);
+			}
+			Set<Change> conflicts = conflictNodes.get(conflictNode);
+			if (conflicts == null) {
+				conflicts = new TreeSet<>(ChangeOrder.INSTANCE);
+				conflictNodes.put(conflictNode, conflicts);
+			}
+			conflicts.add(conflictingChange);
+		}
+	}
+
+}
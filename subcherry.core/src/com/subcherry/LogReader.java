@@ -17,14 +17,29 @@
  */
 package com.subcherry;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.subcherry.log.LogCache;
+import com.subcherry.merge.LastLogEntry;
+import com.subcherry.repository.PooledClientManager;
 import com.subcherry.repository.command.Client;
 import com.subcherry.repository.command.log.LogEntryHandler;
+import com.subcherry.repository.core.LogEntry;
 import com.subcherry.repository.core.RepositoryException;
 import com.subcherry.repository.core.RepositoryURL;
 import com.subcherry.repository.core.Revision;
+import com.subcherry.repository.core.RevisionRange;
 
 public class LogReader {
 
+	private static final String[] ROOT = { "/" };
+
 	private final Client _logClient;
 
 	private final RepositoryURL _url;
@@ -41,6 +56,10 @@ public class LogReader {
 
 	private long _limit;
 
+	private LogCache _cache;
+
+	private int _shards = 1;
+
 	public LogReader(Client logClient, RepositoryURL url) {
 		_logClient = logClient;
 		_url = url;
@@ -94,9 +113,170 @@ public class LogReader {
 		_limit = limit;
 	}
 
+	public LogCache getCache() {
+		return _cache;
+	}
+
+	/**
+	 * Sets the {@link LogCache} to serve requests from, <code>null</code> to always read directly
+	 * from the repository.
+	 */
+	public void setCache(LogCache cache) {
+		_cache = cache;
+	}
+
+	public int getShards() {
+		return _shards;
+	}
+
+	/**
+	 * Enables reading the log in the given number of concurrent requests.
+	 * 
+	 * <p>
+	 * The requested revision range is split into consecutive parts, each of which is read with a
+	 * separate request for all paths. The requests are sent concurrently through the log client,
+	 * which therefore must support concurrent use, e.g. the client of a
+	 * {@link PooledClientManager}.
+	 * </p>
+	 */
+	public void setShards(int shards) {
+		_shards = shards;
+	}
+
 	public void readLog(String[] paths, LogEntryHandler logTarget) throws RepositoryException {
-		_logClient.log(_url, paths, _pegRevision, _startRevision, _endRevision, _stopOnCopy, _discoverChangedPaths,
-			_limit, logTarget);
+		if (useCache()) {
+			_cache.readLog(_url, paths, _pegRevision, _startRevision.getNumber(), _endRevision, logTarget,
+				new LogCache.Source() {
+					@Override
+					public void log(String[] cachedPaths, Revision startRevision, Revision endRevision,
+							LogEntryHandler handler) throws RepositoryException {
+						fetchLog(cachedPaths, startRevision, endRevision, handler);
+					}
+				});
+		} else {
+			fetchLog(paths, _startRevision, _endRevision, logTarget);
+		}
+	}
+
+	private boolean useCache() {
+		if (_cache == null) {
+			return false;
+		}
+		// Only complete log entries are cached.
+		return isComplete() && isAscending(_startRevision, _endRevision);
+	}
+
+	private boolean isComplete() {
+		return _discoverChangedPaths && !_stopOnCopy && _limit <= 0;
+	}
+
+	private static boolean isAscending(Revision startRevision, Revision endRevision) {
+		if (startRevision.kind() != Revision.Kind.COMMIT) {
+			return false;
+		}
+		switch (endRevision.kind()) {
+			case HEAD:
+				return true;
+			case COMMIT:
+				return endRevision.getNumber() >= startRevision.getNumber();
+			default:
+				return false;
+		}
+	}
+
+	private void fetchLog(String[] paths, Revision startRevision, Revision endRevision, LogEntryHandler handler)
+			throws RepositoryException {
+		if (_shards > 1 && _limit <= 0 && isAscending(startRevision, endRevision)) {
+			fetchSharded(paths, startRevision, endRevision, handler);
+		} else {
+			_logClient.log(_url, paths, _pegRevision, startRevision, endRevision, _stopOnCopy,
+				_discoverChangedPaths, _limit, handler);
+		}
+	}
+
+	private void fetchSharded(final String[] paths, Revision startRevision, Revision endRevision,
+			LogEntryHandler handler) throws RepositoryException {
+		// All shards must see the same end revision, otherwise a commit during the requests would
+		// only be reported for some of the paths.
+		long start = startRevision.getNumber();
+		long end = endRevision.kind() == Revision.Kind.HEAD ? headRevision().getNumber() : endRevision.getNumber();
+		if (end < start) {
+			return;
+		}
+
+		List<RevisionRange> ranges = shardRanges(start, end, _shards);
+		ExecutorService executor = Executors.newFixedThreadPool(ranges.size());
+		try {
+			List<Future<List<LogEntry>>> results = new ArrayList<>(ranges.size());
+			for (final RevisionRange range : ranges) {
+				results.add(executor.submit(new Callable<List<LogEntry>>() {
+					@Override
+					public List<LogEntry> call() throws RepositoryException {
+						SVNLogEntryMatcher.AllEntries shardLog = new SVNLogEntryMatcher.AllEntries();
+						_logClient.log(_url, paths, _pegRevision, range.getStart(), range.getEnd(), _stopOnCopy,
+							_discoverChangedPaths, _limit, shardLog);
+						return shardLog.getEntries();
+					}
+				}));
+			}
+
+			// Shards cover consecutive revision ranges, their concatenation is in ascending
+			// revision order.
+			long lastRevision = -1;
+			for (Future<List<LogEntry>> result : results) {
+				for (LogEntry entry : get(result)) {
+					if (entry.getRevision() <= lastRevision) {
+						continue;
+					}
+					lastRevision = entry.getRevision();
+					handler.handleLogEntry(entry);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Splits the revisions from start to end (inclusive) into at most the given number of
+	 * consecutive ranges of equal size.
+	 */
+	private static List<RevisionRange> shardRanges(long start, long end, int shards) {
+		long cnt = end - start + 1;
+		int rangeCnt = (int) Math.min(shards, cnt);
+		List<RevisionRange> result = new ArrayList<>(rangeCnt);
+		for (int shard = 0; shard < rangeCnt; shard++) {
+			long first = start + cnt * shard / rangeCnt;
+			long last = start + cnt * (shard + 1) / rangeCnt - 1;
+			result.add(RevisionRange.create(Revision.create(first), Revision.create(last)));
+		}
+		return result;
+	}
+
+	private Revision headRevision() throws RepositoryException {
+		LastLogEntry head = new LastLogEntry();
+		_logClient.log(_url, ROOT, _pegRevision, Revision.HEAD, Revision.HEAD, false, false, 1, head);
+		return Revision.create(head.getLogEntry().getRevision());
+	}
+
+	private static <T> T get(Future<T> result) throws RepositoryException {
+		try {
+			return result.get();
+		} catch (InterruptedException ex) {
+			throw new RepositoryException(ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RepositoryException) {
+				throw (RepositoryException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RepositoryException(cause);
+		}
 	}
 
 }
@@ -18,11 +18,11 @@
 package com.subcherry;
 
 import static com.subcherry.Globals.*;
-import static com.subcherry.utils.CollectionUtil.*;
 
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -38,7 +38,6 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 
 import com.subcherry.commit.Commit;
 import com.subcherry.commit.CommitHandler;
@@ -47,24 +46,29 @@ import com.subcherry.commit.RevisionRewriter;
 import com.subcherry.history.Change;
 import com.subcherry.history.DependencyBuilder;
 import com.subcherry.history.DependencyBuilder.Dependency;
+import com.subcherry.history.History;
+import com.subcherry.history.HistorySnapshot;
 import com.subcherry.history.HistroyBuilder;
-import com.subcherry.history.Node;
 import com.subcherry.log.DirCollector;
+import com.subcherry.log.LogCache;
+import com.subcherry.log.LogMerger;
+import com.subcherry.log.RevisionCache;
 import com.subcherry.merge.MergeHandler;
+import com.subcherry.merge.MergePlanner;
 import com.subcherry.repository.ClientManagerFactory;
+import com.subcherry.repository.PooledClientManager;
 import com.subcherry.repository.LoginCredential;
 import com.subcherry.repository.command.Client;
 import com.subcherry.repository.command.ClientManager;
 import com.subcherry.repository.command.log.LogEntryHandler;
 import com.subcherry.repository.core.LogEntry;
-import com.subcherry.repository.core.MergeInfo;
 import com.subcherry.repository.core.RepositoryException;
 import com.subcherry.repository.core.RepositoryURL;
 import com.subcherry.repository.core.Revision;
-import com.subcherry.repository.core.RevisionRange;
-import com.subcherry.repository.core.RevisionRanges;
+import com.subcherry.repository.core.RevisionSet;
+import com.subcherry.trac.TicketCache;
+import com.subcherry.trac.TicketStub;
 import com.subcherry.trac.TracConnection;
-import com.subcherry.trac.TracTicket;
 import com.subcherry.utils.Log;
 import com.subcherry.utils.Path;
 import com.subcherry.utils.PathParser;
@@ -91,17 +95,6 @@ public class Main {
 
 	private static final Logger LOG = Globals.logger(Main.class);
 
-	private static final String NO_TICKET_ID = "";
-
-	private static final Comparator<Node> PATH_ORDER = new Comparator<Node>() {
-		@Override
-		public int compare(Node n1, Node n2) {
-			return n1.getPath().compareTo(n2.getPath());
-		}
-	};
-
-	private static final String[] ROOT = { "/" };
-
 	static Set<String> _modules;
 
 	public static void main(String[] args) throws IOException, RepositoryException {
@@ -114,8 +107,7 @@ public class Main {
 	public static void doMerge(LoginCredential tracCredentials) throws RepositoryException, IOException {
 		Revision startRevision = getStartRevision();
 		Revision endRevision = getEndRevision();
-		Revision pegRevision = getPegRevision();
-		ClientManager clientManager = newSVNClientManager();
+		ClientManager clientManager = createClientManager();
 		Client logClient = clientManager.getClient();
 		
 		String sourceBranch = config().getSourceBranch();
@@ -131,9 +123,12 @@ public class Main {
 		Log.info("Merging modules: " + _modules);
 		
 		TracConnection trac = createTracConnection(tracCredentials);
+		TicketCache ticketCache = createTicketCache(trac);
 		PortingTickets portingTickets = new PortingTickets(config(), trac);
 		PathParser paths = new PathParser(config());
-		MergeHandler mergeHandler = new MergeHandler(clientManager, config(), paths, _modules);
+		RepositoryURL url = RepositoryURL.parse(config().getSvnURL());
+		RevisionCache revisionCache = createRevisionCache(logClient, url);
+		MergeHandler mergeHandler = new MergeHandler(clientManager, config(), paths, _modules, revisionCache);
 		MergeCommitHandler mergeCommitHandler =
 			new MergeCommitHandler(mergeHandler, clientManager, config());
 		RevisionRewriter revisionRewriter = mergeCommitHandler.getRevisionRewriter();
@@ -141,23 +136,49 @@ public class Main {
 			MessageRewriter.createMessageRewriter(config(), portingTickets, revisionRewriter);
 		SVNLogEntryMatcher logEntryMatcher = newLogEntryMatcher(trac, portingTickets);
 		CommitHandler commitHandler = newCommitHandler(paths, messageRewriter);
-		RepositoryURL url = RepositoryURL.parse(config().getSvnURL());
 
 		if (config().getSkipWaitForTimestamp()) {
 			clientManager.getOperationsFactory().settings().setSleepForTimestamp(false);
 		}
 
 		LOG.log(Level.INFO, "Reading source history.");
-		LogReader logReader = new LogReader(logClient, url);
-
+		LogReader logReader = createLogReader(logClient, url);
+		logReader.setCache(createLogCache(logClient));
+		if (config().getLogShards() > 1) {
+			// The client of the connection pool supports concurrent requests.
+			logReader.setShards(config().getLogShards());
+		}
 		logReader.setStartRevision(startRevision);
 		logReader.setEndRevision(endRevision);
-		logReader.setPegRevision(pegRevision);
-		logReader.setStopOnCopy(false);
-		logReader.setDiscoverChangedPaths(true);
-		logReader.setLimit(NO_LIMIT);
 		String[] sourcePaths = getLogPaths(sourceBranch);
-		logReader.readLog(sourcePaths, logEntryMatcher);
+		// The source log is required for history reconstruction and merge info analysis later on.
+		// Keep it to prevent reading it a second time.
+		SVNLogEntryMatcher sourceLog = new SVNLogEntryMatcher.AllEntries();
+		try {
+			int ticketFetchThreads = config().getTicketFetchThreads();
+			if (ticketFetchThreads > 0) {
+				// Fetch referenced tickets in the background while the log is still being read.
+				TicketPrefetcher ticketPrefetcher = new TicketPrefetcher(trac, ticketFetchThreads);
+				try {
+					logReader.readLog(sourcePaths, new CombinedLogEntryHandler(sourceLog, ticketPrefetcher));
+				} finally {
+					ticketPrefetcher.close();
+				}
+			} else {
+				logReader.readLog(sourcePaths, sourceLog);
+
+				// Fetch all referenced tickets at once, before matching the log.
+				TicketStub.prefetch(trac, getTicketIds(sourceLog.getEntries()));
+			}
+			// Decide in revision order, each decision waits for its ticket to arrive.
+			sourceLog.forward(logEntryMatcher);
+		} finally {
+			// Keep the fetched tickets, even if a later step fails or exits.
+			if (ticketCache != null) {
+				ticketCache.save();
+			}
+		}
+		revisionCache.addEntries(sourceLog.getEntries());
 
 		HashSet<Long> additionalRevisions = new HashSet<>(config().getAdditionalRevisions().keySet());
 		boolean additionalRevisionsFromOtherBranches;
@@ -172,11 +193,8 @@ public class Main {
 
 				// There are addition revisions not found on the source branch, load them
 				// explicitly.
-				for (Long additionalRev : additionalRevisions) {
-					Revision svnAdditionalRev = Revision.create(additionalRev);
-					logReader.setStartRevision(svnAdditionalRev);
-					logReader.setEndRevision(svnAdditionalRev);
-					logReader.readLog(ROOT, logEntryMatcher);
+				for (LogEntry additionalEntry : revisionCache.getRevisions(logClient, url, additionalRevisions)) {
+					logEntryMatcher.handleLogEntry(additionalEntry);
 				}
 			}
 		} else {
@@ -205,8 +223,10 @@ public class Main {
 		}
 
 		if (!config().getSkipDependencies()) {
-			HistroyBuilder historyBuilder = new HistroyBuilder(getStartRevision().getNumber());
-			readTargetLog(logReader, targetBranch, sourcePaths, historyBuilder);
+			String historyKey = getHistoryKey(url, sourcePaths, getLogPaths(targetBranch));
+			HistroyBuilder historyBuilder = createHistoryBuilder(historyKey);
+			readTargetLog(logReader, targetBranch, sourceLog.getEntries(), historyBuilder);
+			saveHistory(historyBuilder.getHistory(), historyKey);
 			analyzeDependencies(historyBuilder, sourceBranch, targetBranch, trac, mergedLogEntries);
 		}
 
@@ -215,6 +235,9 @@ public class Main {
 
 			MergeInfoTester tester =
 				new MergeInfoTester(clientManager, url, config().getWorkspaceRoot(), getPegRevision());
+			MergeInfoHistory mergeInfoHistory = new MergeInfoHistory(logClient, url);
+			mergeInfoHistory.analyze(sourceLog.getEntries(), sourcePaths, getMergeInfoPaths(paths, mergedLogEntries));
+			tester.setHistory(mergeInfoHistory);
 			for (int n = mergedLogEntries.size() - 1; n >= 0; n--) {
 				LogEntry entry = mergedLogEntries.get(n);
 
@@ -228,12 +251,7 @@ public class Main {
 					String changedModuleName = parsedPath.getModule();
 					touchedModules.add(changedModuleName);
 
-					if (!isModulePath(parsedPath)) {
-						// Merge info is only recorded at module level. Therefore, checks on all
-						// other paths can be skipped.
-						continue;
-					}
-					if (!_modules.contains(changedModuleName)) {
+					if (!isMergeInfoPath(parsedPath)) {
 						continue;
 					}
 
@@ -249,13 +267,12 @@ public class Main {
 							continue;
 						}
 
-						MergeInfo moduleMergeInfo = tester.lookupMergeInfo(touchedModule);
 						RepositoryURL mergeSrcUrl = sourceBranchUrl.appendPath(touchedModule);
-						List<RevisionRange> mergedRevisions = moduleMergeInfo.getRevisions(mergeSrcUrl);
+						RevisionSet mergedRevisions = tester.getMergedRevisions(touchedModule, mergeSrcUrl);
 						if (mergedRevisions == null) {
 							continue;
 						}
-						if (RevisionRanges.contains(mergedRevisions, mergedRevision)) {
+						if (mergedRevisions.contains(mergedRevision)) {
 							alreadyMerged = true;
 							break;
 						}
@@ -269,6 +286,11 @@ public class Main {
 			}
 		}
 
+		if (ticketCache != null) {
+			// Tickets fetched during the dependency and merge info analysis.
+			ticketCache.save();
+		}
+
 		List<CommitSet> commitSets = getCommitSets(commitHandler, mergedLogEntries);
 		if (config().getReorderCommits() && !config().getRevert()) {
 			reorderCommits(commitSets);
@@ -278,26 +300,183 @@ public class Main {
 		}
 		Log.info("Start merging " + mergedLogEntries.size() + " revisions.");
 
-		mergeCommitHandler.run(commitSets);
+		ClientManager plannerClientManager = null;
+		int lookAhead = config().getMergeLookAhead();
+		if (lookAhead > 0 && !config().getPlanOnly()) {
+			if (!(clientManager instanceof PooledClientManager)) {
+				// Merges are created concurrently to executing merges and require their own connection.
+				plannerClientManager = newSVNClientManager();
+				mergeHandler.setLogClient(plannerClientManager.getClient());
+			}
+			mergeCommitHandler.setPlanner(new MergePlanner(mergeHandler, config().getWorkspaceRoot(), lookAhead));
+		}
+		try {
+			mergeCommitHandler.run(commitSets);
+		} finally {
+			if (plannerClientManager != null) {
+				plannerClientManager.close();
+			}
+			revisionCache.close();
+		}
 
-		Restart.clear();
+		// In plan-only mode nothing has been merged, so the restart point of a previous run is kept.
+		if (!config().getPlanOnly()) {
+			Restart.clear();
+		}
+	}
+
+	private static Set<String> getTicketIds(List<LogEntry> entries) {
+		Set<String> result = new HashSet<>();
+		for (LogEntry entry : entries) {
+			String ticketId = Utils.getTicketId(entry.getMessage());
+			if (ticketId != null) {
+				result.add(ticketId);
+			}
+		}
+		return result;
+	}
+
+	private static LogReader createLogReader(Client logClient, RepositoryURL url) {
+		LogReader logReader = new LogReader(logClient, url);
+		logReader.setPegRevision(getPegRevision());
+		logReader.setStopOnCopy(false);
+		logReader.setDiscoverChangedPaths(true);
+		logReader.setLimit(NO_LIMIT);
+		return logReader;
+	}
+
+	private static RevisionCache createRevisionCache(Client logClient, RepositoryURL url) throws RepositoryException {
+		int size = config().getRevisionCacheSize();
+		if (size <= 0) {
+			size = RevisionCache.DEFAULT_SIZE;
+		}
+		File cacheDir = config().getRevisionCache();
+		if (cacheDir == null || cacheDir.getPath().isEmpty()) {
+			return new RevisionCache(size);
+		}
+		RevisionCache result =
+			new RevisionCache(size, new File(cacheDir, logClient.getRepositoryUUID(url) + ".log"));
+		result.load();
+		return result;
+	}
+
+	private static LogCache createLogCache(Client logClient) {
+		File cacheDir = config().getLogCache();
+		if (cacheDir == null || cacheDir.getPath().isEmpty()) {
+			return null;
+		}
+		return new LogCache(cacheDir, logClient);
+	}
+
+	/**
+	 * The revisions to analyze the merge info for indexed by the path carrying the merge info.
+	 */
+	private static Map<String, Set<Long>> getMergeInfoPaths(PathParser paths, List<LogEntry> entries) {
+		Map<String, Set<Long>> result = new HashMap<>();
+		for (LogEntry entry : entries) {
+			for (String changedPath : entry.getChangedPaths().keySet()) {
+				if (!isMergeInfoPath(paths.parsePath(changedPath))) {
+					continue;
+				}
+				Set<Long> revisions = result.get(changedPath);
+				if (revisions == null) {
+					revisions = new HashSet<>();
+					result.put(changedPath, revisions);
+				}
+				revisions.add(entry.getRevision());
+			}
+		}
+		return result;
+	}
+
+	private static boolean isMergeInfoPath(Path parsedPath) {
+		// Merge info is only recorded at module level. Therefore, checks on all other paths can be
+		// skipped.
+		return isModulePath(parsedPath) && _modules.contains(parsedPath.getModule());
 	}
 
 	private static boolean isModulePath(Path parsedPath) {
 		return parsedPath.getResource().equals(parsedPath.getModule());
 	}
 
-	private static void readTargetLog(LogReader logReader, String targetBranch, String[] sourcePaths,
-			LogEntryHandler handler) throws RepositoryException {
+	/**
+	 * Describes the paths a {@link History} is built from, a stored history can only be reused
+	 * for the same paths.
+	 */
+	private static String getHistoryKey(RepositoryURL url, String[] sourcePaths, String[] targetPaths) {
+		List<String> paths = new ArrayList<>();
+		paths.addAll(Arrays.asList(sourcePaths));
+		paths.addAll(Arrays.asList(targetPaths));
+		Collections.sort(paths);
+		return url + " " + paths;
+	}
+
+	private static HistroyBuilder createHistoryBuilder(String historyKey) {
+		long startRevision = getStartRevision().getNumber();
+		File snapshotFile = config().getHistorySnapshot();
+		if (snapshotFile != null && !snapshotFile.getPath().isEmpty()) {
+			History history = HistorySnapshot.load(snapshotFile, historyKey, startRevision);
+			if (history != null) {
+				Revision endRevision = getEndRevision();
+				if (endRevision.kind() == Revision.Kind.COMMIT && history.getLastRevision() > endRevision.getNumber()) {
+					LOG.log(Level.INFO, "History snapshot is newer than end revision, rebuilding history.");
+				} else {
+					LOG.log(Level.INFO, "Continuing history snapshot at revision " + history.getLastRevision() + ".");
+					return new HistroyBuilder(history);
+				}
+			}
+		}
+		return new HistroyBuilder(startRevision);
+	}
+
+	private static void saveHistory(History history, String historyKey) {
+		File snapshotFile = config().getHistorySnapshot();
+		if (snapshotFile == null || snapshotFile.getPath().isEmpty()) {
+			return;
+		}
+		HistorySnapshot.save(history, snapshotFile, historyKey);
+	}
+
+	/**
+	 * Passes the combined log of source and target paths after the last revision of the history
+	 * being built to the given {@link HistroyBuilder}.
+	 */
+	private static void readTargetLog(LogReader logReader, String targetBranch, List<LogEntry> sourceLog,
+			HistroyBuilder historyBuilder) throws RepositoryException {
 		LOG.log(Level.INFO, "Reading target history.");
 
-		String[] targetPaths = getLogPaths(targetBranch);
-		String[] allPaths = concat(sourcePaths, targetPaths);
-		// For history reconstruction, the history must always be read in ascending revision
-		// order.
-		logReader.setStartRevision(getStartRevision());
-		logReader.setEndRevision(getEndRevision());
-		logReader.readLog(allPaths, handler);
+		long lastRevision = historyBuilder.getHistory().getLastRevision();
+		Revision startRevision = getStartRevision();
+		if (lastRevision >= startRevision.getNumber()) {
+			startRevision = Revision.create(lastRevision + 1);
+		}
+		Revision endRevision = getEndRevision();
+
+		List<LogEntry> targetLog;
+		if (endRevision.kind() == Revision.Kind.COMMIT && startRevision.getNumber() > endRevision.getNumber()) {
+			targetLog = Collections.emptyList();
+		} else {
+			String[] targetPaths = getLogPaths(targetBranch);
+			// For history reconstruction, the history must always be read in ascending revision
+			// order.
+			logReader.setStartRevision(startRevision);
+			logReader.setEndRevision(endRevision);
+			SVNLogEntryMatcher targetEntries = new SVNLogEntryMatcher.AllEntries();
+			logReader.readLog(targetPaths, targetEntries);
+			targetLog = targetEntries.getEntries();
+		}
+
+		// The source log has already been read in the same revision range, combine both to the log
+		// of source and target paths.
+		List<LogEntry> newSourceLog = sourceLog;
+		int firstNew = 0;
+		while (firstNew < sourceLog.size() && sourceLog.get(firstNew).getRevision() <= lastRevision) {
+			firstNew++;
+		}
+		if (firstNew > 0) {
+			newSourceLog = sourceLog.subList(firstNew, sourceLog.size());
+		}
+		LogMerger.merge(Arrays.asList(newSourceLog, targetLog), historyBuilder);
 	}
 
 	private static void analyzeDependencies(HistroyBuilder historyBuilder, String sourceBranch, String targetBranch,
@@ -310,75 +489,24 @@ public class Main {
 		if (!dependencies.isEmpty()) {
 			LOG.log(Level.INFO, "Conflicts detected.");
 
-			/**
-			 * Mapping of missing changes to nodes where conflicts are expected to merged changes
-			 * that are potentially in conflict with the missing change.
-			 */
-			Map<Change, Map<Node, List<Change>>> missingChanges = new HashMap<>();
-			for (Dependency dependency : dependencies.values()) {
-				Change conflictingChange = dependency.getChange();
-
-				for (Entry<Change, Set<Node>> requirement : dependency.getRequiredChanges().entrySet()) {
-					Change missingChange = requirement.getKey();
+			// Resolve all required tickets at once, the milestone filter needs each of them.
+			TicketStub.fetchAll(trac, ConflictReport.getRequiredTicketIds(dependencies.values()),
+				config().getTicketFetchThreads());
 
-					for (Node conflictNode : requirement.getValue()) {
-						mkList(mkMap(missingChanges, missingChange), conflictNode).add(conflictingChange);
-					}
-				}
-			}
-
-			/**
-			 * Ticket IDs of missing tickets mapped to changes of those tickets that are causing
-			 * conflicts.
-			 */
-			Map<String, List<Change>> requiredTickets = new HashMap<>();
-			for (Change change : missingChanges.keySet()) {
-				String ticketId = Utils.getTicketId(change.getMessage());
-				if (ticketId == null) {
-					ticketId = NO_TICKET_ID;
-				}
-				mkList(requiredTickets, ticketId).add(change);
+			ConflictReport report = new ConflictReport(trac, config().getDependencyReport());
+			for (Dependency dependency : dependencies.values()) {
+				report.add(dependency);
 			}
 
 			ReportPrinter printer = new ReportPrinter();
-			printer.startReport();
-			for (String ticketId : keysSorted(requiredTickets)) {
-				TracTicket ticket;
-				if (ticketId.equals(NO_TICKET_ID)) {
-					ticket = null;
-				} else {
-					ticket = TracTicket.getTicket(trac, Integer.parseInt(ticketId));
-
-					if (matches(config().getDependencyReport().getExcludeTicketMilestone(), ticket.getMilestone())) {
-						continue;
-					}
-				}
-
-				printer.setTicket(ticketId, ticket);
-
-				List<Change> requiredChangesFromTicket = requiredTickets.get(ticketId);
-				Collections.sort(requiredChangesFromTicket, ChangeOrder.INSTANCE);
-				for (Change missingChange : requiredChangesFromTicket) {
-					printer.setMissingChange(missingChange);
-
-					Map<Node, List<Change>> fileConflicts = missingChanges.get(missingChange);
-					for (Node conflictNode : keysSorted(fileConflicts, PATH_ORDER)) {
-						if (matches(config().getDependencyReport().getExcludePath(), conflictNode.getPath())) {
-							continue;
-						}
-
-						printer.setConflictNode(conflictNode);
-
-						List<Change> conflicts = fileConflicts.get(conflictNode);
-						Collections.sort(conflicts, ChangeOrder.INSTANCE);
-						for (Change conflict : conflicts) {
-							printer.printConflictingChange(conflict);
-						}
-					}
+			File reportFile = config().getDependencyReport().getFile();
+			if (reportFile == null || reportFile.getPath().isEmpty()) {
+				report.print(printer, null);
+			} else {
+				try (PrintWriter json = new PrintWriter(reportFile, "utf-8")) {
+					report.print(printer, json);
 				}
-				printer.endTicket();
 			}
-			printer.endReport();
 
 			if (printer.hasConflictsReported()) {
 				System.out.print("Continue (yes/no)? ");
@@ -398,14 +526,6 @@ public class Main {
 		return result;
 	}
 
-	private static boolean matches(Pattern pattern, String text) {
-		if (pattern == null) {
-			return false;
-		}
-
-		return pattern.matcher(text).find();
-	}
-
 	private static String[] getSourcePaths() {
 		return getLogPaths(config().getSourceBranch());
 	}
@@ -527,6 +647,18 @@ public class Main {
 		return new DefaultLogEntryMatcher(trac, config(), portingTickets);
 	}
 
+	private static TicketCache createTicketCache(TracConnection trac) {
+		File cacheFile = config().getTicketCache();
+		if (cacheFile == null || cacheFile.getPath().isEmpty()) {
+			return null;
+		}
+		TicketCache result = new TicketCache(cacheFile);
+		result.load();
+		result.refresh(trac);
+		TicketStub.setCache(result);
+		return result;
+	}
+
 	private static TracConnection createTracConnection(LoginCredential tracCredentials) throws MalformedURLException {
 		return new TracConnection(config().getTracURL(), tracCredentials.getUser(),
 			tracCredentials.getPasswd());
@@ -549,11 +681,31 @@ public class Main {
 		return pathes;
 	}
 
+	/**
+	 * Creates the {@link ClientManager} for the merge, a {@link PooledClientManager}, if
+	 * configured or if the log is read with concurrent requests.
+	 */
+	private static ClientManager createClientManager() throws IOException {
+		// Concurrent log requests are served from the pool.
+		int poolSize = Math.max(config().getClientPoolSize(), config().getLogShards());
+		if (poolSize > 1 || config().getClientPoolSize() > 0) {
+			int idleTimeout = config().getClientIdleTimeout();
+			return getClientManagerFactory().createPooledClientManager(loadSVNCredentials(), poolSize,
+				idleTimeout > 0 ? idleTimeout * 1000L : PooledClientManager.DEFAULT_IDLE_TIMEOUT);
+		}
+		return newSVNClientManager();
+	}
+
 	public static ClientManager newSVNClientManager() throws IOException {
-		LoginCredential svnCredentials = PropertiesUtil.load("conf/loginCredentials.properties", "svn.",
-			LoginCredentialsValue.class);
+		return getClientManagerFactory().createClientManager(loadSVNCredentials());
+	}
+
+	private static ClientManagerFactory getClientManagerFactory() {
+		return ClientManagerFactory.getInstance(config().getRepositoryProvider());
+	}
 
-		return ClientManagerFactory.getInstance(config().getRepositoryProvider()).createClientManager(svnCredentials);
+	private static LoginCredential loadSVNCredentials() throws IOException {
+		return PropertiesUtil.load("conf/loginCredentials.properties", "svn.", LoginCredentialsValue.class);
 	}
 
 }
@@ -24,8 +24,11 @@ import java.awt.TrayIcon;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -39,6 +42,8 @@ import com.subcherry.commit.Commit;
 import com.subcherry.commit.CommitContext;
 import com.subcherry.commit.RevisionRewriter;
 import com.subcherry.merge.MergeHandler;
+import com.subcherry.merge.MergePlanner;
+import com.subcherry.merge.PlanReport;
 import com.subcherry.repository.command.Client;
 import com.subcherry.repository.command.ClientManager;
 import com.subcherry.repository.command.Command;
@@ -184,6 +189,23 @@ public class MergeCommitHandler {
 
 	private final SystemTrayIcon _mergeConflictIcon;
 
+	private MergePlanner _planner;
+
+	/**
+	 * Whether conflict-free revisions are committed in groups.
+	 */
+	private boolean _grouping;
+
+	/**
+	 * Merged revisions not yet committed, <code>null</code> if there are none.
+	 */
+	private Commit _group;
+
+	/**
+	 * The merges of the revisions joined into {@link #_group}.
+	 */
+	private final List<MergeOperation> _groupMerges = new ArrayList<>();
+
 	public MergeCommitHandler(MergeHandler mergeHandler, ClientManager clientManager, Configuration config) {
 		this._mergeHandler = mergeHandler;
 		_clientManager = clientManager;
@@ -200,10 +222,40 @@ public class MergeCommitHandler {
 		_mergeConflictIcon = mergeConflictIcon;
 	}
 
+	/**
+	 * Sets the {@link MergePlanner} creating merges in advance.
+	 * 
+	 * <p>
+	 * The planner must use the {@link MergeHandler} of this instance.
+	 * </p>
+	 */
+	public void setPlanner(MergePlanner planner) {
+		_planner = planner;
+	}
+
 	public void run(List<CommitSet> commitSets) throws RepositoryException {
 		_commitSets = commitSets;
 		_totalRevs = getTotalRevs(commitSets);
+		_grouping = _config.getCommitGroupSize() > 1 && _config.getAutoCommit() && !_config.getNoCommit();
+
+		if (_config.getPlanOnly()) {
+			runPlan();
+			return;
+		}
+
+		if (_planner != null) {
+			_planner.schedule(getLogEntries(commitSets));
+			try {
+				runCommitSets();
+			} finally {
+				_planner.shutdown();
+			}
+		} else {
+			runCommitSets();
+		}
+	}
 
+	private void runCommitSets() throws RepositoryException {
 		for (int n = 0, cnt = _commitSets.size(); n < cnt; n++) {
 			CommitSet commitSet = _commitSets.get(n);
 			
@@ -213,15 +265,51 @@ public class MergeCommitHandler {
 					continue;
 				}
 
-				try {
-					Restart.setRevision(revision);
-				} catch (IOException ex) {
-					Log.info("Unable to store restart revision");
+				if (_group == null) {
+					// Revisions of a group are only committed together.
+					try {
+						Restart.setRevision(revision);
+					} catch (IOException ex) {
+						Log.info("Unable to store restart revision");
+					}
 				}
 
 				merge(commit, commit.getLogEntry());
 			}
 		}
+		commitGroup();
+	}
+
+	/**
+	 * Creates the merges of all revisions without executing them and prints a {@link PlanReport}.
+	 */
+	private void runPlan() throws RepositoryException {
+		PlanReport report = new PlanReport();
+		_mergeHandler.setLogClient(report.countCalls(_clientManager.getClient()));
+		try {
+			for (LogEntry logEntry : getLogEntries(_commitSets)) {
+				if (joinedRevisions.contains(logEntry.getRevision())) {
+					continue;
+				}
+
+				report.start(logEntry.getRevision());
+				MergeOperation merge = _mergeHandler.parseMerge(logEntry);
+				report.stop(merge.getCommands().size());
+			}
+		} finally {
+			_mergeHandler.setLogClient(null);
+		}
+		report.print(System.out);
+	}
+
+	private static List<LogEntry> getLogEntries(List<CommitSet> commitSets) {
+		List<LogEntry> result = new ArrayList<>();
+		for (CommitSet commitSet : commitSets) {
+			for (Commit commit : commitSet.getCommits()) {
+				result.add(commit.getLogEntry());
+			}
+		}
+		return result;
 	}
 
 	private int getTotalRevs(List<CommitSet> commitSets) {
@@ -235,7 +323,7 @@ public class MergeCommitHandler {
 	public void merge(Commit commit, LogEntry logEntry) throws RepositoryException {
 		_doneRevs++;
 
-		MergeOperation merge = _mergeHandler.parseMerge(logEntry);
+		MergeOperation merge = parseMerge(logEntry);
 		if (merge.isEmpty()) {
 			Log.info("Skipping '" + merge.getRevision() + "' (no relevant modules touched).");
 			return;
@@ -249,11 +337,46 @@ public class MergeCommitHandler {
 			System.out.println("   " + command.toString());
 		}
 
+		Map<File, List<ConflictDescription>> groupConflicts = null;
+		List<MergeOperation> merges = Collections.singletonList(merge);
+		List<Long> groupRevisions = Collections.emptyList();
+		if (_grouping) {
+			if (!commitAproval) {
+				// Requires interaction, commit the previous revisions first.
+				commitGroup();
+			} else {
+				groupConflicts = execute(commit, merges);
+				if (groupConflicts.isEmpty()) {
+					addToGroup(commit, merge);
+					return;
+				}
+
+				Log.info("Conflicts in [" + logEntry.getRevision() + "], merging remaining revisions one by one.");
+				_grouping = false;
+				if (_group != null) {
+					// The revisions merged before cannot be separated from the conflicting one. They
+					// are re-applied and skipped together with it.
+					_group.join(commit);
+					commit = _group;
+					_group = null;
+					groupRevisions = getRevisions(_groupMerges);
+					merges = new ArrayList<>(_groupMerges);
+					merges.add(merge);
+					_groupMerges.clear();
+				}
+			}
+		}
+
 		merge:
 		while (true) {
-			CommandExecutor executor = _clientManager.getOperationsFactory().getExecutor();
-			Map<File, List<ConflictDescription>> conflicts = executor.execute(merge.getCommands());
-			commit.addTouchedResources(merge.getTouchedResources());
+			Map<File, List<ConflictDescription>> conflicts;
+			if (groupConflicts != null) {
+				// Already executed.
+				conflicts = groupConflicts;
+				groupConflicts = null;
+			} else {
+				conflicts = execute(commit, merges);
+			}
 
 			if (!conflicts.isEmpty()) {
 				log(conflicts);
@@ -275,6 +398,7 @@ public class MergeCommitHandler {
 				}
 				switch (result) {
 					case SKIP:
+						logSkipped(logEntry, groupRevisions);
 						return;
 					case CONTINUE:
 						break;
@@ -293,6 +417,7 @@ public class MergeCommitHandler {
 					InputResult result = queryCommit(commit, "commit");
 					switch (result) {
 						case SKIP:
+							logSkipped(logEntry, groupRevisions);
 							return;
 						case CONTINUE:
 							break;
@@ -310,6 +435,9 @@ public class MergeCommitHandler {
 							+ commitInfo.getNewRevision() + "'.");
 
 						_revisionRewrite.add(logEntry.getRevision(), commitInfo.getNewRevision());
+						for (Long groupRevision : groupRevisions) {
+							_revisionRewrite.add(groupRevision, commitInfo.getNewRevision());
+						}
 						break;
 					} catch (RepositoryException ex) {
 						System.out.println("Commit failed: " + ex.getLocalizedMessage());
@@ -317,6 +445,7 @@ public class MergeCommitHandler {
 						InputResult result = queryCommit(commit, "retry");
 						switch (result) {
 							case SKIP:
+								logSkipped(logEntry, groupRevisions);
 								return;
 							case CONTINUE:
 								break;
@@ -334,6 +463,106 @@ public class MergeCommitHandler {
 		
 	}
 
+	/**
+	 * Executes the given merges in the workspace.
+	 * 
+	 * @param commit
+	 *        The commit receiving the touched resources of the merges.
+	 * @return The conflicts of all merges.
+	 */
+	private Map<File, List<ConflictDescription>> execute(Commit commit, List<MergeOperation> merges)
+			throws RepositoryException {
+		CommandExecutor executor = _clientManager.getOperationsFactory().getExecutor();
+		Map<File, List<ConflictDescription>> result = new LinkedHashMap<>();
+		for (MergeOperation merge : merges) {
+			for (Entry<File, List<ConflictDescription>> entry : executor.execute(merge.getCommands()).entrySet()) {
+				List<ConflictDescription> conflicts = result.get(entry.getKey());
+				if (conflicts == null) {
+					conflicts = new ArrayList<>();
+					result.put(entry.getKey(), conflicts);
+				}
+				conflicts.addAll(entry.getValue());
+			}
+			commit.addTouchedResources(merge.getTouchedResources());
+		}
+		return result;
+	}
+
+	private static List<Long> getRevisions(List<MergeOperation> merges) {
+		List<Long> result = new ArrayList<>(merges.size());
+		for (MergeOperation merge : merges) {
+			result.add(merge.getRevision());
+		}
+		return result;
+	}
+
+	private static void logSkipped(LogEntry logEntry, List<Long> groupRevisions) {
+		if (!groupRevisions.isEmpty()) {
+			Log.info("Skipping revisions " + groupRevisions + " merged together with [" + logEntry.getRevision()
+				+ "].");
+		}
+	}
+
+	private void addToGroup(Commit commit, MergeOperation merge) throws RepositoryException {
+		if (_group == null) {
+			_group = commit;
+		} else {
+			_group.join(commit);
+		}
+		_groupMerges.add(merge);
+		if (_groupMerges.size() >= _config.getCommitGroupSize()) {
+			commitGroup();
+		}
+	}
+
+	/**
+	 * Commits all revisions merged in group mode that are not yet committed.
+	 */
+	private void commitGroup() throws RepositoryException {
+		if (_group == null) {
+			return;
+		}
+		Commit group = _group;
+		_group = null;
+		List<MergeOperation> merges = new ArrayList<>(_groupMerges);
+		_groupMerges.clear();
+		List<Long> revisions = getRevisions(merges);
+		while (true) {
+			try {
+				Log.info("Execute:" + group);
+				CommitInfo commitInfo = group.run(_commitContext);
+				Log.info("Revisions " + revisions + " merged and commited as '" + commitInfo.getNewRevision() + "'.");
+				for (Long groupRevision : revisions) {
+					_revisionRewrite.add(groupRevision, commitInfo.getNewRevision());
+				}
+				break;
+			} catch (RepositoryException ex) {
+				System.out.println("Commit failed: " + ex.getLocalizedMessage());
+
+				// Continue interactively.
+				_grouping = false;
+				InputResult result = queryCommit(group, "retry");
+				if (result == InputResult.SKIP) {
+					Log.info("Skipping revisions " + revisions + ".");
+					break;
+				}
+				if (result == InputResult.REAPPLY) {
+					Map<File, List<ConflictDescription>> conflicts = execute(group, merges);
+					if (!conflicts.isEmpty()) {
+						log(conflicts);
+					}
+				}
+			}
+		}
+	}
+
+	private MergeOperation parseMerge(LogEntry logEntry) throws RepositoryException {
+		if (_planner != null) {
+			return _planner.getMerge(logEntry);
+		}
+		return _mergeHandler.parseMerge(logEntry);
+	}
+
 	private boolean stopOn(long revision) {
 		return _config.getStopOnRevisions().contains(revision);
 	}
@@ -415,6 +644,7 @@ public class MergeCommitHandler {
 				}
 				if (reloadCommand.equals(input)) {
 					Globals.reloadConfig();
+					resetPlanner();
 					continue;
 				}
 				if (input.startsWith(setCommand)) {
@@ -442,6 +672,7 @@ public class MergeCommitHandler {
 							System.err.println("Invalid value: " + ex.getMessage());
 							continue;
 						}
+						resetPlanner();
 						continue;
 					}
 				}
@@ -480,6 +711,13 @@ public class MergeCommitHandler {
 		}
 	}
 
+	private void resetPlanner() {
+		if (_planner != null) {
+			// Merges created in advance are based on the old configuration.
+			_planner.reset();
+		}
+	}
+
 	private Commit getEntry(long joinedRevision) {
 		for (CommitSet commitSet : _commitSets) {
 			Commit commit = commitSet.getCommit(joinedRevision);
@@ -0,0 +1,578 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.subcherry;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.subcherry.repository.command.Client;
+import com.subcherry.repository.command.wc.PropertyHandler;
+import com.subcherry.repository.core.ChangeType;
+import com.subcherry.repository.core.Depth;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.LogEntryPath;
+import com.subcherry.repository.core.PropertyData;
+import com.subcherry.repository.core.RepositoryException;
+import com.subcherry.repository.core.RepositoryURL;
+import com.subcherry.repository.core.Revision;
+import com.subcherry.repository.core.RevisionRange;
+import com.subcherry.repository.core.RevisionSet;
+
+/**
+ * Merge info recorded by the revisions of a branch, computed in a single sweep over the history of
+ * the <code>svn:mergeinfo</code> property of the module paths.
+ *
+ * <p>
+ * Instead of requesting a merge info diff from the server for each analyzed revision, the merge
+ * info recorded in a revision is computed as difference of the property values before and after
+ * the revision. The value after a change is reused as value before the next change of the same
+ * path. The value before a copy is the value of the copy source.
+ * </p>
+ *
+ * <p>
+ * All values required are collected before the first request. Values of paths with a common parent
+ * directory in the same revision are fetched with a single request of the parent directory. Since
+ * a merge typically records merge info on multiple modules of a branch, the number of requests is
+ * lower than the number of analyzed revisions.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+public class MergeInfoHistory {
+
+	private static final Logger LOG = Globals.logger(MergeInfoHistory.class);
+
+	/**
+	 * Name of the SVN merge info property.
+	 */
+	public static final String MERGE_INFO_PROPERTY = "svn:mergeinfo";
+
+	private final Client _client;
+
+	private final RepositoryURL _url;
+
+	/**
+	 * Merge info added to a path in a revision indexed by path and revision.
+	 */
+	private final Map<String, Map<Long, Map<String, List<RevisionRange>>>> _diffs = new HashMap<>();
+
+	private int _requests;
+
+	public MergeInfoHistory(Client client, RepositoryURL url) {
+		_client = client;
+		_url = url;
+	}
+
+	/**
+	 * Computes the merge info diffs for the given revisions.
+	 *
+	 * @param log
+	 *        The complete log of the given logged paths in ascending revision order.
+	 * @param loggedPaths
+	 *        The paths the given log was read for. Only paths within those paths can be analyzed.
+	 * @param revisionsByPath
+	 *        The revisions for which the merge info diff is requested indexed by the path to which
+	 *        the merge info is attached.
+	 */
+	public void analyze(List<LogEntry> log, String[] loggedPaths, Map<String, Set<Long>> revisionsByPath)
+			throws RepositoryException {
+		List<Step> steps = new ArrayList<>();
+		for (Entry<String, Set<Long>> entry : revisionsByPath.entrySet()) {
+			String path = entry.getKey();
+			if (!isLogged(loggedPaths, path)) {
+				continue;
+			}
+			_diffs.put(path, new HashMap<Long, Map<String, List<RevisionRange>>>());
+			plan(log, path, entry.getValue(), steps);
+		}
+
+		Set<Location> locations = new HashSet<>();
+		for (Step step : steps) {
+			if (step.getBefore() != null) {
+				locations.add(step.getBefore());
+			}
+			if (step.getAfter() != null) {
+				locations.add(step.getAfter());
+			}
+		}
+		Map<Location, Map<String, RevisionSet>> values = fetch(locations);
+
+		for (Step step : steps) {
+			Map<String, RevisionSet> after = step.getAfter() == null ? null : value(values, step.getAfter());
+			_diffs.get(step.getPath()).put(step.getRevision(), diff(value(values, step.getBefore()), after));
+		}
+		LOG.log(Level.INFO, "Merge info of " + steps.size() + " revisions analyzed with " + _requests
+			+ " property requests.");
+	}
+
+	/**
+	 * Determines the locations of the merge info values before and after each requested revision of
+	 * the given path.
+	 */
+	private static void plan(List<LogEntry> log, String path, Set<Long> revisions, List<Step> steps) {
+		int remaining = revisions.size();
+		Location lastValue = null;
+		for (LogEntry logEntry : log) {
+			if (remaining == 0) {
+				break;
+			}
+
+			long revision = logEntry.getRevision();
+			Change change = change(logEntry, path);
+			if (change == null) {
+				continue;
+			}
+
+			if (!revisions.contains(revision)) {
+				// Do not request values that are not necessary, but the last value is no longer
+				// valid.
+				lastValue = null;
+				continue;
+			}
+			remaining--;
+
+			Location before;
+			Location after;
+			if (change.isDeleted()) {
+				before = null;
+				after = null;
+			} else {
+				if (change.isCreated()) {
+					before = change.getSource();
+				} else if (lastValue != null) {
+					before = lastValue;
+				} else {
+					before = new Location(path, revision - 1);
+				}
+				after = new Location(path, revision);
+			}
+
+			steps.add(new Step(path, revision, before, after));
+			lastValue = after;
+		}
+	}
+
+	/**
+	 * Requests the merge info of the given locations.
+	 *
+	 * @return The merge info values of the given locations. Locations without merge info may be
+	 *         missing.
+	 */
+	private Map<Location, Map<String, RevisionSet>> fetch(Set<Location> locations) throws RepositoryException {
+		Map<Location, List<Location>> locationsByDirectory = new HashMap<>();
+		for (Location location : locations) {
+			Location directory = new Location(parent(location.getPath()), location.getRevision());
+			List<Location> contents = locationsByDirectory.get(directory);
+			if (contents == null) {
+				contents = new ArrayList<>();
+				locationsByDirectory.put(directory, contents);
+			}
+			contents.add(location);
+		}
+
+		Map<Location, Map<String, RevisionSet>> result = new HashMap<>();
+		for (Entry<Location, List<Location>> entry : locationsByDirectory.entrySet()) {
+			List<Location> contents = entry.getValue();
+			if (contents.size() == 1) {
+				Location location = contents.get(0);
+				result.put(location, mergeInfo(location));
+			} else {
+				mergeInfo(entry.getKey(), result);
+			}
+		}
+		return result;
+	}
+
+	private Map<String, RevisionSet> mergeInfo(Location location) throws RepositoryException {
+		_requests++;
+		Revision revision = Revision.create(location.getRevision());
+		PropertyData data =
+			_client.getProperty(_url.appendPath(location.getPath()), MERGE_INFO_PROPERTY, revision, revision);
+		if (data == null || data.getValue() == null) {
+			return Collections.emptyMap();
+		}
+		return parseMergeInfo(data.getValue().asString());
+	}
+
+	/**
+	 * Requests the merge info of the given directory and all its direct contents with a single
+	 * request.
+	 */
+	private void mergeInfo(Location directory, final Map<Location, Map<String, RevisionSet>> result)
+			throws RepositoryException {
+		_requests++;
+		final long revision = directory.getRevision();
+		_client.getProperty(_url.appendPath(directory.getPath()), MERGE_INFO_PROPERTY, Revision.create(revision),
+			Revision.create(revision), Depth.IMMEDIATES, new PropertyHandler() {
+				@Override
+				public void handleProperty(RepositoryURL url, PropertyData data) {
+					if (data.getValue() == null) {
+						return;
+					}
+					result.put(new Location(path(url), revision), parseMergeInfo(data.getValue().asString()));
+				}
+
+				@Override
+				public void handleProperty(long propertyRevision, PropertyData data) {
+					throw new UnsupportedOperationException("Revision properties not requested.");
+				}
+
+				@Override
+				public void handleProperty(File path, PropertyData data) {
+					throw new UnsupportedOperationException("Working copy properties not requested.");
+				}
+			});
+	}
+
+	/**
+	 * The repository path of the given URL relative to the repository root URL.
+	 */
+	private String path(RepositoryURL url) {
+		String path = trimSlashes(url.getPath());
+		String root = trimSlashes(_url.getPath());
+		if (!root.isEmpty() && path.startsWith(root)) {
+			path = path.substring(root.length());
+		}
+		return path.startsWith("/") ? path : "/" + path;
+	}
+
+	private static String trimSlashes(String path) {
+		int start = 0;
+		while (start < path.length() && path.charAt(start) == '/') {
+			start++;
+		}
+		int stop = path.length();
+		while (stop > start && path.charAt(stop - 1) == '/') {
+			stop--;
+		}
+		return path.substring(start, stop);
+	}
+
+	private static String parent(String path) {
+		int separator = path.lastIndexOf('/');
+		if (separator <= 0) {
+			return "/";
+		}
+		return path.substring(0, separator);
+	}
+
+	private static Map<String, RevisionSet> value(Map<Location, Map<String, RevisionSet>> values,
+			Location location) {
+		if (location == null) {
+			return Collections.emptyMap();
+		}
+		Map<String, RevisionSet> result = values.get(location);
+		if (result == null) {
+			return Collections.emptyMap();
+		}
+		return result;
+	}
+
+	/**
+	 * The merge info diff of the given path in the given revision.
+	 *
+	 * @return Revisions added to the merge info of the given path in the given revision indexed by
+	 *         the merge source path, or <code>null</code> if the given revision has not been
+	 *         analyzed for the given path.
+	 */
+	public Map<String, List<RevisionRange>> getMergeInfoDiff(String path, long revision) {
+		Map<Long, Map<String, List<RevisionRange>>> pathDiffs = _diffs.get(path);
+		if (pathDiffs == null) {
+			return null;
+		}
+		return pathDiffs.get(revision);
+	}
+
+	private static Map<String, List<RevisionRange>> diff(Map<String, RevisionSet> before,
+			Map<String, RevisionSet> after) {
+		Map<String, List<RevisionRange>> result = new HashMap<>();
+		if (after == null) {
+			return result;
+		}
+		for (Entry<String, RevisionSet> entry : after.entrySet()) {
+			String source = entry.getKey();
+			RevisionSet added = entry.getValue();
+			RevisionSet previous = before.get(source);
+			if (previous != null) {
+				added = added.difference(previous);
+			}
+			if (!added.isEmpty()) {
+				result.put(source, added.toRanges());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Parses the value of a <code>svn:mergeinfo</code> property.
+	 *
+	 * <p>
+	 * A value consists of lines of the form <code>/source/path:1-5,7,9-12*</code>.
+	 * Non-inheritable ranges (marked with <code>*</code>) are treated as regular ranges.
+	 * </p>
+	 *
+	 * @return The merged revisions indexed by merge source path.
+	 */
+	public static Map<String, RevisionSet> parseMergeInfo(String value) {
+		Map<String, RevisionSet> result = new HashMap<>();
+		for (String line : value.split("\n")) {
+			line = line.trim();
+			int separator = line.lastIndexOf(':');
+			if (separator < 0) {
+				continue;
+			}
+			String source = line.substring(0, separator);
+			List<RevisionRange> ranges = new ArrayList<>();
+			for (String range : line.substring(separator + 1).split(",")) {
+				range = range.trim();
+				if (range.endsWith("*")) {
+					range = range.substring(0, range.length() - 1);
+				}
+				if (range.isEmpty()) {
+					continue;
+				}
+				int dash = range.indexOf('-');
+				long first;
+				long last;
+				if (dash < 0) {
+					first = Long.parseLong(range);
+					last = first;
+				} else {
+					first = Long.parseLong(range.substring(0, dash));
+					last = Long.parseLong(range.substring(dash + 1));
+				}
+				ranges.add(RevisionRange.create(Revision.create(first - 1), Revision.create(last)));
+			}
+
+			RevisionSet revisions = RevisionSet.create(ranges);
+			RevisionSet existing = result.get(source);
+			result.put(source, existing == null ? revisions : existing.union(revisions));
+		}
+		return result;
+	}
+
+	private static boolean isLogged(String[] loggedPaths, String path) {
+		for (String loggedPath : loggedPaths) {
+			if (isSameOrAncestor(loggedPath, path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * How the node with the given path is changed in the given log entry.
+	 *
+	 * @return The change of the given path, or <code>null</code> if neither the path itself nor one
+	 *         of its ancestors was changed.
+	 */
+	private static Change change(LogEntry logEntry, String path) {
+		Change result = null;
+		int changedLength = -1;
+		for (LogEntryPath changedPath : logEntry.getChangedPaths().values()) {
+			String changed = changedPath.getPath();
+			if (!isSameOrAncestor(changed, path)) {
+				continue;
+			}
+			if (changedPath.getType() == ChangeType.MODIFIED) {
+				if (changed.equals(path) && result == null) {
+					result = Change.MODIFIED;
+				}
+				continue;
+			}
+			if (changed.length() <= changedLength) {
+				// The change of a nearer ancestor takes precedence.
+				continue;
+			}
+			changedLength = changed.length();
+
+			switch (changedPath.getType()) {
+				case DELETED:
+					result = Change.DELETED;
+					break;
+				default:
+					String copyPath = changedPath.getCopyPath();
+					if (copyPath == null) {
+						result = Change.created(null);
+					} else {
+						// The path itself or one of its ancestors was copied.
+						String source = copyPath + path.substring(changed.length());
+						result = Change.created(new Location(source, changedPath.getCopyRevision()));
+					}
+			}
+		}
+		return result;
+	}
+
+	private static boolean isSameOrAncestor(String ancestor, String path) {
+		if (!path.startsWith(ancestor)) {
+			return false;
+		}
+		return path.length() == ancestor.length() || ancestor.endsWith("/") || path.charAt(ancestor.length()) == '/';
+	}
+
+	/**
+	 * A path in a certain revision.
+	 */
+	private static final class Location {
+
+		private final String _path;
+
+		private final long _revision;
+
+		public Location(String path, long revision) {
+			_path = path;
+			_revision = revision;
+		}
+
+		public String getPath() {
+			return _path;
+		}
+
+		public long getRevision() {
+			return _revision;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + _path.hashCode();
+			result = prime * result + (int) (_revision ^ (_revision >>> 32));
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			Location other = (Location) obj;
+			return _revision == other._revision && _path.equals(other._path);
+		}
+
+		@Override
+		public String toString() {
+			return _path + "@" + _revision;
+		}
+	}
+
+	/**
+	 * Change of a path in a revision.
+	 */
+	private static final class Change {
+
+		public static final Change MODIFIED = new Change(false, false, null);
+
+		public static final Change DELETED = new Change(false, true, null);
+
+		private final boolean _created;
+
+		private final boolean _deleted;
+
+		private final Location _source;
+
+		private Change(boolean created, boolean deleted, Location source) {
+			_created = created;
+			_deleted = deleted;
+			_source = source;
+		}
+
+		/**
+		 * A newly created path.
+		 *
+		 * @param source
+		 *        The copy source, <code>null</code> if the path was created without history.
+		 */
+		public static Change created(Location source) {
+			return new Change(true, false, source);
+		}
+
+		public boolean isCreated() {
+			return _created;
+		}
+
+		public boolean isDeleted() {
+			return _deleted;
+		}
+
+		/**
+		 * The location of the merge info before a {@link #isCreated() creation}.
+		 */
+		public Location getSource() {
+			return _source;
+		}
+	}
+
+	/**
+	 * Locations of the merge info before and after an analyzed revision of a path.
+	 */
+	private static final class Step {
+
+		private final String _path;
+
+		private final long _revision;
+
+		private final Location _before;
+
+		private final Location _after;
+
+		public Step(String path, long revision, Location before, Location after) {
+			_path = path;
+			_revision = revision;
+			_before = before;
+			_after = after;
+		}
+
+		public String getPath() {
+			return _path;
+		}
+
+		public long getRevision() {
+			return _revision;
+		}
+
+		/**
+		 * The location of the value before the revision, <code>null</code> if there was no value.
+		 */
+		public Location getBefore() {
+			return _before;
+		}
+
+		/**
+		 * The location of the value after the revision, <code>null</code> if the path was deleted.
+		 */
+		public Location getAfter() {
+			return _after;
+		}
+	}
+
+}
@@ -29,7 +29,7 @@ import com.subcherry.repository.core.RepositoryException;
 import com.subcherry.repository.core.RepositoryURL;
 import com.subcherry.repository.core.Revision;
 import com.subcherry.repository.core.RevisionRange;
-import com.subcherry.repository.core.RevisionRanges;
+import com.subcherry.repository.core.RevisionSet;
 import com.subcherry.repository.core.Target;
 
 public class MergeInfoTester {
@@ -44,6 +44,10 @@ public class MergeInfoTester {
 
 	private final Map<String, MergeInfo> _moduleMergeInfos = new HashMap<>();
 
+	private final Map<String, Map<RepositoryURL, RevisionSet>> _mergedRevisions = new HashMap<>();
+
+	private MergeInfoHistory _history;
+
 	public MergeInfoTester(ClientManager clientManager, RepositoryURL url, File workspaceRoot, Revision pegRevision) {
 		_clientManager = clientManager;
 		_url = url;
@@ -51,21 +55,34 @@ public class MergeInfoTester {
 		_pegRevision = pegRevision;
 	}
 
+	/**
+	 * Sets the {@link MergeInfoHistory} with pre-computed merge info diffs.
+	 * 
+	 * <p>
+	 * Merge info diffs not found in the given history are requested from the server.
+	 * </p>
+	 */
+	public void setHistory(MergeInfoHistory history) {
+		_history = history;
+	}
+
 	public boolean isAlreadyMerged(long revision, String modulePath, String moduleName) throws RepositoryException {
-		MergeInfo moduleMergeInfo = lookupMergeInfo(moduleName);
-		Target moduleUrl = Target.fromURL(_url.appendPath(modulePath), _pegRevision);
 		Map<String, List<RevisionRange>> mergeInfoDiff =
-			_clientManager.getClient().mergeInfoDiff(moduleUrl, revision);
+			_history == null ? null : _history.getMergeInfoDiff(modulePath, revision);
+		if (mergeInfoDiff == null) {
+			Target moduleUrl = Target.fromURL(_url.appendPath(modulePath), _pegRevision);
+			mergeInfoDiff = _clientManager.getClient().mergeInfoDiff(moduleUrl, revision);
+		}
 
 		for (Entry<String, List<RevisionRange>> mergeEntry : mergeInfoDiff.entrySet()) {
 			String mergedModulePath = mergeEntry.getKey();
 			RepositoryURL mergedModuleUrl = _url.appendPath(mergedModulePath);
 
-			List<RevisionRange> transitivelyMergedRevisions = moduleMergeInfo.getRevisions(mergedModuleUrl);
+			RevisionSet transitivelyMergedRevisions = getMergedRevisions(moduleName, mergedModuleUrl);
 			if (transitivelyMergedRevisions == null) {
 				continue;
 			}
-			if (RevisionRanges.containsAll(transitivelyMergedRevisions, mergeEntry.getValue())) {
+			if (transitivelyMergedRevisions.containsAll(RevisionSet.create(mergeEntry.getValue()))) {
 				// This module has already been merged.
 				return true;
 			}
@@ -73,6 +90,28 @@ public class MergeInfoTester {
 		return false;
 	}
 
+	/**
+	 * The revisions merged from the given source into the given module of the workspace.
+	 * 
+	 * @return The merged revisions, or <code>null</code>, if the module has no merge info for the
+	 *         given source.
+	 */
+	public RevisionSet getMergedRevisions(String moduleName, RepositoryURL mergeSrcUrl) throws RepositoryException {
+		Map<RepositoryURL, RevisionSet> moduleRevisions = _mergedRevisions.get(moduleName);
+		if (moduleRevisions == null) {
+			moduleRevisions = new HashMap<>();
+			_mergedRevisions.put(moduleName, moduleRevisions);
+		}
+		if (moduleRevisions.containsKey(mergeSrcUrl)) {
+			return moduleRevisions.get(mergeSrcUrl);
+		}
+
+		List<RevisionRange> ranges = lookupMergeInfo(moduleName).getRevisions(mergeSrcUrl);
+		RevisionSet result = ranges == null ? null : RevisionSet.create(ranges);
+		moduleRevisions.put(mergeSrcUrl, result);
+		return result;
+	}
+
 	public MergeInfo lookupMergeInfo(String moduleName) throws RepositoryException {
 		MergeInfo moduleMergeInfo;
 		{
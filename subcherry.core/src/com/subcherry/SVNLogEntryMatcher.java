@@ -29,7 +29,10 @@ import com.subcherry.repository.core.RepositoryException;
  */
 public abstract class SVNLogEntryMatcher implements LogEntryHandler {
 	
-	private final class AllEntries extends SVNLogEntryMatcher {
+	/**
+	 * {@link SVNLogEntryMatcher} collecting all log entries.
+	 */
+	public static final class AllEntries extends SVNLogEntryMatcher {
 		@Override
 		public boolean matches(LogEntry logEntry) {
 			return true;
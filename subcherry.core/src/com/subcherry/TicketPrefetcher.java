@@ -0,0 +1,103 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.subcherry;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.subcherry.repository.command.log.LogEntryHandler;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.trac.TicketStub;
+import com.subcherry.trac.TracConnection;
+import com.subcherry.utils.Utils;
+
+/**
+ * {@link LogEntryHandler} that starts fetching the tickets referenced from log messages in the
+ * background while the log is still being read.
+ *
+ * <p>
+ * Ticket ids are collected in batches, each batch is fetched by a bounded pool of concurrent Trac
+ * requests. Later lookups through {@link TicketStub} wait for the background fetch of the
+ * requested ticket.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+public class TicketPrefetcher implements LogEntryHandler {
+
+	private static final int BATCH_SIZE = 20;
+
+	private final TracConnection _trac;
+
+	private final ExecutorService _executor;
+
+	private final Set<String> _seen = new HashSet<>();
+
+	private List<String> _batch = new ArrayList<>();
+
+	/**
+	 * Creates a {@link TicketPrefetcher}.
+	 *
+	 * @param trac
+	 *        The connection to fetch tickets from.
+	 * @param threads
+	 *        The maximum number of concurrent Trac requests.
+	 */
+	public TicketPrefetcher(TracConnection trac, int threads) {
+		_trac = trac;
+		_executor = Executors.newFixedThreadPool(threads);
+	}
+
+	@Override
+	public void handleLogEntry(LogEntry logEntry) {
+		String ticketId = Utils.getTicketId(logEntry.getMessage());
+		if (ticketId == null || !_seen.add(ticketId)) {
+			return;
+		}
+		_batch.add(ticketId);
+		if (_batch.size() >= BATCH_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Starts fetching all collected ticket ids.
+	 */
+	public void flush() {
+		if (_batch.isEmpty()) {
+			return;
+		}
+		TicketStub.prefetchAsync(_executor, _trac, _batch);
+		_batch = new ArrayList<>();
+	}
+
+	/**
+	 * Starts fetching the remaining ticket ids and releases the fetch pool after all pending
+	 * fetches have completed.
+	 */
+	public void close() {
+		flush();
+		_executor.shutdown();
+	}
+
+}
@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import com.subcherry.CommitConfig;
 import com.subcherry.MergeCommitHandler;
@@ -46,6 +47,17 @@ public class Commit {
 
 	private static final NodeProperties NO_ADDITIONAL_PROPERTIES = null;
 
+	/**
+	 * Error codes of errors reporting an out of date workspace.
+	 * 
+	 * <ul>
+	 * <li>E155011: Working copy item out of date.</li>
+	 * <li>E160028: Transaction out of date.</li>
+	 * <li>E170004: Item out of date.</li>
+	 * </ul>
+	 */
+	private static final Pattern OUT_OF_DATE_CODE = Pattern.compile("\\bE(155011|160028|170004)\\b");
+
 	private final CommitConfig _config;
 
 	private final LogEntry _logEntry;
@@ -84,11 +96,43 @@ public class Commit {
 	}
 
 	public CommitInfo run(CommitContext context) throws RepositoryException {
-		CommitInfo commitInfo = doCommit(context.commitClient);
-		updateToHEAD(context.client);
+		if (!_config.getUpdateCommittedOnly()) {
+			CommitInfo commitInfo = doCommit(context.commitClient);
+			updateToHEAD(context.client);
+			return commitInfo;
+		}
+
+		CommitInfo commitInfo;
+		try {
+			commitInfo = doCommit(context.commitClient);
+		} catch (RepositoryException ex) {
+			if (!isOutOfDate(ex)) {
+				throw ex;
+			}
+			// Only committed paths have been updated after previous commits.
+			updateToHEAD(context.client);
+			commitInfo = doCommit(context.commitClient);
+		}
+		updateCommitted(context.client, commitInfo);
 		return commitInfo;
 	}
 
+	/**
+	 * Whether the given exception reports that the workspace is out of date.
+	 */
+	static boolean isOutOfDate(Throwable ex) {
+		for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+			String message = cause.getMessage();
+			if (message == null) {
+				continue;
+			}
+			if (OUT_OF_DATE_CODE.matcher(message).find()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	CommitInfo doCommit(Client commitClient) throws RepositoryException {
 		HashSet<File> commitPathes = new HashSet<File>();
 		commitPathes.addAll(getAffectedPaths());
@@ -114,6 +158,47 @@ public class Commit {
 		client.update(paths, revision, depth, allowUnversionedObstructions, depthIsSticky);
 	}
 
+	/**
+	 * Updates the committed resources and their parent directories (up to the module) to the new
+	 * revision.
+	 */
+	void updateCommitted(Client client, CommitInfo commitInfo) throws RepositoryException {
+		long newRevision = commitInfo.getNewRevision();
+		if (newRevision <= 0) {
+			// Nothing committed.
+			return;
+		}
+
+		Set<File> paths = new HashSet<>();
+		for (String resource : _touchedResources) {
+			File file = new File(getWorkspaceRoot(), resource);
+			if (file.exists()) {
+				paths.add(file);
+			}
+
+			String parent = resource;
+			while (true) {
+				int separatorIndex = parent.lastIndexOf('/');
+				if (separatorIndex <= 0) {
+					break;
+				}
+				parent = parent.substring(0, separatorIndex);
+				if (!paths.add(new File(getWorkspaceRoot(), parent))) {
+					// All further parents already added.
+					break;
+				}
+			}
+		}
+		if (paths.isEmpty()) {
+			return;
+		}
+
+		boolean depthIsSticky = false;
+		boolean allowUnversionedObstructions = false;
+		client.update(paths.toArray(ArrayUtil.EMPTY_FILE_ARRAY), Revision.create(newRevision), Depth.EMPTY,
+			allowUnversionedObstructions, depthIsSticky);
+	}
+
 	private List<File> getTouchedModules() {
 		List<File> files = new ArrayList<File>();
 		for (String resource : _touchedResources) {
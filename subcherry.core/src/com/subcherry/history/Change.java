@@ -23,7 +23,7 @@ import com.subcherry.utils.Utils;
 
 public class Change {
 
-	private final Long _revision;
+	private final long _revision;
 
 	private final String _author;
 
@@ -31,14 +31,23 @@ public class Change {
 
 	private final String _message;
 
-	Change(Long revision, String author, Date date, String message) {
+	private final String _key;
+
+	private final int _keyId;
+
+	private final String _ticketId;
+
+	Change(long revision, String author, Date date, String message, String key, int keyId) {
 		_revision = revision;
 		_author = author;
 		_date = date;
 		_message = message;
+		_key = key;
+		_keyId = keyId;
+		_ticketId = message == null ? null : Utils.getTicketId(message);
 	}
 
-	public Long getRevision() {
+	public long getRevision() {
 		return _revision;
 	}
 
@@ -54,8 +63,32 @@ public class Change {
 		return _message;
 	}
 
+	/**
+	 * Key identifying equivalent changes on different branches.
+	 */
 	public String getKey() {
-		String message = getMessage();
+		return _key;
+	}
+
+	/**
+	 * Number identifying the {@link #getKey() key} of this change within its {@link History}.
+	 */
+	int getKeyId() {
+		return _keyId;
+	}
+
+	/**
+	 * The ticket ID referenced from the {@link #getMessage() message}, or <code>null</code>, if the
+	 * message does not reference a ticket.
+	 */
+	public String getTicketId() {
+		return _ticketId;
+	}
+
+	static String computeKey(String message) {
+		if (message == null) {
+			return "";
+		}
 		String detailMessage = Utils.getDetailMessage(message);
 		if (detailMessage == null) {
 			return normalize(message);
@@ -25,10 +25,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import com.subcherry.repository.core.LogEntry;
 import com.subcherry.history.Node.Kind;
-import com.subcherry.utils.Utils;
 
 public class DependencyBuilder {
 
@@ -72,6 +73,20 @@ public class DependencyBuilder {
 			}
 		}
 
+		/**
+		 * Adds all requirements of the given {@link Dependency} of the same {@link Change}.
+		 */
+		void addAll(Dependency other) {
+			for (Map.Entry<Change, Set<Node>> entry : other._requiredChanges.entrySet()) {
+				Set<Node> nodes = _requiredChanges.get(entry.getKey());
+				if (nodes == null) {
+					_requiredChanges.put(entry.getKey(), entry.getValue());
+				} else {
+					nodes.addAll(entry.getValue());
+				}
+			}
+		}
+
 		/**
 		 * Required {@link Change}s for {@link #getChange()} mapped to the {@link Node}s where
 		 * conflicts are expected, if the requirements are not fulfilled (the dependencies are not
@@ -91,12 +106,25 @@ public class DependencyBuilder {
 
 	private Set<String> _modules;
 
+	private int _parallelism = Runtime.getRuntime().availableProcessors();
+
 	public DependencyBuilder(String sourceBranch, String targetBranch, Set<String> modules) {
 		_sourceBranch = sourceBranch;
 		_targetBranch = targetBranch;
 		_modules = modules;
 	}
 
+	/**
+	 * Sets the number of threads analyzing source nodes concurrently.
+	 * 
+	 * <p>
+	 * With a value of <code>1</code>, the analysis is done in the calling thread.
+	 * </p>
+	 */
+	public void setParallelism(int parallelism) {
+		_parallelism = parallelism;
+	}
+
 	public void analyzeConflicts(History history, List<LogEntry> mergeLog) {
 		history.expandContents(_sourceBranch);
 		history.expandContents(_targetBranch);
@@ -108,20 +136,24 @@ public class DependencyBuilder {
 
 		Set<String> alreadyPortedTicketIds = new HashSet<>();
 		for (Change change : targetChanges) {
-			String id = Utils.getTicketId(change.getMessage());
+			String id = change.getTicketId();
 			if (id != null) {
 				alreadyPortedTicketIds.add(id);
 			}
 		}
 
-		Map<Long, Change> mergedChanges = new HashMap<>();
+		Set<Long> mergedRevisions = new HashSet<>();
 		for (LogEntry logEntry : mergeLog) {
 			Change change = history.getChange(logEntry.getRevision());
-			mergedChanges.put(change.getRevision(), change);
+			mergedRevisions.add(change.getRevision());
 
-			alreadyPortedTicketIds.remove(Utils.getTicketId(change.getMessage()));
+			alreadyPortedTicketIds.remove(change.getTicketId());
 		}
 
+		// Note: Looking up target nodes may create implicit nodes in the history. Therefore, all
+		// lookups are done before the analysis is distributed among worker threads.
+		List<Node> sourceNodes = new ArrayList<>();
+		List<Node> targetNodes = new ArrayList<>();
 		int sourcePrefixLength = _sourceBranch.length() + 1;
 		for (Node sourceNode : fileNodes(history.getNodes(_sourceBranch))) {
 			String path = sourceNode.getPath();
@@ -138,42 +170,118 @@ public class DependencyBuilder {
 			}
 
 			String targetPath = _targetBranch + path.substring(_sourceBranch.length());
-			Node targetNode = history.getCurrentNode(sourceNode.getKind(), targetPath);
+			sourceNodes.add(sourceNode);
+			targetNodes.add(history.getCurrentNode(sourceNode.getKind(), targetPath));
+		}
 
-			Map<String, Change> targetNodeChanges;
-			if (targetNode == null) {
-				// Does not exist in target branch, all change sets that are not ported are in
-				// conflict.
-				targetNodeChanges = Collections.emptyMap();
-			} else {
-				targetNodeChanges = new HashMap<>();
-				for (Change change : targetNode.getChanges()) {
-					String key = change.getKey();
-					if (key != null) {
-						targetNodeChanges.put(key, change);
-					}
-				}
+		NodeAnalysis analysis =
+			new NodeAnalysis(sourceNodes, targetNodes, mergedRevisions, alreadyPortedTicketIds, 0, sourceNodes.size());
+		Map<Change, Dependency> dependencies;
+		if (_parallelism > 1 && sourceNodes.size() > NodeAnalysis.THRESHOLD) {
+			ForkJoinPool pool = new ForkJoinPool(_parallelism);
+			try {
+				dependencies = pool.invoke(analysis);
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			dependencies = analysis.analyze();
+		}
+		merge(_dependencies, dependencies);
+	}
+
+	/**
+	 * Analyzes a range of source nodes.
+	 * 
+	 * <p>
+	 * Large ranges are split and analyzed in parallel, each part computes its own dependency map.
+	 * Partial results are merged in the order of the source nodes.
+	 * </p>
+	 */
+	private static final class NodeAnalysis extends RecursiveTask<Map<Change, Dependency>> {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Number of source nodes below which a range is not split further.
+		 */
+		static final int THRESHOLD = 512;
+
+		private final List<Node> _sourceNodes;
+
+		private final List<Node> _targetNodes;
+
+		private final Set<Long> _mergedRevisions;
+
+		private final Set<String> _alreadyPortedTicketIds;
+
+		private final int _start;
+
+		private final int _stop;
+
+		public NodeAnalysis(List<Node> sourceNodes, List<Node> targetNodes, Set<Long> mergedRevisions,
+				Set<String> alreadyPortedTicketIds, int start, int stop) {
+			_sourceNodes = sourceNodes;
+			_targetNodes = targetNodes;
+			_mergedRevisions = mergedRevisions;
+			_alreadyPortedTicketIds = alreadyPortedTicketIds;
+			_start = start;
+			_stop = stop;
+		}
+
+		@Override
+		protected Map<Change, Dependency> compute() {
+			if (_stop - _start <= THRESHOLD) {
+				return analyze();
 			}
 
+			int middle = (_start + _stop) >>> 1;
+			NodeAnalysis first = part(_start, middle);
+			NodeAnalysis second = part(middle, _stop);
+			second.fork();
+			Map<Change, Dependency> result = first.compute();
+			merge(result, second.join());
+			return result;
+		}
+
+		/**
+		 * Analyzes the complete range in the calling thread.
+		 */
+		Map<Change, Dependency> analyze() {
+			Map<Change, Dependency> result = new HashMap<>();
+			for (int n = _start; n < _stop; n++) {
+				analyzeNode(result, _sourceNodes.get(n), _targetNodes.get(n));
+			}
+			return result;
+		}
+
+		private NodeAnalysis part(int start, int stop) {
+			return new NodeAnalysis(_sourceNodes, _targetNodes, _mergedRevisions, _alreadyPortedTicketIds, start,
+				stop);
+		}
+
+		private void analyzeNode(Map<Change, Dependency> dependencies, Node sourceNode, Node targetNode) {
 			List<Change> merges = new ArrayList<>();
-			List<Change> dependencies = new ArrayList<>();
+			List<Change> dependencyList = new ArrayList<>();
 			for (Change sourceChange : sourceNode.getChanges()) {
-				if (mergedChanges.keySet().contains(sourceChange.getRevision())) {
+				if (_mergedRevisions.contains(sourceChange.getRevision())) {
 					merges.add(sourceChange);
-					if (!dependencies.isEmpty()) {
-						Dependency dependency = mkDependency(sourceChange);
-						dependency.add(copy(dependencies), sourceNode);
+					if (!dependencyList.isEmpty()) {
+						Dependency dependency = mkDependency(dependencies, sourceChange);
+						dependency.add(copy(dependencyList), sourceNode);
 					}
 				} else {
 					// The change is not being merged.
-					if (!targetNodeChanges.containsKey(sourceChange.getKey())) {
+					// Note: If the node does not exist in target branch, all change sets that are not
+					// ported are in conflict.
+					if (targetNode == null || !targetNode.hasEquivalentChange(sourceChange)) {
 						// There is no equivalent change on the target node.
 
 						// Add the change to the dependency list. If there are following changes
 						// being merged, those are marked as depending on this change.
-						dependencies.add(sourceChange);
+						dependencyList.add(sourceChange);
 
-						if (alreadyPortedTicketIds.contains(Utils.getTicketId(sourceChange.getMessage()))) {
+						if (_alreadyPortedTicketIds.contains(sourceChange.getTicketId())) {
 							// The change is expected to occur on the target node, but does not.
 							// This might be the case, because it only affects functionality that
 							// is first introduced with the changes being currently merged.
@@ -181,7 +289,7 @@ public class DependencyBuilder {
 							// All changes before the missing change are potentially require
 							// re-applying the missing change.
 							for (Change merged : merges) {
-								mkDependency(merged).add(Collections.singleton(sourceChange), sourceNode);
+								mkDependency(dependencies, merged).add(Collections.singleton(sourceChange), sourceNode);
 							}
 						}
 					}
@@ -213,13 +321,27 @@ public class DependencyBuilder {
 		return new ArrayList<>(values);
 	}
 
-	private Dependency mkDependency(Change change) {
-		Dependency result = _dependencies.get(change);
+	private static Dependency mkDependency(Map<Change, Dependency> dependencies, Change change) {
+		Dependency result = dependencies.get(change);
 		if (result == null) {
 			result = new Dependency(change);
-			_dependencies.put(change, result);
+			dependencies.put(change, result);
 		}
 		return result;
 	}
 
+	/**
+	 * Adds all dependencies of the given partial result to the given dependencies.
+	 */
+	private static void merge(Map<Change, Dependency> dependencies, Map<Change, Dependency> partial) {
+		for (Dependency dependency : partial.values()) {
+			Dependency existing = dependencies.get(dependency.getChange());
+			if (existing == null) {
+				dependencies.put(dependency.getChange(), dependency);
+			} else {
+				existing.addAll(dependency);
+			}
+		}
+	}
+
 }
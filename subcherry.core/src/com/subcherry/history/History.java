@@ -17,25 +17,74 @@
  */
 package com.subcherry.history;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeMap;
 
 import com.subcherry.history.Node.Kind;
 
+/**
+ * Consolidated history of all nodes of a repository.
+ * 
+ * <p>
+ * {@link Node}s are indexed in a trie of path segments, where each segment name is stored only
+ * once. {@link Change}s are stored in arrays sorted by revision. A {@link Node} references its
+ * changes by revision only.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
 public class History {
 
-	private Map<Long, Change> _changesByRevision = new HashMap<>();
+	private static final long[] NO_REVISIONS = {};
+
+	private static final Change[] NO_CHANGES = {};
+
+	/**
+	 * The revisions of all {@link Change}s in ascending order.
+	 */
+	private long[] _revisions = NO_REVISIONS;
+
+	/**
+	 * The {@link Change}s in the order of {@link #_revisions}.
+	 */
+	private Change[] _changes = NO_CHANGES;
+
+	private int _changeCount;
 
-	private TreeMap<String, Node> _nodesByPath = new TreeMap<>();
+	private final PathEntry _root = new PathEntry(null, null);
+
+	/**
+	 * Shared instances of all path segment names.
+	 */
+	private final Map<String, String> _names = new HashMap<>();
+
+	/**
+	 * Shared instances of all change keys, see {@link Change#getKey()}.
+	 */
+	private final Map<String, Change> _changesByKey = new HashMap<>();
+
+	/**
+	 * Contents already {@link #expandContents(String, long) expanded}, indexed by path and revision.
+	 * 
+	 * <p>
+	 * Cleared whenever a change or node operation is added. Nodes created during an expansion only
+	 * represent history that is already recorded and keep the expansions valid.
+	 * </p>
+	 */
+	private final Map<Expansion, Collection<Node>> _expansions = new HashMap<>();
 
 	private final long _startRevision;
 
@@ -50,14 +99,68 @@ public class History {
 		return _startRevision;
 	}
 
+	/**
+	 * The last revision with a recorded {@link Change}, or the revision before the
+	 * {@link #getStartRevision() start revision}, if no change has been recorded yet.
+	 */
+	public long getLastRevision() {
+		if (_changeCount == 0) {
+			return _startRevision - 1;
+		}
+		return _revisions[_changeCount - 1];
+	}
+
+	PathEntry getRoot() {
+		return _root;
+	}
+
+	PathEntry mkChild(PathEntry parent, String name) {
+		return parent.mkChild(name(name));
+	}
+
 	public Change createChange(long revision, String author, Date date, String message) {
-		Change result = new Change(revision, author, date, message);
-		Change clash = _changesByRevision.put(result.getRevision(), result);
-		assert clash == null : "Duplicate revision '" + result.getRevision() + "'.";
+		_expansions.clear();
+
+		String key = Change.computeKey(message);
+		Change equivalent = _changesByKey.get(key);
+		Change result;
+		if (equivalent == null) {
+			result = new Change(revision, author, date, message, key, _changesByKey.size());
+			_changesByKey.put(key, result);
+		} else {
+			result = new Change(revision, author, date, message, equivalent.getKey(), equivalent.getKeyId());
+		}
+
+		// Note: Changes are created in ascending order, when reading the log in forward direction.
+		int index;
+		if (_changeCount == 0 || _revisions[_changeCount - 1] < revision) {
+			index = _changeCount;
+		} else {
+			index = indexOf(revision);
+			assert index < 0 : "Duplicate revision '" + revision + "'.";
+			index = -index - 1;
+		}
+
+		if (_changeCount == _revisions.length) {
+			int capacity = Math.max(16, 2 * _changeCount);
+			_revisions = Arrays.copyOf(_revisions, capacity);
+			_changes = Arrays.copyOf(_changes, capacity);
+		}
+		System.arraycopy(_revisions, index, _revisions, index + 1, _changeCount - index);
+		System.arraycopy(_changes, index, _changes, index + 1, _changeCount - index);
+		_revisions[index] = revision;
+		_changes[index] = result;
+		_changeCount++;
 		return result;
 	}
 
+	private int indexOf(long revision) {
+		return Arrays.binarySearch(_revisions, 0, _changeCount, revision);
+	}
+
 	public void addedNode(Kind kind, String path, Change change, String copyPath, long copyRevision) {
+		_expansions.clear();
+
 		Node existingNode = getLatestNode(path);
 		if (existingNode != null && existingNode.isAlive()) {
 			// If not the complete history is read (filtered for some paths), it is possible that a
@@ -77,11 +180,13 @@ public class History {
 	}
 
 	public void modifiedNode(Kind kind, String path, Change change) {
+		_expansions.clear();
 		Node node = mkNode(kind, path, Node.HEAD);
 		node.modify(change);
 	}
 
 	public void deletedNode(Kind kind, String path, Change change) {
+		_expansions.clear();
 		Node node = mkNode(kind, path, Node.HEAD);
 		markDeleted(node, change);
 	}
@@ -91,16 +196,9 @@ public class History {
 
 		if (node.getKind() != Kind.FILE) {
 			// Delete children.
-			String dirPrefix = dirPrefix(node.getPath());
-			for (Entry<String, Node> entry : _nodesByPath.tailMap(dirPrefix, false).entrySet()) {
-				if (!entry.getKey().startsWith(dirPrefix)) {
-					// All children of a directory have a path that is alphabetically larger than
-					// the directory prefix of its parent directory.
-					break;
-				}
-
-				// Delete child.
-				Node child = entry.getValue();
+			List<Node> contents = new ArrayList<>();
+			node.getEntry().addContentNodes(contents);
+			for (Node child : contents) {
 				if (child.isAlive()) {
 					child.delete(change);
 				}
@@ -229,15 +327,16 @@ public class History {
 	}
 
 	private Node createNode(Kind kind, String path, long revMin, long revMax) {
-		Node node = new Node(kind, path, revMin, revMax);
+		Node node = new Node(this, kind, mkEntry(path), revMin, revMax);
 		enterNode(node);
 		return node;
 	}
 
 	private void enterNode(Node node) throws AssertionError {
-		Node latest = _nodesByPath.get(node.getPath());
+		PathEntry entry = node.getEntry();
+		Node latest = entry.getLatest();
 		if (latest == null) {
-			_nodesByPath.put(node.getPath(), node);
+			entry.setLatest(node);
 			return;
 		}
 
@@ -264,7 +363,7 @@ public class History {
 		// Insert after latest.
 		node.setBefore(latest);
 		if (later == null) {
-			_nodesByPath.put(node.getPath(), node);
+			entry.setLatest(node);
 		} else {
 			later.setBefore(node);
 		}
@@ -276,11 +375,60 @@ public class History {
 	}
 
 	private Node getLatestNode(String path) {
-		return _nodesByPath.get(path);
+		PathEntry entry = getEntry(path);
+		if (entry == null) {
+			return null;
+		}
+		return entry.getLatest();
+	}
+
+	/**
+	 * The trie entry for the given path, or <code>null</code> if no node with the given path or a
+	 * path below has been recorded.
+	 */
+	private PathEntry getEntry(String path) {
+		PathEntry entry = _root;
+		int start = 0;
+		while (true) {
+			int end = path.indexOf('/', start);
+			if (end < 0) {
+				return entry.getChild(path, start, path.length());
+			}
+			entry = entry.getChild(path, start, end);
+			if (entry == null) {
+				return null;
+			}
+			start = end + 1;
+		}
+	}
+
+	private PathEntry mkEntry(String path) {
+		PathEntry entry = _root;
+		int start = 0;
+		while (true) {
+			int end = path.indexOf('/', start);
+			if (end < 0) {
+				return entry.mkChild(name(path.substring(start)));
+			}
+			entry = entry.mkChild(name(path.substring(start, end)));
+			start = end + 1;
+		}
+	}
+
+	private String name(String name) {
+		String shared = _names.get(name);
+		if (shared == null) {
+			_names.put(name, name);
+			return name;
+		}
+		return shared;
 	}
 
+	/**
+	 * Read-only view of all {@link Change}s indexed by revision.
+	 */
 	public Map<Long, Change> getChangesByRevision() {
-		return _changesByRevision;
+		return new ChangesByRevision();
 	}
 
 	public Collection<Node> expandContents(String path) {
@@ -288,7 +436,25 @@ public class History {
 	}
 
 	public Collection<Node> expandContents(String path, long revision) {
+		return Collections.unmodifiableCollection(expand(path, revision));
+	}
+
+	/**
+	 * Expands the contents of the given path.
+	 * 
+	 * <p>
+	 * Results are kept in {@link #_expansions} until the history is extended.
+	 * </p>
+	 */
+	private Collection<Node> expand(String path, long revision) {
+		Expansion key = new Expansion(path, revision);
+		Collection<Node> expanded = _expansions.get(key);
+		if (expanded != null) {
+			return expanded;
+		}
+
 		Set<Node> result = new HashSet<>();
+		PathEntry entry = getEntry(path);
 		for (Node currentNode : reverse(getNodes(path))) {
 			Node nodeInRev = backToRevision(currentNode, revision);
 			if (nodeInRev == null) {
@@ -298,11 +464,11 @@ public class History {
 
 			if (nodeInRev.getKind() != Kind.FILE) {
 				Node copyNode = nodeInRev.getCopyNode();
-				if (copyNode != null) {
+				if (copyNode != null && !isCopiedWithParent(entry, nodeInRev, revision)) {
 					String copyPath = copyNode.getPath();
 					int copyPathLength = copyPath.length();
 
-					Collection<Node> expandedNodes = expandContents(copyPath, nodeInRev.getCopyRevision());
+					Collection<Node> expandedNodes = expand(copyPath, nodeInRev.getCopyRevision());
 					for (Node expandedNode : expandedNodes) {
 						String expandedPath = expandedNode.getPath();
 						if (expandedPath.length() > copyPathLength) {
@@ -318,9 +484,43 @@ public class History {
 				}
 			}
 		}
+		_expansions.put(key, result);
 		return result;
 	}
 
+	/**
+	 * Whether the given node was copied together with its parent directory, which is also part of
+	 * the expanded contents.
+	 * 
+	 * <p>
+	 * The expanded contents of the node's copy source are a subset of the expanded contents of the
+	 * parent's copy source. Therefore, the expansion of the parent already covers the node.
+	 * </p>
+	 * 
+	 * @param expandedEntry
+	 *        The entry of the path being expanded.
+	 */
+	private boolean isCopiedWithParent(PathEntry expandedEntry, Node node, long revision) {
+		PathEntry entry = node.getEntry();
+		if (entry == expandedEntry) {
+			return false;
+		}
+		Node parent = entry.getParent().getLatest();
+		if (parent == null) {
+			return false;
+		}
+		parent = backToRevision(parent, revision);
+		if (parent == null) {
+			return false;
+		}
+		Node parentCopy = parent.getCopyNode();
+		if (parentCopy == null || parent.getCopyRevision() != node.getCopyRevision()) {
+			return false;
+		}
+		PathEntry copyEntry = node.getCopyNode().getEntry();
+		return copyEntry.getParent() == parentCopy.getEntry() && copyEntry.getName().equals(entry.getName());
+	}
+
 	private static <T> List<T> reverse(List<T> list) {
 		Collections.reverse(list);
 		return list;
@@ -329,7 +529,7 @@ public class History {
 	public List<Node> getNodes(String path) {
 		ArrayList<Node> result = new ArrayList<>();
 
-		Node node = _nodesByPath.get(path);
+		Node node = getLatestNode(path);
 		if (node != null) {
 			result.add(node);
 		}
@@ -340,42 +540,113 @@ public class History {
 	}
 
 	private void addContentNodes(Collection<Node> result, String path) {
-		String dirPrefix = dirPrefix(path);
-		for (Entry<String, Node> entry : _nodesByPath.tailMap(dirPrefix, false).entrySet()) {
-			if (!entry.getKey().startsWith(dirPrefix)) {
-				break;
-			}
+		int pathLength = path.length();
+		if (pathLength > 0 && path.charAt(pathLength - 1) == '/') {
+			// Note: Directory nodes are not defined with a path ending with the '/' character.
+			path = path.substring(0, pathLength - 1);
+		}
+		PathEntry entry = getEntry(path);
+		if (entry != null) {
+			entry.addContentNodes(result);
+		}
+	}
 
-			result.add(entry.getValue());
+	public Change getChange(long revision) {
+		int index = indexOf(revision);
+		if (index < 0) {
+			throw new IllegalArgumentException("No such revision '" + revision + "'.");
 		}
+		return _changes[index];
 	}
 
 	/**
-	 * The path prefix, all content nodes of a given path start with.
-	 * 
-	 * <p>
-	 * Note: This is a workaround for not defining directory nodes having a path ending with the '/'
-	 * character.
-	 * </p>
-	 * 
-	 * @param path
-	 *        The parent path.
-	 * @return The path prefix of all content nodes.
+	 * Key of an expansion of the contents of a path in a revision.
 	 */
-	private static String dirPrefix(String path) {
-		int pathLength = path.length();
-		if (pathLength > 0 && path.charAt(pathLength - 1) == '/') {
-			return path;
+	private static final class Expansion {
+
+		private final String _path;
+
+		private final long _revision;
+
+		public Expansion(String path, long revision) {
+			_path = path;
+			_revision = revision;
+		}
+
+		@Override
+		public int hashCode() {
+			return _path.hashCode() * 31 + (int) (_revision ^ (_revision >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Expansion)) {
+				return false;
+			}
+			Expansion other = (Expansion) obj;
+			return _revision == other._revision && _path.equals(other._path);
 		}
-		return path + '/';
 	}
 
-	public Change getChange(long revision) {
-		Change result = _changesByRevision.get(revision);
-		if (result == null) {
-			throw new IllegalArgumentException("No such revision '" + revision + "'.");
+	private final class ChangesByRevision extends AbstractMap<Long, Change> {
+
+		@Override
+		public int size() {
+			return _changeCount;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Change get(Object key) {
+			if (!(key instanceof Long)) {
+				return null;
+			}
+			int index = indexOf(((Long) key).longValue());
+			if (index < 0) {
+				return null;
+			}
+			return _changes[index];
+		}
+
+		@Override
+		public Set<Entry<Long, Change>> entrySet() {
+			return new AbstractSet<Entry<Long, Change>>() {
+				@Override
+				public int size() {
+					return _changeCount;
+				}
+
+				@Override
+				public Iterator<Entry<Long, Change>> iterator() {
+					return new Iterator<Entry<Long, Change>>() {
+						private int _index;
+
+						@Override
+						public boolean hasNext() {
+							return _index < _changeCount;
+						}
+
+						@Override
+						public Entry<Long, Change> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							int index = _index++;
+							return new SimpleImmutableEntry<>(_revisions[index], _changes[index]);
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+			};
 		}
-		return result;
 	}
 
 }
\ No newline at end of file
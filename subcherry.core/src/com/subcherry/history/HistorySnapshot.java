@@ -0,0 +1,348 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.subcherry.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.subcherry.Globals;
+import com.subcherry.history.Node.Kind;
+
+/**
+ * Binary snapshot of a {@link History}.
+ *
+ * <p>
+ * A snapshot is annotated with the {@link History#getLastRevision() last revision} of the stored
+ * history and a key describing the logged paths. A loaded history is continued by passing only
+ * log entries after its last revision to a {@link HistroyBuilder}.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+public class HistorySnapshot {
+
+	private static final Logger LOG = Globals.logger(HistorySnapshot.class);
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final Kind[] KINDS = Kind.values();
+
+	/**
+	 * Loads a {@link History} snapshot.
+	 *
+	 * @param file
+	 *        The snapshot file.
+	 * @param key
+	 *        The key describing the logged paths the history was built from.
+	 * @param startRevision
+	 *        The required start revision of the history.
+	 * @return The loaded history, or <code>null</code>, if there is no snapshot, or the snapshot
+	 *         does not match the given key and start revision.
+	 */
+	public static History load(File file, String key, long startRevision) {
+		if (!file.exists()) {
+			return null;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != FORMAT_VERSION) {
+				return null;
+			}
+			if (!key.equals(readString(in)) || in.readLong() != startRevision) {
+				LOG.log(Level.INFO, "History snapshot '" + file + "' does not match, ignoring.");
+				return null;
+			}
+			long lastRevision = in.readLong();
+
+			History history = new History(startRevision);
+			new Reader(history, in).read();
+
+			if (history.getLastRevision() != lastRevision) {
+				throw new IOException("Inconsistent last revision.");
+			}
+			return history;
+		} catch (IOException | RuntimeException ex) {
+			LOG.log(Level.WARNING, "Cannot read history snapshot '" + file + "', ignoring.", ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the given {@link History}.
+	 *
+	 * @param history
+	 *        The history to store.
+	 * @param file
+	 *        The snapshot file.
+	 * @param key
+	 *        The key describing the logged paths the history was built from.
+	 */
+	public static void save(History history, File file, String key) {
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null) {
+			dir.mkdirs();
+		}
+		File tmp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(FORMAT_VERSION);
+			writeString(out, key);
+			out.writeLong(history.getStartRevision());
+			out.writeLong(history.getLastRevision());
+
+			new Writer(history, out).write();
+		} catch (IOException ex) {
+			LOG.log(Level.WARNING, "Cannot write history snapshot '" + file + "'.", ex);
+			tmp.delete();
+			return;
+		}
+
+		file.delete();
+		if (!tmp.renameTo(file)) {
+			LOG.log(Level.WARNING, "Cannot write history snapshot '" + file + "'.");
+		}
+	}
+
+	private static final class Writer {
+
+		private final History _history;
+
+		private final DataOutputStream _out;
+
+		private final Map<Node, Integer> _ids = new IdentityHashMap<>();
+
+		private final List<Node> _nodes = new ArrayList<>();
+
+		public Writer(History history, DataOutputStream out) {
+			_history = history;
+			_out = out;
+		}
+
+		public void write() throws IOException {
+			Map<Long, Change> changes = _history.getChangesByRevision();
+			writeVarLong(_out, changes.size());
+			long lastRevision = 0;
+			for (Change change : changes.values()) {
+				writeVarLong(_out, change.getRevision() - lastRevision);
+				lastRevision = change.getRevision();
+				writeString(_out, change.getAuthor());
+				Date date = change.getDate();
+				_out.writeLong(date == null ? Long.MIN_VALUE : date.getTime());
+				writeString(_out, change.getMessage());
+			}
+
+			writeEntry(_history.getRoot());
+
+			// Copy nodes may be written after the nodes copied from them.
+			for (Node node : _nodes) {
+				Node copyNode = node.getCopyNode();
+				if (copyNode == null) {
+					writeVarLong(_out, 0);
+				} else {
+					writeVarLong(_out, _ids.get(copyNode).intValue() + 1);
+					_out.writeLong(node.getCopyRevision());
+				}
+			}
+		}
+
+		private void writeEntry(PathEntry entry) throws IOException {
+			List<Node> nodes = new ArrayList<>();
+			for (Node node = entry.getLatest(); node != null; node = node.getBefore()) {
+				nodes.add(node);
+			}
+			Collections.reverse(nodes);
+
+			writeVarLong(_out, nodes.size());
+			for (Node node : nodes) {
+				_ids.put(node, _nodes.size());
+				_nodes.add(node);
+
+				_out.writeByte(node.getKind().ordinal());
+				_out.writeLong(node.getRevMin());
+				_out.writeLong(node.getRevMax());
+				long[] revisions = node.getRevisions();
+				writeVarLong(_out, revisions.length);
+				long lastRevision = 0;
+				for (long revision : revisions) {
+					writeVarLong(_out, revision - lastRevision);
+					lastRevision = revision;
+				}
+			}
+
+			int childCount = entry.getChildCount();
+			writeVarLong(_out, childCount);
+			for (int n = 0; n < childCount; n++) {
+				PathEntry child = entry.getChild(n);
+				writeString(_out, child.getName());
+				writeEntry(child);
+			}
+		}
+	}
+
+	private static final class Reader {
+
+		private final History _history;
+
+		private final DataInputStream _in;
+
+		private final List<Node> _nodes = new ArrayList<>();
+
+		public Reader(History history, DataInputStream in) {
+			_history = history;
+			_in = in;
+		}
+
+		public void read() throws IOException {
+			int changeCount = readInt(_in);
+			long revision = 0;
+			for (int n = 0; n < changeCount; n++) {
+				revision += readVarLong(_in);
+				String author = readString(_in);
+				long time = _in.readLong();
+				String message = readString(_in);
+				_history.createChange(revision, author, time == Long.MIN_VALUE ? null : new Date(time), message);
+			}
+
+			readEntry(_history.getRoot());
+
+			int nodeCount = _nodes.size();
+			int[] copyIds = new int[nodeCount];
+			long[] copyRevisions = new long[nodeCount];
+			for (int n = 0; n < nodeCount; n++) {
+				int copyId = readInt(_in);
+				if (copyId > 0) {
+					copyIds[n] = copyId;
+					copyRevisions[n] = _in.readLong();
+				}
+			}
+			for (int n = 0; n < nodeCount; n++) {
+				linkCopy(copyIds, copyRevisions, n);
+			}
+		}
+
+		/**
+		 * Sets the copy node of the node with the given index after the copy node of its copy node,
+		 * since a node takes over the changes of its copy node when the copy node is set.
+		 */
+		private void linkCopy(int[] copyIds, long[] copyRevisions, int index) {
+			int copyId = copyIds[index];
+			if (copyId == 0) {
+				return;
+			}
+			copyIds[index] = 0;
+			linkCopy(copyIds, copyRevisions, copyId - 1);
+			_nodes.get(index).setCopyFrom(_nodes.get(copyId - 1), copyRevisions[index]);
+		}
+
+		private void readEntry(PathEntry entry) throws IOException {
+			int nodeCount = readInt(_in);
+			Node before = null;
+			for (int n = 0; n < nodeCount; n++) {
+				Kind kind = KINDS[_in.readByte()];
+				long revMin = _in.readLong();
+				long revMax = _in.readLong();
+				Node node = new Node(_history, kind, entry, revMin, revMax);
+
+				long[] revisions = new long[readInt(_in)];
+				long revision = 0;
+				for (int i = 0; i < revisions.length; i++) {
+					revision += readVarLong(_in);
+					revisions[i] = revision;
+				}
+				node.setRevisions(revisions);
+
+				if (before != null) {
+					node.setBefore(before);
+				}
+				before = node;
+				_nodes.add(node);
+			}
+			entry.setLatest(before);
+
+			int childCount = readInt(_in);
+			for (int n = 0; n < childCount; n++) {
+				String name = readString(_in);
+				readEntry(_history.mkChild(entry, name));
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			writeVarLong(out, 0);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(out, bytes.length + 1);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = readInt(in);
+		if (length == 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length - 1];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static int readInt(DataInputStream in) throws IOException {
+		long value = readVarLong(in);
+		if (value < 0 || value > Integer.MAX_VALUE) {
+			throw new IOException("Invalid count: " + value);
+		}
+		return (int) value;
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			result |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("Invalid number encoding.");
+	}
+
+}
@@ -54,7 +54,19 @@ public class HistroyBuilder implements LogEntryHandler {
 	private final History _history;
 
 	public HistroyBuilder(long startRevision) {
-		_history = new History(startRevision);
+		this(new History(startRevision));
+	}
+
+	/**
+	 * Creates a {@link HistroyBuilder} that continues building the given {@link History}.
+	 * 
+	 * <p>
+	 * Only log entries after the {@link History#getLastRevision() last revision} of the given
+	 * history must be passed to this builder.
+	 * </p>
+	 */
+	public HistroyBuilder(History history) {
+		_history = history;
 	}
 
 	public History getHistory() {
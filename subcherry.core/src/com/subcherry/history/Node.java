@@ -18,6 +18,7 @@
 package com.subcherry.history;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -86,11 +87,46 @@ public class Node {
 
 	public static final long HEAD = Long.MAX_VALUE;
 
+	private static final long[] NO_REVISIONS = {};
+
+	private static final int[] NO_KEY_IDS = {};
+
+	private final History _history;
+
 	private final Kind _kind;
 
-	private final String _path;
+	private final PathEntry _entry;
+
+	/**
+	 * The revisions of the {@link Change}s of this node, resolved through {@link #_history}.
+	 */
+	private long[] _revisions = NO_REVISIONS;
+
+	/**
+	 * The {@link Change#getKeyId() key IDs} of the {@link Change}s in {@link #_revisions}.
+	 */
+	private int[] _keyIds = NO_KEY_IDS;
+
+	private int _changeCount;
+
+	/**
+	 * The distinct {@link Change#getKeyId() key IDs} of all {@link #getChanges() changes} of this
+	 * node (including the changes of its copy node up to the copy revision) in ascending order.
+	 * 
+	 * <p>
+	 * Extended while changes are added. Changes of the copy node are taken over when the copy node
+	 * is set, its history must therefore be complete up to the copy revision at that time.
+	 * </p>
+	 */
+	private int[] _indexKeyIds = NO_KEY_IDS;
+
+	/**
+	 * The revision of the first change with the key ID at the same position in
+	 * {@link #_indexKeyIds}.
+	 */
+	private long[] _indexRevisions = NO_REVISIONS;
 
-	private final List<Change> _changes = new ArrayList<>();
+	private int _indexSize;
 
 	private long _revMin;
 
@@ -110,9 +146,10 @@ public class Node {
 
 	private long _copyRevision;
 
-	public Node(Kind kind, String path, long revMin, long revMax) {
+	Node(History history, Kind kind, PathEntry entry, long revMin, long revMax) {
+		_history = history;
 		_kind = kind;
-		_path = path;
+		_entry = entry;
 		_revMin = revMin;
 		_revMax = revMax;
 	}
@@ -122,7 +159,78 @@ public class Node {
 	}
 
 	public String getPath() {
-		return _path;
+		return _entry.getPath();
+	}
+
+	PathEntry getEntry() {
+		return _entry;
+	}
+
+	/**
+	 * The revisions of the changes of this node (excluding changes of its copy node).
+	 */
+	long[] getRevisions() {
+		return Arrays.copyOf(_revisions, _changeCount);
+	}
+
+	void setRevisions(long[] revisions) {
+		_revisions = revisions;
+		_keyIds = new int[revisions.length];
+		for (int n = 0; n < revisions.length; n++) {
+			_keyIds[n] = _history.getChange(revisions[n]).getKeyId();
+		}
+		_changeCount = revisions.length;
+		buildIndex();
+	}
+
+	/**
+	 * Whether a {@link Change} with the same {@link Change#getKey() key} as the given one is part
+	 * of the {@link #getChanges() changes} of this node.
+	 */
+	public boolean hasEquivalentChange(Change change) {
+		return Arrays.binarySearch(_indexKeyIds, 0, _indexSize, change.getKeyId()) >= 0;
+	}
+
+	private void buildIndex() {
+		_indexSize = 0;
+		if (_copyNode != null) {
+			int copyIndexSize = _copyNode._indexSize;
+			_indexKeyIds = new int[copyIndexSize + _changeCount];
+			_indexRevisions = new long[_indexKeyIds.length];
+			for (int n = 0; n < copyIndexSize; n++) {
+				long revision = _copyNode._indexRevisions[n];
+				if (revision <= _copyRevision) {
+					_indexKeyIds[_indexSize] = _copyNode._indexKeyIds[n];
+					_indexRevisions[_indexSize] = revision;
+					_indexSize++;
+				}
+			}
+		}
+		for (int n = 0; n < _changeCount; n++) {
+			index(_keyIds[n], _revisions[n]);
+		}
+	}
+
+	private void index(int keyId, long revision) {
+		int index = Arrays.binarySearch(_indexKeyIds, 0, _indexSize, keyId);
+		if (index >= 0) {
+			if (revision < _indexRevisions[index]) {
+				_indexRevisions[index] = revision;
+			}
+			return;
+		}
+
+		index = -index - 1;
+		if (_indexSize == _indexKeyIds.length) {
+			int capacity = Math.max(2, 2 * _indexSize);
+			_indexKeyIds = Arrays.copyOf(_indexKeyIds, capacity);
+			_indexRevisions = Arrays.copyOf(_indexRevisions, capacity);
+		}
+		System.arraycopy(_indexKeyIds, index, _indexKeyIds, index + 1, _indexSize - index);
+		System.arraycopy(_indexRevisions, index, _indexRevisions, index + 1, _indexSize - index);
+		_indexKeyIds[index] = keyId;
+		_indexRevisions[index] = revision;
+		_indexSize++;
 	}
 
 	public List<Change> getChanges() {
@@ -140,9 +248,10 @@ public class Node {
 			_copyNode.addChangesUpTo(result, _copyRevision);
 		}
 	
-		for (Change change : _changes) {
-			if (change.getRevision() <= revision) {
-				result.add(change);
+		for (int n = 0; n < _changeCount; n++) {
+			long changeRevision = _revisions[n];
+			if (changeRevision <= revision) {
+				result.add(_history.getChange(changeRevision));
 			}
 		}
 	}
@@ -196,6 +305,7 @@ public class Node {
 		assert copyNode != null : "Empty copy from.";
 		_copyNode = copyNode;
 		_copyRevision = copyRevision;
+		buildIndex();
 	}
 
 	public void modify(Change change) {
@@ -210,12 +320,21 @@ public class Node {
 	}
 
 	private void addChange(Change change) {
-		_changes.add(change);
+		if (_changeCount == _revisions.length) {
+			int capacity = Math.max(2, 2 * _changeCount);
+			_revisions = Arrays.copyOf(_revisions, capacity);
+			_keyIds = Arrays.copyOf(_keyIds, capacity);
+		}
+		_revisions[_changeCount] = change.getRevision();
+		_keyIds[_changeCount] = change.getKeyId();
+		_changeCount++;
+
+		index(change.getKeyId(), change.getRevision());
 	}
 
 	@Override
 	public String toString() {
-		return _kind + " " + _path + " [" + _revMin + ", " + (isAlive() ? "HEAD" : _revMax) + "]";
+		return _kind + " " + getPath() + " [" + _revMin + ", " + (isAlive() ? "HEAD" : _revMax) + "]";
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,236 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.subcherry.history;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Element of the path trie of a {@link History}.
+ *
+ * <p>
+ * Each entry represents one path and stores only its last name segment. The name segments are
+ * shared between all entries of a {@link History}. Child entries are kept in a sorted array.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+final class PathEntry {
+
+	private static final PathEntry[] NO_CHILDREN = {};
+
+	/**
+	 * Order of the contents of child entries, compatible with the order of their full paths.
+	 */
+	private static final Comparator<PathEntry> CONTENT_ORDER = new Comparator<PathEntry>() {
+		@Override
+		public int compare(PathEntry e1, PathEntry e2) {
+			return compareNames(e1._name, true, e2._name, true);
+		}
+	};
+
+	private final PathEntry _parent;
+
+	private final String _name;
+
+	private PathEntry[] _children = NO_CHILDREN;
+
+	private int _childCount;
+
+	/**
+	 * The latest {@link Node} with the path of this entry.
+	 */
+	private Node _latest;
+
+	/**
+	 * Creates a {@link PathEntry}.
+	 *
+	 * @param parent
+	 *        The parent entry, <code>null</code> for the root of the trie.
+	 * @param name
+	 *        The last name segment of the path.
+	 */
+	PathEntry(PathEntry parent, String name) {
+		_parent = parent;
+		_name = name;
+	}
+
+	public String getName() {
+		return _name;
+	}
+
+	public PathEntry getParent() {
+		return _parent;
+	}
+
+	public Node getLatest() {
+		return _latest;
+	}
+
+	public void setLatest(Node latest) {
+		_latest = latest;
+	}
+
+	/**
+	 * The full path of this entry.
+	 */
+	public String getPath() {
+		StringBuilder buffer = new StringBuilder();
+		appendPath(buffer);
+		return buffer.toString();
+	}
+
+	private void appendPath(StringBuilder buffer) {
+		if (_parent == null) {
+			return;
+		}
+		if (_parent._parent != null) {
+			_parent.appendPath(buffer);
+			buffer.append('/');
+		}
+		buffer.append(_name);
+	}
+
+	public int getChildCount() {
+		return _childCount;
+	}
+
+	public PathEntry getChild(int index) {
+		return _children[index];
+	}
+
+	/**
+	 * The child entry with the name given as region of a path.
+	 *
+	 * @return The child entry, or <code>null</code>, if no such entry exists.
+	 */
+	public PathEntry getChild(String path, int start, int end) {
+		int index = indexOf(path, start, end);
+		if (index < 0) {
+			return null;
+		}
+		return _children[index];
+	}
+
+	/**
+	 * The child entry with the given name, the entry is created if it does not yet exist.
+	 */
+	public PathEntry mkChild(String name) {
+		int index = indexOf(name, 0, name.length());
+		if (index >= 0) {
+			return _children[index];
+		}
+
+		int insert = -index - 1;
+		if (_childCount == _children.length) {
+			_children = Arrays.copyOf(_children, Math.max(4, 2 * _childCount));
+		}
+		System.arraycopy(_children, insert, _children, insert + 1, _childCount - insert);
+		PathEntry result = new PathEntry(this, name);
+		_children[insert] = result;
+		_childCount++;
+		return result;
+	}
+
+	private int indexOf(String path, int start, int end) {
+		int low = 0;
+		int high = _childCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compareRegion(_children[mid]._name, path, start, end);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Adds the latest nodes of all entries below this entry to the given collection.
+	 *
+	 * <p>
+	 * The nodes are added in the lexicographic order of their full paths.
+	 * </p>
+	 */
+	public void addContentNodes(Collection<Node> result) {
+		if (_childCount == 0) {
+			return;
+		}
+
+		// The node of a child is ordered by its name, the contents of a child are ordered by its
+		// name followed by the separator. The order may differ for names containing characters
+		// ordered before the separator character.
+		PathEntry[] contents = Arrays.copyOf(_children, _childCount);
+		Arrays.sort(contents, CONTENT_ORDER);
+
+		int n = 0;
+		int m = 0;
+		while (m < _childCount) {
+			if (n < _childCount && compareNames(_children[n]._name, false, contents[m]._name, true) < 0) {
+				Node node = _children[n]._latest;
+				if (node != null) {
+					result.add(node);
+				}
+				n++;
+			} else {
+				contents[m].addContentNodes(result);
+				m++;
+			}
+		}
+	}
+
+	/**
+	 * Compares a name with a region of a path.
+	 */
+	private static int compareRegion(String name, String path, int start, int end) {
+		int nameLength = name.length();
+		int regionLength = end - start;
+		int length = Math.min(nameLength, regionLength);
+		for (int n = 0; n < length; n++) {
+			int diff = name.charAt(n) - path.charAt(start + n);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return nameLength - regionLength;
+	}
+
+	/**
+	 * Compares two names, each optionally followed by a path separator.
+	 */
+	private static int compareNames(String name1, boolean separator1, String name2, boolean separator2) {
+		int length1 = name1.length() + (separator1 ? 1 : 0);
+		int length2 = name2.length() + (separator2 ? 1 : 0);
+		int length = Math.min(length1, length2);
+		for (int n = 0; n < length; n++) {
+			char c1 = n < name1.length() ? name1.charAt(n) : '/';
+			char c2 = n < name2.length() ? name2.charAt(n) : '/';
+			if (c1 != c2) {
+				return c1 - c2;
+			}
+		}
+		return length1 - length2;
+	}
+
+}
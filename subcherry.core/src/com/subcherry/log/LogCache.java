@@ -0,0 +1,606 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.subcherry.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.subcherry.Globals;
+import com.subcherry.repository.command.Client;
+import com.subcherry.repository.command.log.LogEntryHandler;
+import com.subcherry.repository.core.ChangeType;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.LogEntryPath;
+import com.subcherry.repository.core.NodeKind;
+import com.subcherry.repository.core.RepositoryException;
+import com.subcherry.repository.core.RepositoryURL;
+import com.subcherry.repository.core.Revision;
+
+/**
+ * Persistent cache of the log of a set of paths in a repository.
+ *
+ * <p>
+ * For each repository (identified by its UUID) and each requested combination of URL, peg
+ * revision and paths, an append-only file is kept in the cache directory. The file stores all log
+ * entries of a contiguous revision range together with a high-water mark up to which the range is
+ * known to be complete. Only revisions after the high-water mark are requested from the repository,
+ * everything else is served from the cache.
+ * </p>
+ *
+ * <p>
+ * Only complete log entries are cached. The cache can therefore only serve requests that read in
+ * ascending revision order, discover changed paths, do not stop on copy and have no limit.
+ * </p>
+ *
+ * @see com.subcherry.LogReader#setCache(LogCache)
+ */
+public class LogCache {
+
+	private static final Logger LOG = Globals.logger(LogCache.class);
+
+	private static final Charset UTF8 = Charset.forName("utf-8");
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final byte ENTRY = 1;
+
+	private static final byte MARK = 2;
+
+	private final File _cacheDir;
+
+	private final Client _client;
+
+	private final Map<String, CachedLog> _logs = new HashMap<>();
+
+	private String _uuid;
+
+	/**
+	 * Access to the repository log for filling a {@link LogCache}.
+	 */
+	public interface Source {
+
+		/**
+		 * Reads the log of the given paths in the given revision range from the repository.
+		 */
+		void log(String[] paths, Revision startRevision, Revision endRevision, LogEntryHandler handler)
+				throws RepositoryException;
+
+	}
+
+	/**
+	 * Creates a {@link LogCache}.
+	 *
+	 * @param cacheDir
+	 *        The directory to store cache files in.
+	 * @param client
+	 *        The client to identify the repository with.
+	 */
+	public LogCache(File cacheDir, Client client) {
+		_cacheDir = cacheDir;
+		_client = client;
+	}
+
+	/**
+	 * Reports all log entries of the given paths in the given revision range in ascending revision
+	 * order to the given handler.
+	 *
+	 * @param url
+	 *        The repository URL the paths are relative to.
+	 * @param paths
+	 *        The paths to read the log for.
+	 * @param pegRevision
+	 *        The revision in which the paths are resolved.
+	 * @param startRevision
+	 *        The first revision to report.
+	 * @param endRevision
+	 *        The last revision to report, either a commit revision not smaller than the start
+	 *        revision or {@link Revision#HEAD}.
+	 * @param handler
+	 *        The callback to receive the log entries.
+	 * @param source
+	 *        The log of the given URL and paths resolved in the given peg revision to fetch
+	 *        entries not yet cached from.
+	 */
+	public void readLog(RepositoryURL url, String[] paths, Revision pegRevision, long startRevision,
+			Revision endRevision, LogEntryHandler handler, Source source) throws RepositoryException {
+		CachedLog log = lookupLog(url, paths, pegRevision);
+		log.readLog(startRevision, endRevision, handler, source);
+	}
+
+	private CachedLog lookupLog(RepositoryURL url, String[] paths, Revision pegRevision) throws RepositoryException {
+		String[] sortedPaths = paths.clone();
+		Arrays.sort(sortedPaths);
+
+		StringBuilder key = new StringBuilder();
+		key.append(url);
+		key.append('@');
+		key.append(pegRevision);
+		for (String path : sortedPaths) {
+			key.append('\n');
+			key.append(path);
+		}
+		String keyString = key.toString();
+
+		CachedLog log = _logs.get(keyString);
+		if (log == null) {
+			File dir = new File(_cacheDir, uuid(url));
+			dir.mkdirs();
+			log = new CachedLog(new File(dir, hash(keyString) + ".log"), keyString, sortedPaths);
+			log.load();
+			_logs.put(keyString, log);
+		}
+		return log;
+	}
+
+	private String uuid(RepositoryURL url) throws RepositoryException {
+		if (_uuid == null) {
+			_uuid = _client.getRepositoryUUID(url);
+		}
+		return _uuid;
+	}
+
+	private static String hash(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(UTF8));
+			StringBuilder result = new StringBuilder();
+			for (byte b : digest) {
+				result.append(Character.forDigit((b >> 4) & 0x0F, 16));
+				result.append(Character.forDigit(b & 0x0F, 16));
+			}
+			return result.toString();
+		} catch (NoSuchAlgorithmException ex) {
+			throw new AssertionError(ex);
+		}
+	}
+
+	/**
+	 * The cached log of a single set of paths.
+	 */
+	private class CachedLog {
+
+		private final File _file;
+
+		private final String _key;
+
+		private final String[] _paths;
+
+		/**
+		 * The first revision covered by this cache, <code>-1</code> if nothing is cached.
+		 */
+		private long _firstRevision = -1;
+
+		/**
+		 * The last revision up to which the entries in {@link #_file} are complete.
+		 */
+		private long _lastRevision = -1;
+
+		/**
+		 * The length of {@link #_file} up to the high-water mark {@link #_lastRevision}.
+		 */
+		private long _length;
+
+		public CachedLog(File file, String key, String[] paths) {
+			_file = file;
+			_key = key;
+			_paths = paths;
+		}
+
+		public void load() {
+			if (!_file.exists()) {
+				return;
+			}
+
+			long validLength = 0;
+			try (CountingInputStream counter =
+				new CountingInputStream(new BufferedInputStream(new FileInputStream(_file)))) {
+				DataInputStream in = new DataInputStream(counter);
+				if (in.readInt() != FORMAT_VERSION || !_key.equals(readString(in))) {
+					reset();
+					return;
+				}
+				long firstRevision = in.readLong();
+				validLength = counter.getCount();
+
+				long lastRevision = firstRevision - 1;
+				try {
+					while (true) {
+						byte type = in.readByte();
+						switch (type) {
+							case ENTRY:
+								// Only checked for being readable, entries are replayed from the file.
+								readEntry(in);
+								break;
+							case MARK:
+								lastRevision = in.readLong();
+								validLength = counter.getCount();
+								break;
+							default:
+								throw new IOException("Invalid record type: " + type);
+						}
+					}
+				} catch (EOFException ex) {
+					// End of cache reached.
+				}
+
+				_firstRevision = firstRevision;
+				_lastRevision = lastRevision;
+			} catch (IOException ex) {
+				LOG.log(Level.WARNING, "Cannot read log cache '" + _file + "', ignoring incomplete data.", ex);
+			}
+
+			if (_firstRevision < 0) {
+				reset();
+			} else {
+				// Drop entries that were not completed by a high-water mark.
+				truncate(validLength);
+			}
+		}
+
+		private void truncate(long length) {
+			if (length < _file.length()) {
+				try (RandomAccessFile out = new RandomAccessFile(_file, "rw")) {
+					out.setLength(length);
+				} catch (IOException ex) {
+					LOG.log(Level.WARNING, "Cannot truncate log cache '" + _file + "'.", ex);
+					reset();
+					return;
+				}
+			}
+			_length = length;
+		}
+
+		private void reset() {
+			_firstRevision = -1;
+			_lastRevision = -1;
+			_length = 0;
+			_file.delete();
+		}
+
+		private void init(long firstRevision) {
+			reset();
+			try (DataOutputStream out = openOutput()) {
+				out.writeInt(FORMAT_VERSION);
+				writeString(out, _key);
+				out.writeLong(firstRevision);
+			} catch (IOException ex) {
+				LOG.log(Level.WARNING, "Cannot create log cache '" + _file + "'.", ex);
+				reset();
+				return;
+			}
+			_firstRevision = firstRevision;
+			_lastRevision = firstRevision - 1;
+			_length = _file.length();
+		}
+
+		public void readLog(long startRevision, Revision endRevision, LogEntryHandler handler, Source source)
+				throws RepositoryException {
+			if (_firstRevision < 0 || startRevision < _firstRevision) {
+				init(startRevision);
+			}
+
+			long endNumber = endRevision.kind() == Revision.Kind.HEAD ? Long.MAX_VALUE : endRevision.getNumber();
+			long reported = startRevision - 1;
+			if (_firstRevision >= 0) {
+				reported = replay(startRevision, endNumber, handler);
+			}
+			if (reported < endNumber) {
+				fetch(startRevision, reported, endRevision, handler, source);
+			}
+		}
+
+		/**
+		 * Reports the cached entries in the given revision range directly from {@link #_file}.
+		 * 
+		 * @return The revision up to which all entries have been reported.
+		 */
+		private long replay(long startRevision, long endNumber, LogEntryHandler handler) throws RepositoryException {
+			long reported = startRevision - 1;
+			try (CountingInputStream counter =
+				new CountingInputStream(new BufferedInputStream(new FileInputStream(_file)))) {
+				DataInputStream in = new DataInputStream(counter);
+				in.readInt();
+				readString(in);
+				in.readLong();
+				while (counter.getCount() < _length) {
+					byte type = in.readByte();
+					if (type == MARK) {
+						in.readLong();
+						continue;
+					}
+					if (type != ENTRY) {
+						throw new IOException("Invalid record type: " + type);
+					}
+					LogEntry entry = readEntry(in);
+					long revision = entry.getRevision();
+					if (revision > endNumber) {
+						return endNumber;
+					}
+					if (revision >= startRevision) {
+						handler.handleLogEntry(entry);
+						reported = revision;
+					}
+				}
+			} catch (IOException ex) {
+				LOG.log(Level.WARNING, "Cannot read log cache '" + _file + "', reading from repository.", ex);
+				reset();
+				return reported;
+			}
+			return Math.max(reported, Math.min(endNumber, _lastRevision));
+		}
+
+		/**
+		 * Fetches the entries after the given reported revision from the given {@link Source}
+		 * and appends them to the cache.
+		 */
+		private void fetch(long startRevision, final long reported, Revision endRevision,
+				final LogEntryHandler handler, Source source) throws RepositoryException {
+			if (_firstRevision < 0) {
+				// No cache available.
+				source.log(_paths, Revision.create(Math.max(startRevision, reported)), endRevision,
+					new LogEntryHandler() {
+						@Override
+						public void handleLogEntry(LogEntry logEntry) throws RepositoryException {
+							if (logEntry.getRevision() > reported) {
+								handler.handleLogEntry(logEntry);
+							}
+						}
+					});
+				return;
+			}
+
+			// Start at the high-water mark itself (if any) to make sure that the requested range is
+			// never empty, even if the high-water mark is the current head revision.
+			long fetchStart = Math.max(_firstRevision, _lastRevision);
+			Appender appender = new Appender(reported, handler);
+			try {
+				source.log(_paths, Revision.create(fetchStart), endRevision, appender);
+				appender.commit(endRevision);
+			} finally {
+				appender.close();
+			}
+		}
+
+		private DataOutputStream openOutput() throws IOException {
+			return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_file, true)));
+		}
+
+		/**
+		 * {@link LogEntryHandler} appending fetched entries to the cache file before reporting them.
+		 */
+		private class Appender implements LogEntryHandler {
+
+			private final long _reported;
+
+			private final LogEntryHandler _handler;
+
+			private DataOutputStream _out;
+
+			private long _fetchedRevision;
+
+			public Appender(long reported, LogEntryHandler handler) {
+				_reported = reported;
+				_handler = handler;
+				_fetchedRevision = _lastRevision;
+				try {
+					_out = openOutput();
+				} catch (IOException ex) {
+					failed(ex);
+				}
+			}
+
+			@Override
+			public void handleLogEntry(LogEntry logEntry) throws RepositoryException {
+				long revision = logEntry.getRevision();
+				if (revision <= _fetchedRevision) {
+					return;
+				}
+				_fetchedRevision = revision;
+
+				// Written first, since the handler is free to modify the entry.
+				if (_out != null) {
+					try {
+						_out.writeByte(ENTRY);
+						writeEntry(_out, logEntry);
+					} catch (IOException ex) {
+						failed(ex);
+					}
+				}
+				if (revision > _reported) {
+					_handler.handleLogEntry(logEntry);
+				}
+			}
+
+			/**
+			 * Completes the appended entries with a high-water mark.
+			 */
+			public void commit(Revision endRevision) {
+				if (_out == null) {
+					return;
+				}
+				long lastRevision =
+					endRevision.kind() == Revision.Kind.HEAD ? _fetchedRevision : endRevision.getNumber();
+				try {
+					_out.writeByte(MARK);
+					_out.writeLong(lastRevision);
+					_out.close();
+				} catch (IOException ex) {
+					failed(ex);
+					return;
+				}
+				_out = null;
+				_lastRevision = lastRevision;
+				_length = _file.length();
+			}
+
+			/**
+			 * Drops entries that were not completed with {@link #commit(Revision)}.
+			 */
+			public void close() {
+				if (_out == null) {
+					return;
+				}
+				closeOutput();
+				truncate(_length);
+			}
+
+			private void failed(IOException ex) {
+				LOG.log(Level.WARNING, "Cannot write log cache '" + _file + "'.", ex);
+				closeOutput();
+				reset();
+			}
+
+			private void closeOutput() {
+				if (_out == null) {
+					return;
+				}
+				try {
+					_out.close();
+				} catch (IOException ex) {
+					// Ignore, the written data is dropped anyway.
+				}
+				_out = null;
+			}
+
+		}
+
+	}
+
+	static void writeEntry(DataOutputStream out, LogEntry entry) throws IOException {
+		out.writeLong(entry.getRevision());
+		writeString(out, entry.getAuthor());
+		Date date = entry.getDate();
+		out.writeBoolean(date != null);
+		if (date != null) {
+			out.writeLong(date.getTime());
+		}
+		writeString(out, entry.getMessage());
+		out.writeBoolean(entry.hasChildren());
+
+		Map<String, LogEntryPath> changedPaths = entry.getChangedPaths();
+		out.writeInt(changedPaths.size());
+		for (LogEntryPath path : changedPaths.values()) {
+			writeString(out, path.getPath());
+			out.writeByte(path.getKind().ordinal());
+			out.writeByte(path.getType().ordinal());
+			writeString(out, path.getCopyPath());
+			out.writeLong(path.getCopyRevision());
+		}
+	}
+
+	static LogEntry readEntry(DataInputStream in) throws IOException {
+		long revision = in.readLong();
+		String author = readString(in);
+		Date date = in.readBoolean() ? new Date(in.readLong()) : null;
+		String message = readString(in);
+		boolean hasChildren = in.readBoolean();
+
+		int pathCnt = in.readInt();
+		Map<String, LogEntryPath> changedPaths = new HashMap<>();
+		for (int n = 0; n < pathCnt; n++) {
+			String path = readString(in);
+			NodeKind kind = NodeKind.values()[in.readByte()];
+			ChangeType type = ChangeType.values()[in.readByte()];
+			String copyPath = readString(in);
+			long copyRevision = in.readLong();
+			changedPaths.put(path, new LogEntryPath(kind, path, type, copyPath, copyRevision));
+		}
+		return new LogEntry(changedPaths, revision, author, date, message, hasChildren);
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(UTF8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * {@link InputStream} that keeps track of the number of bytes read.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+
+		private long _count;
+
+		public CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		public long getCount() {
+			return _count;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int result = super.read();
+			if (result >= 0) {
+				_count++;
+			}
+			return result;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int result = super.read(b, off, len);
+			if (result > 0) {
+				_count += result;
+			}
+			return result;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long result = super.skip(n);
+			_count += result;
+			return result;
+		}
+
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.subcherry.log;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.subcherry.repository.command.log.LogEntryHandler;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.RepositoryException;
+
+/**
+ * Utility for combining separately read logs into the log that would have been read for the union
+ * of all paths.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+public class LogMerger {
+
+	private static final Comparator<Cursor> BY_REVISION = new Comparator<Cursor>() {
+		@Override
+		public int compare(Cursor c1, Cursor c2) {
+			return Long.compare(c1.current().getRevision(), c2.current().getRevision());
+		}
+	};
+
+	/**
+	 * Reports the entries of all given logs in strictly ascending revision order to the given
+	 * handler.
+	 *
+	 * <p>
+	 * Each of the given logs must be sorted in ascending revision order. A revision that occurs in
+	 * more than one log is reported only once.
+	 * </p>
+	 *
+	 * @param logs
+	 *        The logs to merge.
+	 * @param handler
+	 *        The handler to receive the merged log.
+	 */
+	public static void merge(List<? extends List<LogEntry>> logs, LogEntryHandler handler)
+			throws RepositoryException {
+		PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(1, logs.size()), BY_REVISION);
+		for (List<LogEntry> log : logs) {
+			Cursor cursor = new Cursor(log.iterator());
+			if (cursor.next()) {
+				queue.add(cursor);
+			}
+		}
+
+		long lastRevision = Long.MIN_VALUE;
+		while (!queue.isEmpty()) {
+			Cursor cursor = queue.poll();
+			LogEntry entry = cursor.current();
+			if (entry.getRevision() > lastRevision) {
+				handler.handleLogEntry(entry);
+				lastRevision = entry.getRevision();
+			}
+			if (cursor.next()) {
+				queue.add(cursor);
+			}
+		}
+	}
+
+	private static final class Cursor {
+
+		private final Iterator<LogEntry> _entries;
+
+		private LogEntry _current;
+
+		public Cursor(Iterator<LogEntry> entries) {
+			_entries = entries;
+		}
+
+		public LogEntry current() {
+			return _current;
+		}
+
+		public boolean next() {
+			if (_entries.hasNext()) {
+				_current = _entries.next();
+				return true;
+			}
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,472 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.subcherry.log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.subcherry.Globals;
+import com.subcherry.repository.command.Client;
+import com.subcherry.repository.command.log.LogEntryHandler;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.RepositoryException;
+import com.subcherry.repository.core.RepositoryURL;
+import com.subcherry.repository.core.Revision;
+
+/**
+ * Cache of complete log entries of single revisions of a repository.
+ *
+ * <p>
+ * Each entry describes all paths changed in its revision. Recently used entries are kept in memory
+ * up to a configured number of entries. Optionally, all entries are additionally stored in a file
+ * and read back on demand, so that revisions are fetched from the repository only once across
+ * runs.
+ * </p>
+ *
+ * <p>
+ * Logs already read completely (e.g. the log of the source branch) can be
+ * {@link #addEntries(List) registered} to serve requests for their revisions without copying their
+ * entries.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+public class RevisionCache {
+
+	/**
+	 * Default number of entries kept in memory.
+	 */
+	public static final int DEFAULT_SIZE = 1000;
+
+	private static final Logger LOG = Globals.logger(RevisionCache.class);
+
+	private static final String[] ROOT = { "/" };
+
+	private static final String[] NO_PROPERTIES = {};
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final byte ENTRY = 1;
+
+	private static final byte PATH_LOG = 2;
+
+	private static final int HEADER_SIZE = 4;
+
+	/**
+	 * Maximum number of revisions not requested between two requested revisions that are fetched
+	 * in a single log request, see {@link #getRevisions(Client, RepositoryURL, Collection)}.
+	 */
+	private static final int MAX_GAP = 50;
+
+	private final File _file;
+
+	private RandomAccessFile _data;
+
+	/**
+	 * Offsets of the entries stored in {@link #_file} indexed by revision.
+	 */
+	private final Map<Long, Long> _offsets = new HashMap<>();
+
+	/**
+	 * Recently used entries indexed by revision.
+	 */
+	private final Map<Long, LogEntry> _entries;
+
+	/**
+	 * Registered logs indexed by revision.
+	 */
+	private final Map<Long, LogEntry> _known = new HashMap<>();
+
+	/**
+	 * Revisions reported for a path log request, see {@link #getPathLog(Client, RepositoryURL, String, long, long)}.
+	 */
+	private final Map<String, long[]> _pathLogs = new HashMap<>();
+
+	/**
+	 * Creates an in-memory {@link RevisionCache}.
+	 *
+	 * @param size
+	 *        The maximum number of entries kept in memory.
+	 */
+	public RevisionCache(int size) {
+		this(size, null);
+	}
+
+	/**
+	 * Creates a {@link RevisionCache}.
+	 *
+	 * @param size
+	 *        The maximum number of entries kept in memory.
+	 * @param file
+	 *        The file to store entries in, <code>null</code> for an in-memory cache. A file must
+	 *        only be used for a single repository.
+	 */
+	public RevisionCache(final int size, File file) {
+		_file = file;
+		_entries = new LinkedHashMap<Long, LogEntry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, LogEntry> eldest) {
+				return size() > size;
+			}
+		};
+	}
+
+	/**
+	 * Reads the index of the entries stored in the cache file.
+	 */
+	public synchronized void load() {
+		if (_file == null) {
+			return;
+		}
+
+		File dir = _file.getAbsoluteFile().getParentFile();
+		if (dir != null) {
+			dir.mkdirs();
+		}
+		try {
+			_data = new RandomAccessFile(_file, "rw");
+			if (_data.length() < HEADER_SIZE || _data.readInt() != FORMAT_VERSION) {
+				_data.setLength(0);
+				_data.writeInt(FORMAT_VERSION);
+				return;
+			}
+
+			long validLength = HEADER_SIZE;
+			try {
+				while (true) {
+					byte type = _data.readByte();
+					byte[] record = new byte[_data.readInt()];
+					_data.readFully(record);
+					DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+					switch (type) {
+						case ENTRY:
+							_offsets.put(in.readLong(), validLength);
+							break;
+						case PATH_LOG:
+							String key = in.readUTF();
+							long[] revisions = new long[in.readInt()];
+							for (int n = 0; n < revisions.length; n++) {
+								revisions[n] = in.readLong();
+							}
+							_pathLogs.put(key, revisions);
+							break;
+						default:
+							throw new IOException("Invalid record type: " + type);
+					}
+					validLength = _data.getFilePointer();
+				}
+			} catch (EOFException ex) {
+				// End of cache reached.
+			}
+
+			if (validLength < _data.length()) {
+				// Drop an incompletely written record.
+				_data.setLength(validLength);
+			}
+		} catch (IOException ex) {
+			LOG.log(Level.WARNING, "Cannot read revision cache '" + _file + "', not using a cache file.", ex);
+			close();
+			_offsets.clear();
+			_pathLogs.clear();
+		}
+	}
+
+	/**
+	 * Closes the cache file.
+	 */
+	public synchronized void close() {
+		if (_data == null) {
+			return;
+		}
+		try {
+			_data.close();
+		} catch (IOException ex) {
+			LOG.log(Level.WARNING, "Cannot close revision cache '" + _file + "'.", ex);
+		}
+		_data = null;
+	}
+
+	/**
+	 * Registers log entries that are kept in memory anyway.
+	 *
+	 * <p>
+	 * The given entries must describe all changed paths of their revisions.
+	 * </p>
+	 */
+	public synchronized void addEntries(List<LogEntry> entries) {
+		for (LogEntry entry : entries) {
+			_known.put(entry.getRevision(), entry);
+		}
+	}
+
+	/**
+	 * Adds the given complete log entry to this cache.
+	 */
+	public synchronized void put(LogEntry entry) {
+		Long revision = entry.getRevision();
+		if (_known.containsKey(revision)) {
+			return;
+		}
+		_entries.put(revision, entry);
+		if (_data != null && !_offsets.containsKey(revision)) {
+			try {
+				ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+				LogCache.writeEntry(new DataOutputStream(buffer), entry);
+				_offsets.put(revision, append(ENTRY, buffer));
+			} catch (IOException ex) {
+				LOG.log(Level.WARNING, "Cannot write revision cache '" + _file + "'.", ex);
+			}
+		}
+	}
+
+	/**
+	 * Looks up the cached log entry of the given revision.
+	 *
+	 * @return The cached entry, or <code>null</code>, if the revision is not in this cache.
+	 */
+	public synchronized LogEntry lookup(long revision) {
+		Long key = revision;
+		LogEntry result = _known.get(key);
+		if (result != null) {
+			return result;
+		}
+		result = _entries.get(key);
+		if (result != null) {
+			return result;
+		}
+
+		Long offset = _offsets.get(key);
+		if (offset == null || _data == null) {
+			return null;
+		}
+		try {
+			_data.seek(offset.longValue() + 1);
+			byte[] record = new byte[_data.readInt()];
+			_data.readFully(record);
+			result = LogCache.readEntry(new DataInputStream(new ByteArrayInputStream(record)));
+		} catch (IOException ex) {
+			LOG.log(Level.WARNING, "Cannot read revision " + revision + " from revision cache '" + _file + "'.", ex);
+			_offsets.remove(key);
+			return null;
+		}
+		_entries.put(key, result);
+		return result;
+	}
+
+	/**
+	 * The complete log entry of the given revision.
+	 *
+	 * @param client
+	 *        The client to fetch the entry with, if it is not yet cached.
+	 * @param url
+	 *        The repository root URL.
+	 * @param revision
+	 *        The requested revision.
+	 * @return The log entry, or <code>null</code>, if the revision does not exist.
+	 */
+	public LogEntry getRevision(Client client, RepositoryURL url, long revision) throws RepositoryException {
+		LogEntry result = lookup(revision);
+		if (result == null) {
+			Revision svnRevision = Revision.create(revision);
+			final LogEntry[] fetched = { null };
+			client.log(url, ROOT, svnRevision, svnRevision, svnRevision, false, true, false, 0, NO_PROPERTIES,
+				new LogEntryHandler() {
+					@Override
+					public void handleLogEntry(LogEntry logEntry) {
+						fetched[0] = logEntry;
+					}
+				});
+			result = fetched[0];
+			if (result != null) {
+				put(result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The complete log entries of the given revisions.
+	 *
+	 * <p>
+	 * Revisions not yet cached are grouped into ranges, each range is fetched with a single log
+	 * request. Ranges may contain a limited number of revisions not requested. Entries of those
+	 * revisions are dropped.
+	 * </p>
+	 *
+	 * @param client
+	 *        The client to fetch entries with, if they are not yet cached.
+	 * @param url
+	 *        The repository root URL.
+	 * @param revisions
+	 *        The requested revisions.
+	 * @return The log entries of all existing requested revisions in ascending revision order.
+	 */
+	public List<LogEntry> getRevisions(Client client, RepositoryURL url, Collection<Long> revisions)
+			throws RepositoryException {
+		final TreeMap<Long, LogEntry> result = new TreeMap<>();
+		List<Long> missing = new ArrayList<>();
+		for (Long revision : new TreeSet<>(revisions)) {
+			LogEntry entry = lookup(revision.longValue());
+			if (entry == null) {
+				missing.add(revision);
+			} else {
+				result.put(revision, entry);
+			}
+		}
+
+		int n = 0;
+		int cnt = missing.size();
+		while (n < cnt) {
+			int first = n;
+			long start = missing.get(n++).longValue();
+			long end = start;
+			while (n < cnt && missing.get(n).longValue() - end <= MAX_GAP + 1) {
+				end = missing.get(n++).longValue();
+			}
+
+			final Set<Long> requested = new HashSet<>(missing.subList(first, n));
+			Revision endRevision = Revision.create(end);
+			client.log(url, ROOT, endRevision, Revision.create(start), endRevision, false, true, false, 0,
+				NO_PROPERTIES, new LogEntryHandler() {
+					@Override
+					public void handleLogEntry(LogEntry logEntry) {
+						Long revision = logEntry.getRevision();
+						if (requested.contains(revision)) {
+							put(logEntry);
+							result.put(revision, logEntry);
+						}
+					}
+				});
+		}
+		return new ArrayList<>(result.values());
+	}
+
+	/**
+	 * The log entries of the given path after the given peg revision up to the given last revision
+	 * (in descending revision order) not crossing copies of the path.
+	 *
+	 * @param client
+	 *        The client to fetch the log with, if the request cannot be served from this cache.
+	 * @param url
+	 *        The repository root URL.
+	 * @param path
+	 *        The path to retrieve the log for, resolved in the given peg revision.
+	 * @param pegRevision
+	 *        The revision the path is resolved in.
+	 * @param lastRevision
+	 *        The last revision to report.
+	 */
+	public List<LogEntry> getPathLog(Client client, RepositoryURL url, String path, long pegRevision,
+			long lastRevision) throws RepositoryException {
+		String key = path + '@' + pegRevision + ':' + lastRevision;
+		long[] revisions;
+		synchronized (this) {
+			revisions = _pathLogs.get(key);
+		}
+		if (revisions != null) {
+			List<LogEntry> result = new ArrayList<>(revisions.length);
+			for (long revision : revisions) {
+				LogEntry entry = lookup(revision);
+				if (entry == null) {
+					// Evicted, fetch the complete request again.
+					result = null;
+					break;
+				}
+				result.add(entry);
+			}
+			if (result != null) {
+				return result;
+			}
+		}
+
+		final List<LogEntry> result = new ArrayList<>();
+		client.log(url, new String[] { path }, Revision.create(pegRevision), Revision.create(lastRevision),
+			Revision.create(pegRevision + 1), true, true, false, 0, NO_PROPERTIES, new LogEntryHandler() {
+				@Override
+				public void handleLogEntry(LogEntry logEntry) {
+					result.add(logEntry);
+				}
+			});
+
+		revisions = new long[result.size()];
+		for (int n = 0, cnt = result.size(); n < cnt; n++) {
+			LogEntry entry = result.get(n);
+			revisions[n] = entry.getRevision();
+			put(entry);
+		}
+		storePathLog(key, revisions);
+		return result;
+	}
+
+	private synchronized void storePathLog(String key, long[] revisions) {
+		_pathLogs.put(key, revisions);
+		if (_data != null) {
+			try {
+				ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+				DataOutputStream out = new DataOutputStream(buffer);
+				out.writeUTF(key);
+				out.writeInt(revisions.length);
+				for (long revision : revisions) {
+					out.writeLong(revision);
+				}
+				append(PATH_LOG, buffer);
+			} catch (IOException ex) {
+				LOG.log(Level.WARNING, "Cannot write revision cache '" + _file + "'.", ex);
+			}
+		}
+	}
+
+	/**
+	 * Appends a record to the cache file.
+	 *
+	 * @return The offset of the record.
+	 */
+	private long append(byte type, ByteArrayOutputStream content) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.size() + 5);
+		DataOutputStream out = new DataOutputStream(buffer);
+		out.writeByte(type);
+		out.writeInt(content.size());
+		content.writeTo(out);
+		out.flush();
+
+		long offset = _data.length();
+		_data.seek(offset);
+		_data.write(buffer.toByteArray());
+		return offset;
+	}
+
+}
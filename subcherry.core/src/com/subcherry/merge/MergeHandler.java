@@ -33,6 +33,7 @@ import java.util.regex.Pattern;
 
 import com.subcherry.AdditionalRevision;
 import com.subcherry.MergeConfig;
+import com.subcherry.log.RevisionCache;
 import com.subcherry.repository.command.Client;
 import com.subcherry.repository.command.ClientManager;
 import com.subcherry.repository.command.Command;
@@ -40,7 +41,6 @@ import com.subcherry.repository.command.CommandVisitor;
 import com.subcherry.repository.command.OperationFactory;
 import com.subcherry.repository.command.copy.Copy;
 import com.subcherry.repository.command.copy.CopySource;
-import com.subcherry.repository.command.log.LogEntryHandler;
 import com.subcherry.repository.command.merge.ConflictAction;
 import com.subcherry.repository.command.merge.ConflictReason;
 import com.subcherry.repository.command.merge.Merge;
@@ -69,10 +69,6 @@ import com.subcherry.utils.PathParser;
  */
 public class MergeHandler extends Handler<MergeConfig> {
 
-	private static final String[] ROOT = { "/" };
-
-	private static final String[] NO_PROPERTIES = {};
-
 	final Set<String> _modules;
 
 	private List<Command> _operations;
@@ -83,7 +79,9 @@ public class MergeHandler extends Handler<MergeConfig> {
 
 	private ClientManager _clientManager;
 
-	private Map<Revision, LogEntry> _additionalRevisions = new HashMap<>();
+	private Client _logClient;
+
+	private final RevisionCache _revisionCache;
 
 	private final VirtualFS _virtualFs;
 
@@ -98,7 +96,19 @@ public class MergeHandler extends Handler<MergeConfig> {
 	private int _id = 1;
 
 	public MergeHandler(ClientManager clientManager, MergeConfig config, PathParser paths, Set<String> modules) {
+		this(clientManager, config, paths, modules, new RevisionCache(RevisionCache.DEFAULT_SIZE));
+	}
+
+	/**
+	 * Creates a {@link MergeHandler}.
+	 * 
+	 * @param revisionCache
+	 *        The cache for log entries of revisions required for following copies.
+	 */
+	public MergeHandler(ClientManager clientManager, MergeConfig config, PathParser paths, Set<String> modules,
+			RevisionCache revisionCache) {
 		super(config);
+		_revisionCache = revisionCache;
 		_clientManager = clientManager;
 		_paths = paths;
 		_modules = modules;
@@ -114,6 +124,35 @@ public class MergeHandler extends Handler<MergeConfig> {
 		return _clientManager.getClient();
 	}
 
+	/**
+	 * Sets the client for reading the repository log while creating merges.
+	 * 
+	 * <p>
+	 * A separate client is required, if merges are created in another thread than the one
+	 * executing them. If not set, the client of the {@link ClientManager} is used.
+	 * </p>
+	 */
+	public void setLogClient(Client logClient) {
+		_logClient = logClient;
+	}
+
+	private Client logClient() {
+		if (_logClient != null) {
+			return _logClient;
+		}
+		return client();
+	}
+
+	/**
+	 * The workspace resources looked up during the last {@link #parseMerge(LogEntry)} mapped to
+	 * whether they existed.
+	 * 
+	 * @see VirtualFS#matchesWorkspace(Map)
+	 */
+	public Map<String, Boolean> getWorkspaceQueries() {
+		return _virtualFs.getWorkspaceQueries();
+	}
+
 	public MergeOperation parseMerge(LogEntry logEntry) throws RepositoryException {
 		_operations = new ArrayList<>();
 		_operationsSetup = new ArrayList<>();
@@ -122,9 +161,6 @@ public class MergeHandler extends Handler<MergeConfig> {
 		_crossMergedDirectories = new HashSet<>();
 		_touchedResources = new HashSet<>();
 
-		// It is not probable that multiple change sets require the same copy revision.
-		_additionalRevisions.clear();
-
 		buildOperations(logEntry);
 		resolveOperationDependencies();
 
@@ -280,7 +316,7 @@ public class MergeHandler extends Handler<MergeConfig> {
 					boolean srcExistsBefore;
 					if (intraBranchCopy && _modules.contains(srcModule)) {
 						srcFile = new File(_config.getWorkspaceRoot(), srcResourceMapped);
-						srcExistsBefore = srcFile.exists();
+						srcExistsBefore = _virtualFs.existsInWorkspace(srcResourceMapped);
 					} else {
 						// Copied from a module that is not part of the current merge. Perform a
 						// regular cross-branch copy of the content.
@@ -434,7 +470,7 @@ public class MergeHandler extends Handler<MergeConfig> {
 			_operationsSetup.clear();
 			_operationsCleanup.clear();
 			_touchedResources.clear();
-			_virtualFs.clear();
+			_virtualFs.revert();
 			_crossMergedDirectories.clear();
 		}
 		return hasMoves;
@@ -530,6 +566,22 @@ public class MergeHandler extends Handler<MergeConfig> {
 		return _virtualFs.exists(resource);
 	}
 
+	/**
+	 * Whether the given file exists in the workspace.
+	 * 
+	 * <p>
+	 * The lookup is recorded in the {@link #getWorkspaceQueries() workspace queries}.
+	 * </p>
+	 */
+	private boolean existsInWorkspace(File file) {
+		String root = _config.getWorkspaceRoot().getPath();
+		String path = file.getPath();
+		if (!path.startsWith(root + File.separator)) {
+			return file.exists();
+		}
+		return _virtualFs.existsInWorkspace(path.substring(root.length() + 1).replace(File.separatorChar, '/'));
+	}
+
 	private Merge mergeContentChanges(Target target, ResourceChange mergedChange)
 			throws RepositoryException {
 		LogEntry mergedChangeSet = mergedChange.getChangeSet();
@@ -576,27 +628,8 @@ public class MergeHandler extends Handler<MergeConfig> {
 	 * @return The changes to the given path between the two given revisions (exclusive).
 	 */
 	private List<LogEntry> getChanges(String path, long copiedRevision, long mergedRevision) throws RepositoryException {
-		class Counter implements LogEntryHandler {
-			private final List<LogEntry> _changes = new ArrayList<>();
-
-			@Override
-			public void handleLogEntry(LogEntry intermediateChange) throws RepositoryException {
-				_changes.add(intermediateChange);
-			}
-
-			public List<LogEntry> getChanges() {
-				return _changes;
-			}
-		}
-		Counter counter = new Counter();
-		Revision beforeMergedSvnRevision = Revision.create(mergedRevision - 1);
-		Revision afterCopiedRevision = Revision.create(copiedRevision + 1);
-		Revision copiedSvnRevision = Revision.create(copiedRevision);
-		_clientManager.getClient().log(svnUrl(_config.getSvnURL()),
-			new String[] { path }, copiedSvnRevision, beforeMergedSvnRevision,
-			afterCopiedRevision, true, true, false, 0, NO_PROPERTIES,
-			counter);
-		return counter.getChanges();
+		return _revisionCache.getPathLog(logClient(), svnUrl(_config.getSvnURL()), path,
+			copiedRevision, mergedRevision - 1);
 	}
 
 	private void directMerge(long revision, Path source, Path target) throws RepositoryException {
@@ -691,24 +724,7 @@ public class MergeHandler extends Handler<MergeConfig> {
 	}
 
 	private LogEntry loadRevision(long revision) throws RepositoryException {
-		Revision svnRevision = Revision.create(revision);
-
-		LogEntry result = _additionalRevisions.get(svnRevision);
-		if (result == null) {
-			LastLogEntry handler = new LastLogEntry();
-
-			// Retrieve the original log entry.
-			boolean stopOnCopy = false;
-			boolean discoverChangedPaths = true;
-			boolean includeMergedRevisions = false;
-			_clientManager.getClient().log(svnUrl(_config.getSvnURL()), ROOT,
-				svnRevision, svnRevision, svnRevision,
-				stopOnCopy, discoverChangedPaths, includeMergedRevisions, 0, NO_PROPERTIES, handler);
-
-			result = handler.getLogEntry();
-			_additionalRevisions.put(svnRevision, result);
-		}
-		return result;
+		return _revisionCache.getRevision(logClient(), svnUrl(_config.getSvnURL()), revision);
 	}
 
 	private void addRecordOnly(LogEntry logEntry, MergeBuilder builder) throws RepositoryException {
@@ -1084,7 +1100,8 @@ public class MergeHandler extends Handler<MergeConfig> {
 				File tmpFile;
 				do {
 					tmpFile = new File(oldFile.getParentFile(), oldFile.getName() + (id > 0 ? "." + id : "") + ".tmp");
-				} while (tmpFile.exists());
+					id++;
+				} while (existsInWorkspace(tmpFile));
 
 				backup.setTarget(Target.fromFile(tmpFile));
 				add(backup);
@@ -0,0 +1,277 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.subcherry.merge;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.subcherry.Globals;
+import com.subcherry.repository.command.merge.MergeOperation;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.RepositoryException;
+import com.subcherry.util.VirtualFS;
+
+/**
+ * Creates {@link MergeOperation}s for upcoming log entries in a background thread, while previous
+ * merges are still executed and committed.
+ *
+ * <p>
+ * All merges are created by a single {@link MergeHandler} in a single background thread in the
+ * order of the {@link #schedule(List) scheduled} entries. A merge created in advance is based on
+ * the workspace before the previous merges were executed. Before it is handed out, the workspace
+ * lookups it depends on are repeated. If the workspace has changed in between, the merge is
+ * created again.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+public class MergePlanner {
+
+	private static final Logger LOG = Globals.logger(MergePlanner.class);
+
+	private final MergeHandler _mergeHandler;
+
+	private final File _workspaceRoot;
+
+	private final int _lookAhead;
+
+	private final ExecutorService _executor = Executors.newSingleThreadExecutor();
+
+	private List<LogEntry> _entries = new ArrayList<>();
+
+	/**
+	 * Indices of the scheduled entries.
+	 */
+	private final Map<LogEntry, Integer> _index = new HashMap<>();
+
+	/**
+	 * Merges created in advance in the order of the scheduled entries.
+	 */
+	private final Deque<Planned> _planned = new ArrayDeque<>();
+
+	/**
+	 * The index of the next entry to create a merge for in advance.
+	 */
+	private int _next;
+
+	/**
+	 * Creates a {@link MergePlanner}.
+	 *
+	 * @param mergeHandler
+	 *        The {@link MergeHandler} to create merges with. It must not be used concurrently by
+	 *        others and must read the log with its own
+	 *        {@link MergeHandler#setLogClient(com.subcherry.repository.command.Client) client}, or
+	 *        with the client of a {@link com.subcherry.repository.PooledClientManager}.
+	 * @param workspaceRoot
+	 *        The workspace the merges are executed in.
+	 * @param lookAhead
+	 *        The maximum number of merges created in advance.
+	 */
+	public MergePlanner(MergeHandler mergeHandler, File workspaceRoot, int lookAhead) {
+		_mergeHandler = mergeHandler;
+		_workspaceRoot = workspaceRoot;
+		_lookAhead = lookAhead;
+	}
+
+	/**
+	 * Sets the entries that are going to be merged in the given order.
+	 */
+	public synchronized void schedule(List<LogEntry> entries) {
+		reset();
+		_entries = new ArrayList<>(entries);
+		_index.clear();
+		for (int n = 0, cnt = _entries.size(); n < cnt; n++) {
+			_index.put(_entries.get(n), n);
+		}
+		fill();
+	}
+
+	/**
+	 * The merge of the given log entry.
+	 *
+	 * <p>
+	 * If the entry is the next {@link #schedule(List) scheduled} entry, a merge created in advance
+	 * is used, if it is still valid. Creating merges for following entries is started.
+	 * </p>
+	 */
+	public synchronized MergeOperation getMerge(LogEntry logEntry) throws RepositoryException {
+		Integer index = _index.get(logEntry);
+		if (index == null) {
+			// Not part of the schedule.
+			reset();
+			return get(submit(logEntry)).getMerge();
+		}
+
+		int position = index.intValue();
+		while (!_planned.isEmpty() && _planned.getFirst().getIndex() < position) {
+			// Entry has been skipped, e.g. joined with an earlier one.
+			_planned.removeFirst().cancel();
+		}
+
+		Plan plan = null;
+		if (!_planned.isEmpty() && _planned.getFirst().getIndex() == position) {
+			plan = _planned.removeFirst().getPlan();
+			if (plan != null && !new VirtualFS(_workspaceRoot).matchesWorkspace(plan.getWorkspaceQueries())) {
+				LOG.log(Level.INFO, "Workspace changed, re-creating merge of revision " + logEntry.getRevision() + ".");
+				plan = null;
+			}
+		}
+
+		if (plan == null) {
+			// All merges created in advance are based on the outdated workspace as well.
+			reset();
+			plan = get(submit(logEntry));
+		}
+
+		_next = Math.max(_next, position + 1);
+		fill();
+		return plan.getMerge();
+	}
+
+	/**
+	 * Drops all merges created in advance.
+	 *
+	 * <p>
+	 * Must be called, if merges created in advance may have become invalid, e.g. after the
+	 * configuration has been changed.
+	 * </p>
+	 */
+	public synchronized void reset() {
+		while (!_planned.isEmpty()) {
+			_planned.removeFirst().cancel();
+		}
+		_next = 0;
+	}
+
+	/**
+	 * Stops the background thread.
+	 */
+	public synchronized void shutdown() {
+		reset();
+		_executor.shutdown();
+	}
+
+	private void fill() {
+		while (_planned.size() < _lookAhead && _next < _entries.size()) {
+			int index = _next++;
+			_planned.addLast(new Planned(index, submit(_entries.get(index))));
+		}
+	}
+
+	private Future<Plan> submit(final LogEntry logEntry) {
+		return _executor.submit(new Callable<Plan>() {
+			@Override
+			public Plan call() throws RepositoryException {
+				MergeOperation merge = _mergeHandler.parseMerge(logEntry);
+				return new Plan(merge, _mergeHandler.getWorkspaceQueries());
+			}
+		});
+	}
+
+	private static Plan get(Future<Plan> result) throws RepositoryException {
+		try {
+			return result.get();
+		} catch (InterruptedException ex) {
+			throw new RepositoryException(ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RepositoryException) {
+				throw (RepositoryException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RepositoryException(cause);
+		}
+	}
+
+	/**
+	 * A merge together with the workspace lookups it is based on.
+	 */
+	private static final class Plan {
+
+		private final MergeOperation _merge;
+
+		private final Map<String, Boolean> _workspaceQueries;
+
+		public Plan(MergeOperation merge, Map<String, Boolean> workspaceQueries) {
+			_merge = merge;
+			_workspaceQueries = workspaceQueries;
+		}
+
+		public MergeOperation getMerge() {
+			return _merge;
+		}
+
+		public Map<String, Boolean> getWorkspaceQueries() {
+			return _workspaceQueries;
+		}
+	}
+
+	/**
+	 * A merge of a scheduled entry created in advance.
+	 */
+	private static final class Planned {
+
+		private final int _index;
+
+		private final Future<Plan> _result;
+
+		public Planned(int index, Future<Plan> result) {
+			_index = index;
+			_result = result;
+		}
+
+		public int getIndex() {
+			return _index;
+		}
+
+		/**
+		 * The created merge, or <code>null</code>, if creating the merge failed.
+		 */
+		public Plan getPlan() {
+			try {
+				return get(_result);
+			} catch (RepositoryException | RuntimeException ex) {
+				// Retried in the foreground.
+				return null;
+			}
+		}
+
+		public void cancel() {
+			_result.cancel(false);
+		}
+	}
+
+}
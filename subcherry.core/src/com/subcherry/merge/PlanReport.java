@@ -0,0 +1,240 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.subcherry.merge;
+
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.subcherry.repository.command.Client;
+
+/**
+ * Timing report of creating merges without executing them.
+ *
+ * <p>
+ * For each revision, the time for creating its merge, the number of repository requests and the
+ * number of commands of the merge is recorded. Requests are counted by a {@link Client} created
+ * with {@link #countCalls(Client)}. Log requests that stop on copies are reported as
+ * {@link #COPY_CHAIN} lookups, all other requests by the name of the {@link Client} method.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+public class PlanReport {
+
+	/**
+	 * Request kind of log requests following the copies of a path.
+	 */
+	public static final String COPY_CHAIN = "copy-chain";
+
+	/**
+	 * Number of revisions listed as the slowest ones in the summary.
+	 */
+	private static final int SLOWEST_CNT = 10;
+
+	/**
+	 * Index of the <code>stopOnCopy</code> argument of all {@link Client} log methods.
+	 */
+	private static final int STOP_ON_COPY_ARG = 5;
+
+	private static final Comparator<Item> SLOWEST_FIRST = new Comparator<Item>() {
+		@Override
+		public int compare(Item i1, Item i2) {
+			return Long.compare(i2.getNanos(), i1.getNanos());
+		}
+	};
+
+	private final List<Item> _items = new ArrayList<>();
+
+	private Map<String, Integer> _calls = new TreeMap<>();
+
+	private long _revision;
+
+	private long _start;
+
+	/**
+	 * Creates a {@link Client} that forwards all calls to the given one and counts them for the
+	 * revision currently {@link #start(long) planned}.
+	 */
+	public Client countCalls(final Client client) {
+		return (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[] { Client.class },
+			new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if (method.getDeclaringClass() == Client.class && !method.getName().equals("getOperationsFactory")) {
+						count(kind(method, args));
+					}
+					try {
+						return method.invoke(client, args);
+					} catch (InvocationTargetException ex) {
+						throw ex.getCause();
+					}
+				}
+			});
+	}
+
+	private static String kind(Method method, Object[] args) {
+		String name = method.getName();
+		if (name.equals("log") && Boolean.TRUE.equals(args[STOP_ON_COPY_ARG])) {
+			return COPY_CHAIN;
+		}
+		return name;
+	}
+
+	private void count(String kind) {
+		Integer cnt = _calls.get(kind);
+		_calls.put(kind, cnt == null ? 1 : cnt.intValue() + 1);
+	}
+
+	/**
+	 * Starts creating the merge of the given revision.
+	 */
+	public void start(long revision) {
+		_revision = revision;
+		_calls = new TreeMap<>();
+		_start = System.nanoTime();
+	}
+
+	/**
+	 * Finishes the revision passed to {@link #start(long)}.
+	 *
+	 * @param commandCnt
+	 *        The number of commands of the created merge.
+	 */
+	public void stop(int commandCnt) {
+		_items.add(new Item(_revision, System.nanoTime() - _start, _calls, commandCnt));
+		_calls = new TreeMap<>();
+	}
+
+	/**
+	 * Writes the report with one line per revision followed by a summary.
+	 */
+	public void print(PrintStream out) {
+		long totalNanos = 0;
+		int totalCommands = 0;
+		Map<String, Integer> totalCalls = new TreeMap<>();
+		for (Item item : _items) {
+			out.println("Revision " + item.getRevision() + ": " + item.getDescription());
+
+			totalNanos += item.getNanos();
+			totalCommands += item.getCommandCnt();
+			for (Entry<String, Integer> entry : item.getCalls().entrySet()) {
+				Integer cnt = totalCalls.get(entry.getKey());
+				totalCalls.put(entry.getKey(), entry.getValue().intValue() + (cnt == null ? 0 : cnt.intValue()));
+			}
+		}
+
+		out.println();
+		out.println("Planned " + _items.size() + " revisions: " + millis(totalNanos) + " ms, " + totalCommands
+			+ " commands, " + calls(totalCalls) + ".");
+
+		List<Item> slowest = new ArrayList<>(_items);
+		Collections.sort(slowest, SLOWEST_FIRST);
+		if (slowest.size() > SLOWEST_CNT) {
+			slowest = slowest.subList(0, SLOWEST_CNT);
+		}
+		if (!slowest.isEmpty()) {
+			out.println("Slowest revisions:");
+			for (Item item : slowest) {
+				out.println("   " + item.getRevision() + ": " + item.getDescription());
+			}
+		}
+	}
+
+	private static long millis(long nanos) {
+		return nanos / 1000000;
+	}
+
+	private static String calls(Map<String, Integer> calls) {
+		int total = 0;
+		for (Integer cnt : calls.values()) {
+			total += cnt.intValue();
+		}
+		StringBuilder result = new StringBuilder();
+		result.append(total);
+		result.append(" remote calls");
+		if (total > 0) {
+			result.append(" (");
+			boolean first = true;
+			for (Entry<String, Integer> entry : calls.entrySet()) {
+				if (first) {
+					first = false;
+				} else {
+					result.append(", ");
+				}
+				result.append(entry.getKey());
+				result.append(": ");
+				result.append(entry.getValue());
+			}
+			result.append(")");
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Measurements for a single revision.
+	 */
+	private static final class Item {
+
+		private final long _revision;
+
+		private final long _nanos;
+
+		private final Map<String, Integer> _calls;
+
+		private final int _commandCnt;
+
+		public Item(long revision, long nanos, Map<String, Integer> calls, int commandCnt) {
+			_revision = revision;
+			_nanos = nanos;
+			_calls = calls;
+			_commandCnt = commandCnt;
+		}
+
+		public long getRevision() {
+			return _revision;
+		}
+
+		public long getNanos() {
+			return _nanos;
+		}
+
+		public Map<String, Integer> getCalls() {
+			return _calls;
+		}
+
+		public int getCommandCnt() {
+			return _commandCnt;
+		}
+
+		public String getDescription() {
+			return millis(_nanos) + " ms, " + _commandCnt + " commands, " + calls(_calls);
+		}
+	}
+
+}
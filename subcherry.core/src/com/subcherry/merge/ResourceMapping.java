@@ -21,7 +21,11 @@ import java.io.File;
 import java.io.IOError;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -44,16 +48,51 @@ public abstract class ResourceMapping {
 
 	public abstract String map(String resource);
 
+	/**
+	 * {@link ResourceMapping} applying a sequence of regular expression replacements.
+	 * 
+	 * <p>
+	 * Each replacement is applied in turn to the result of the previous ones, if its pattern
+	 * matches at the beginning of the resource. To avoid evaluating all patterns for each
+	 * resource, replacements are indexed by the literal prefix of their pattern. Only replacements
+	 * whose prefix is a prefix of the current resource are evaluated. Mapping results are cached
+	 * for recently mapped resources.
+	 * </p>
+	 */
 	static class RegexpResourceMapping extends ResourceMapping {
 
+		/**
+		 * Maximum number of cached mapping results.
+		 */
+		private static final int CACHE_SIZE = 4096;
+
+		/**
+		 * Cache value for resources that are not mapped.
+		 */
+		private static final String NOT_MAPPED = new String();
+
 		private List<Replacer> _replacers = new ArrayList<>();
 
+		private final PrefixNode _prefixes = new PrefixNode();
+
+		private final Map<String, String> _cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > CACHE_SIZE;
+			}
+		};
+
 		public RegexpResourceMapping() {
 			super();
 		}
 
 		public void addReplacement(String key, String value) {
+			int index = _replacers.size();
 			_replacers.add(new Replacer(Pattern.compile(key), value));
+			_prefixes.add(literalPrefix(key), index);
+			synchronized (_cache) {
+				_cache.clear();
+			}
 		}
 
 		private String stripPreceedingSlash(String resource) {
@@ -65,11 +104,32 @@ public abstract class ResourceMapping {
 
 		@Override
 		public String map(String resource) {
+			String result;
+			synchronized (_cache) {
+				result = _cache.get(resource);
+			}
+			if (result == null) {
+				result = mapUncached(resource);
+				if (result == null) {
+					result = NOT_MAPPED;
+				}
+				synchronized (_cache) {
+					_cache.put(resource, result);
+				}
+			}
+			return result == NOT_MAPPED ? null : result;
+		}
+
+		private String mapUncached(String resource) {
 			final String origResource = resource;
-			for (int n = 0, cnt = _replacers.size(); n < cnt; n++) {
+			BitSet candidates = _prefixes.candidates(resource);
+			for (int n = candidates.nextSetBit(0); n >= 0; n = candidates.nextSetBit(n + 1)) {
 				String replacement = _replacers.get(n).replace(resource);
 				if (replacement != null) {
 					resource = replacement;
+
+					// Later replacements are applied to the modified resource.
+					candidates = _prefixes.candidates(resource);
 				}
 			}
 
@@ -79,6 +139,53 @@ public abstract class ResourceMapping {
 			return resource;
 		}
 
+		/**
+		 * The literal text each match of the given regular expression must start with.
+		 * 
+		 * <p>
+		 * The result is conservative: Scanning stops at the first character with special meaning.
+		 * An empty prefix is returned for patterns with top-level alternatives.
+		 * </p>
+		 */
+		static String literalPrefix(String regexp) {
+			if (regexp.indexOf('|') >= 0) {
+				return "";
+			}
+			StringBuilder result = new StringBuilder();
+			int n = 0;
+			int length = regexp.length();
+			if (n < length && regexp.charAt(n) == '^') {
+				// Replacements are only applied to matches at the beginning of the resource.
+				n++;
+			}
+			while (n < length) {
+				char ch = regexp.charAt(n);
+				int next;
+				if (ch == '\\') {
+					if (n + 1 >= length) {
+						break;
+					}
+					ch = regexp.charAt(n + 1);
+					if (Character.isLetterOrDigit(ch)) {
+						// Character class, back reference, or escape sequence.
+						break;
+					}
+					next = n + 2;
+				} else if (".[](){}*+?^$".indexOf(ch) >= 0) {
+					break;
+				} else {
+					next = n + 1;
+				}
+				if (next < length && "*?{".indexOf(regexp.charAt(next)) >= 0) {
+					// The character is optional.
+					break;
+				}
+				result.append(ch);
+				n = next;
+			}
+			return result.toString();
+		}
+
 		private static final class Replacer {
 			private Pattern _pattern;
 
@@ -94,9 +201,64 @@ public abstract class ResourceMapping {
 				if (!matcher.lookingAt()) {
 					return null;
 				}
-				return matcher.replaceFirst(_replacement);
+				StringBuffer buffer = new StringBuffer();
+				matcher.appendReplacement(buffer, _replacement);
+				matcher.appendTail(buffer);
+				return buffer.toString();
+			}
+
+		}
+
+		/**
+		 * Node of a trie of literal pattern prefixes.
+		 */
+		private static final class PrefixNode {
+
+			private final Map<Character, PrefixNode> _children = new HashMap<>();
+
+			/**
+			 * Indices of the replacements with the prefix ending at this node.
+			 */
+			private final BitSet _replacers = new BitSet();
+
+			public PrefixNode() {
+				super();
+			}
+
+			public void add(String prefix, int index) {
+				PrefixNode node = this;
+				for (int n = 0, cnt = prefix.length(); n < cnt; n++) {
+					Character key = Character.valueOf(prefix.charAt(n));
+					PrefixNode child = node._children.get(key);
+					if (child == null) {
+						child = new PrefixNode();
+						node._children.put(key, child);
+					}
+					node = child;
+				}
+				node._replacers.set(index);
 			}
 
+			/**
+			 * Indices of all replacements with a prefix that is a prefix of the given resource.
+			 */
+			public BitSet candidates(String resource) {
+				BitSet result = new BitSet();
+				PrefixNode node = this;
+				int n = 0;
+				int length = resource.length();
+				while (true) {
+					result.or(node._replacers);
+					if (n == length) {
+						break;
+					}
+					node = node._children.get(Character.valueOf(resource.charAt(n++)));
+					if (node == null) {
+						break;
+					}
+				}
+				return result;
+			}
 		}
 
 	}
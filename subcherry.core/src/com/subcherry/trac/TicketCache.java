@@ -0,0 +1,204 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.subcherry.trac;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.subcherry.Globals;
+
+/**
+ * Persistent cache of {@link TracTicket}s indexed by ticket number.
+ *
+ * <p>
+ * For each ticket, its attributes and modification date are stored. When the cache is
+ * {@link #refresh(TracConnection) refreshed}, all tickets changed in Trac since the last
+ * synchronization are dropped from the cache with a single query on the ticket change time.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+public class TicketCache {
+
+	private static final Logger LOG = Globals.logger(TicketCache.class);
+
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Safety margin for clock differences between this client and the Trac server.
+	 */
+	private static final long CLOCK_SKEW = 10 * 60 * 1000L;
+
+	private final File _file;
+
+	private final Map<Integer, TracTicket> _tickets = new HashMap<>();
+
+	/**
+	 * The time of the last synchronization with Trac, <code>0</code> if never synchronized.
+	 */
+	private long _lastSync;
+
+	private boolean _modified;
+
+	/**
+	 * Creates a {@link TicketCache}.
+	 *
+	 * @param file
+	 *        The file to store the cache in.
+	 */
+	public TicketCache(File file) {
+		_file = file;
+	}
+
+	/**
+	 * Loads the cache file, if it exists.
+	 */
+	public synchronized void load() {
+		_tickets.clear();
+		_lastSync = 0;
+		if (!_file.exists()) {
+			return;
+		}
+
+		try (ObjectInputStream in =
+			new ObjectInputStream(new BufferedInputStream(new FileInputStream(_file)))) {
+			if (in.readInt() != FORMAT_VERSION) {
+				return;
+			}
+			long lastSync = in.readLong();
+			int cnt = in.readInt();
+			for (int n = 0; n < cnt; n++) {
+				Integer number = in.readInt();
+				Date created = (Date) in.readObject();
+				Date modified = (Date) in.readObject();
+				Map<String, Object> attributes = readAttributes((Map<?, ?>) in.readObject());
+				_tickets.put(number, new TracTicket(number, created, modified, attributes));
+			}
+			_lastSync = lastSync;
+		} catch (IOException | ClassNotFoundException | ClassCastException ex) {
+			LOG.log(Level.WARNING, "Cannot read ticket cache '" + _file + "', starting with empty cache.", ex);
+			_tickets.clear();
+		}
+	}
+
+	private static Map<String, Object> readAttributes(Map<?, ?> attributes) {
+		Map<String, Object> result = new HashMap<>();
+		for (Map.Entry<?, ?> entry : attributes.entrySet()) {
+			result.put((String) entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * Drops all tickets from the cache that were changed since the last synchronization.
+	 */
+	public synchronized void refresh(TracConnection trac) {
+		long now = System.currentTimeMillis();
+		if (_lastSync > 0 && !_tickets.isEmpty()) {
+			String since = formatDate(new Date(_lastSync - CLOCK_SKEW));
+			List<?> changed = trac.getTicket().query("changetime=" + since + "..&max=0");
+			int dropped = 0;
+			for (Object id : changed) {
+				if (_tickets.remove(id) != null) {
+					dropped++;
+				}
+			}
+			LOG.log(Level.INFO, "Ticket cache refreshed, " + dropped + " of " + changed.size()
+				+ " changed tickets dropped.");
+		} else {
+			_tickets.clear();
+		}
+		_lastSync = now;
+		_modified = true;
+	}
+
+	/**
+	 * The cached ticket with the given number, or <code>null</code> if the ticket is not cached.
+	 */
+	public synchronized TracTicket get(int number) {
+		return _tickets.get(number);
+	}
+
+	/**
+	 * Adds the given ticket to the cache.
+	 */
+	public synchronized void put(TracTicket ticket) {
+		_tickets.put(ticket.getNumber(), ticket);
+		_modified = true;
+	}
+
+	/**
+	 * Writes the cache file, if the cache has been modified.
+	 */
+	public synchronized void save() {
+		if (!_modified) {
+			return;
+		}
+
+		File dir = _file.getAbsoluteFile().getParentFile();
+		if (dir != null) {
+			dir.mkdirs();
+		}
+		File tmp = new File(_file.getPath() + ".tmp");
+		try (ObjectOutputStream out =
+			new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(_lastSync);
+			out.writeInt(_tickets.size());
+			for (TracTicket ticket : _tickets.values()) {
+				out.writeInt(ticket.getNumber());
+				out.writeObject(ticket.getCreated());
+				out.writeObject(ticket.getModified());
+				out.writeObject(ticket.getAttributes());
+			}
+		} catch (IOException ex) {
+			LOG.log(Level.WARNING, "Cannot write ticket cache '" + _file + "'.", ex);
+			tmp.delete();
+			return;
+		}
+
+		_file.delete();
+		if (!tmp.renameTo(_file)) {
+			LOG.log(Level.WARNING, "Cannot write ticket cache '" + _file + "'.");
+			return;
+		}
+		_modified = false;
+	}
+
+	private static String formatDate(Date date) {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return format.format(date);
+	}
+
+}
@@ -17,13 +17,33 @@
  */
 package com.subcherry.trac;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import org.apache.xmlrpc.XmlRpcException;
+
+import com.subcherry.Globals;
 import com.subcherry.utils.Utils;
 
 public class TicketStub extends Ticket {
 
+	private static final Logger LOG = Globals.logger(TicketStub.class);
+
 	private static final Ticket NO_TICKET = new Ticket() {
 		
 		@Override
@@ -126,28 +146,243 @@ public class TicketStub extends Ticket {
 	}
 
 	private static Ticket fetchTicket(TracConnection trac, String message, String ticketId) {
-		Ticket cachedTicket = tickets.get(ticketId);
-		if (cachedTicket != null) {
-			return cachedTicket;
+		synchronized (tickets) {
+			Ticket cachedTicket = tickets.get(ticketId);
+			if (cachedTicket != null) {
+				return cachedTicket;
+			}
+
+			Ticket newTicket = new TicketStub(ticketId, trac);
+			tickets.put(ticketId, newTicket);
+			return newTicket;
 		}
-		
-		Ticket newTicket = new TicketStub(ticketId, trac);
-		tickets.put(message, newTicket);
-		return newTicket;
 	}
 
-	private static Map<Integer, TracTicket> tracTickets = new HashMap<Integer, TracTicket>();
-	private static Map<String, Ticket> tickets = new HashMap<String, Ticket>();
+	private static final Map<Integer, TracTicket> tracTickets = new HashMap<Integer, TracTicket>();
+	private static final Map<String, Ticket> tickets = new HashMap<String, Ticket>();
+
+	/**
+	 * Background fetches in progress indexed by the numbers of the tickets being fetched.
+	 */
+	private static final Map<Integer, Future<?>> pendingTickets = new HashMap<Integer, Future<?>>();
+
+	private static volatile TicketCache cache;
+
+	/**
+	 * Sets the persistent {@link TicketCache} to look up tickets in before fetching them from Trac.
+	 */
+	public static void setCache(TicketCache ticketCache) {
+		cache = ticketCache;
+	}
+
+	/**
+	 * Fetches all given tickets that are not yet known in batches.
+	 * 
+	 * <p>
+	 * If batch fetching fails, tickets are fetched one by one on demand.
+	 * </p>
+	 */
+	public static void prefetch(TracConnection trac, Collection<String> ticketIds) {
+		Set<Integer> missing;
+		synchronized (tracTickets) {
+			missing = missingTickets(ticketIds);
+		}
+		fetchTickets(trac, missing);
+	}
+
+	/**
+	 * Fetches all given tickets that are neither known nor already being fetched in the background
+	 * using the given executor.
+	 * 
+	 * <p>
+	 * A request for one of these tickets through {@link #getTicket(TracConnection, int)} waits for
+	 * the background fetch to complete.
+	 * </p>
+	 */
+	public static void prefetchAsync(Executor executor, final TracConnection trac, Collection<String> ticketIds) {
+		FutureTask<Void> fetch;
+		synchronized (tracTickets) {
+			final Set<Integer> missing = missingTickets(ticketIds);
+			if (missing.isEmpty()) {
+				return;
+			}
+			fetch = new FutureTask<Void>(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						fetchTickets(trac, missing);
+					} finally {
+						synchronized (tracTickets) {
+							pendingTickets.keySet().removeAll(missing);
+						}
+					}
+				}
+			}, null);
+			for (Integer ticketNumber : missing) {
+				pendingTickets.put(ticketNumber, fetch);
+			}
+		}
+
+		try {
+			executor.execute(fetch);
+		} catch (RejectedExecutionException ex) {
+			fetch.run();
+		}
+	}
+
+	/**
+	 * Fetches all given tickets that are not yet known with at most the given number of concurrent
+	 * batch requests and waits for all fetches to complete.
+	 * 
+	 * <p>
+	 * Tickets already being fetched in the background are not requested again, but waited for.
+	 * </p>
+	 */
+	public static void fetchAll(TracConnection trac, Collection<String> ticketIds, int threads) {
+		if (threads <= 1) {
+			prefetch(trac, ticketIds);
+			awaitPending(ticketIds);
+			return;
+		}
+
+		List<String> ids = new ArrayList<String>(ticketIds);
+		int batchSize = Math.max(1, Math.min(TracTicket.FETCH_BATCH_SIZE, (ids.size() + threads - 1) / threads));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int start = 0, cnt = ids.size(); start < cnt; start += batchSize) {
+				prefetchAsync(executor, trac, ids.subList(start, Math.min(cnt, start + batchSize)));
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				LOG.log(Level.INFO, "Waiting for tickets being fetched.");
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		awaitPending(ticketIds);
+	}
+
+	/**
+	 * Waits for all background fetches of the given tickets.
+	 */
+	private static void awaitPending(Collection<String> ticketIds) {
+		Set<Future<?>> pending = new HashSet<Future<?>>();
+		synchronized (tracTickets) {
+			for (String ticketId : ticketIds) {
+				Future<?> fetch = pendingTickets.get(Integer.parseInt(ticketId));
+				if (fetch != null) {
+					pending.add(fetch);
+				}
+			}
+		}
+		for (Future<?> fetch : pending) {
+			waitFor(fetch);
+		}
+	}
+
+	/**
+	 * The numbers of the given tickets that are neither known nor currently fetched.
+	 * 
+	 * <p>
+	 * Must be called with the lock on {@link #tracTickets} held.
+	 * </p>
+	 */
+	private static Set<Integer> missingTickets(Collection<String> ticketIds) {
+		Set<Integer> missing = new HashSet<Integer>();
+		for (String ticketId : ticketIds) {
+			int ticketNumber = Integer.parseInt(ticketId);
+			if (tracTickets.containsKey(ticketNumber) || pendingTickets.containsKey(ticketNumber)) {
+				continue;
+			}
+			TicketCache ticketCache = cache;
+			if (ticketCache != null) {
+				TracTicket cached = ticketCache.get(ticketNumber);
+				if (cached != null) {
+					tracTickets.put(ticketNumber, cached);
+					continue;
+				}
+			}
+			missing.add(ticketNumber);
+		}
+		return missing;
+	}
+
+	private static void fetchTickets(TracConnection trac, Set<Integer> ticketNumbers) {
+		if (ticketNumbers.isEmpty()) {
+			return;
+		}
+
+		Map<Integer, TracTicket> fetched;
+		try {
+			fetched = TracTicket.getTickets(trac, ticketNumbers);
+		} catch (XmlRpcException | RuntimeException ex) {
+			LOG.log(Level.WARNING, "Batch fetching tickets failed, fetching tickets one by one.", ex);
+			return;
+		}
+		synchronized (tracTickets) {
+			tracTickets.putAll(fetched);
+		}
+		TicketCache ticketCache = cache;
+		if (ticketCache != null) {
+			for (TracTicket ticket : fetched.values()) {
+				ticketCache.put(ticket);
+			}
+		}
+		LOG.log(Level.FINE, "Fetched " + fetched.size() + " tickets.");
+	}
 
 	public static TracTicket getTicket(TracConnection trac, int ticketNumber) {
-		TracTicket result = tracTickets.get(ticketNumber);
+		Future<?> pending;
+		synchronized (tracTickets) {
+			TracTicket result = tracTickets.get(ticketNumber);
+			if (result != null) {
+				return result;
+			}
+			pending = pendingTickets.get(ticketNumber);
+		}
+
+		if (pending != null) {
+			waitFor(pending);
+			synchronized (tracTickets) {
+				TracTicket result = tracTickets.get(ticketNumber);
+				if (result != null) {
+					return result;
+				}
+			}
+		}
+
+		TracTicket result = null;
+		TicketCache ticketCache = cache;
+		if (ticketCache != null) {
+			result = ticketCache.get(ticketNumber);
+		}
 		if (result == null) {
 			result = TracTicket.getTicket(trac, ticketNumber);
+			if (result != null && ticketCache != null) {
+				ticketCache.put(result);
+			}
+		}
+		synchronized (tracTickets) {
 			tracTickets.put(ticketNumber, result);
 		}
 		return result;
 	}
 
+	private static void waitFor(Future<?> pending) {
+		try {
+			pending.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException ex) {
+			// Ticket is fetched on its own.
+		}
+	}
+
 	private TracTicket tracTicket() {
 		if (tracTicket == null) {
 			int ticketNumber = Integer.parseInt(this._id);
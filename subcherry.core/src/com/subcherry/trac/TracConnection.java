@@ -19,7 +19,11 @@ package com.subcherry.trac;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.apache.xmlrpc.XmlRpcException;
 import org.apache.xmlrpc.client.XmlRpcClient;
 import org.apache.xmlrpc.client.XmlRpcClientConfigImpl;
 import org.lustin.trac.xmlprc.Ticket;
@@ -45,6 +49,8 @@ public class TracConnection {
 
 	private String url;
 
+	private XmlRpcClient client;
+
 	private TrackerDynamicProxy proxy;
 
 	/** 
@@ -75,10 +81,22 @@ public class TracConnection {
 		XmlRpcClient theClient = new XmlRpcClient();
 		theClient.setConfig(theClientConfig);
 
+		this.client = theClient;
 		this.proxy = new TrackerDynamicProxy(theClient);
 
 	}
 
+	/**
+	 * Creates a {@link TracConnection} sending all requests through the given client.
+	 * 
+	 * @param aClient
+	 *        The configured XML-RPC client, e.g. with a custom transport.
+	 */
+	public TracConnection(XmlRpcClient aClient) {
+		this.client = aClient;
+		this.proxy = new TrackerDynamicProxy(aClient);
+	}
+
 	public Ticket getTicket() {
 		return (Ticket) this.proxy.newInstance(Ticket.class);
 	}
@@ -86,5 +104,44 @@ public class TracConnection {
 	public Wiki getWiki() {
 		return (Wiki) this.proxy.newInstance(Wiki.class);
 	}
+
+	/**
+	 * Invokes the given method once for each of the given parameter lists in a single request
+	 * using <code>system.multicall</code>.
+	 * 
+	 * @param method
+	 *        The XML-RPC method to call, e.g. <code>ticket.get</code>.
+	 * @param params
+	 *        The parameters of each call.
+	 * @return For each call (in the order of the given parameters) either its result or an
+	 *         {@link XmlRpcException} describing its failure.
+	 * @throws XmlRpcException
+	 *         If the request as a whole fails.
+	 */
+	public Object[] multicall(String method, List<Object[]> params) throws XmlRpcException {
+		Object[] calls = new Object[params.size()];
+		for (int n = 0, cnt = params.size(); n < cnt; n++) {
+			Map<String, Object> call = new HashMap<String, Object>();
+			call.put("methodName", method);
+			call.put("params", params.get(n));
+			calls[n] = call;
+		}
+
+		Object[] responses = (Object[]) this.client.execute("system.multicall", new Object[] { calls });
+		Object[] result = new Object[responses.length];
+		for (int n = 0; n < responses.length; n++) {
+			Object response = responses[n];
+			if (response instanceof Object[]) {
+				// A successful call results in an array with the single result value.
+				result[n] = ((Object[]) response)[0];
+			} else {
+				Map<?, ?> fault = (Map<?, ?>) response;
+				Object code = fault.get("faultCode");
+				result[n] = new XmlRpcException(code instanceof Integer ? (Integer) code : 0,
+					String.valueOf(fault.get("faultString")));
+			}
+		}
+		return result;
+	}
 	
 }
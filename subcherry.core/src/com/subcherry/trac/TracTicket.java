@@ -17,10 +17,15 @@
  */
 package com.subcherry.trac;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Vector;
 
+import org.apache.xmlrpc.XmlRpcException;
 import org.lustin.trac.xmlprc.Ticket;
 
 /**
@@ -29,6 +34,8 @@ import org.lustin.trac.xmlprc.Ticket;
 public class TracTicket {
     
 	private static final int FETCH_TICKET_RETRY = 20;
+
+	static final int FETCH_BATCH_SIZE = 100;
     
     public static final String TICKET_ATT_SUMMARY     = "summary";
     public static final String TICKET_ATT_COMPONENT   = "component";
@@ -99,6 +106,18 @@ public class TracTicket {
 		return modified;
 	}
 
+	/**
+	 * All attribute values (except number and dates) indexed by attribute name.
+	 */
+	Map<String, Object> getAttributes() {
+		Map<String, Object> result = new HashMap<>();
+		for (Object entry : attributes.entrySet()) {
+			Map.Entry<?, ?> attribute = (Map.Entry<?, ?>) entry;
+			result.put((String) attribute.getKey(), attribute.getValue());
+		}
+		return result;
+	}
+
 	public String getCc() {
 		return (String) attributes.get(TICKET_ATT_CC);
 	}
@@ -191,6 +210,37 @@ public class TracTicket {
         return this.attributes.put(aAttrName, aValue);
     }
     
+	/**
+	 * Fetches the given tickets with a single request per batch of tickets.
+	 * 
+	 * @return The fetched tickets indexed by their number. Tickets that do not exist are missing.
+	 * @throws XmlRpcException
+	 *         If a request fails.
+	 */
+	public static Map<Integer, TracTicket> getTickets(TracConnection trac, Collection<Integer> ticketNumbers)
+			throws XmlRpcException {
+		Map<Integer, TracTicket> result = new HashMap<Integer, TracTicket>();
+		List<Integer> numbers = new ArrayList<Integer>(ticketNumbers);
+		for (int start = 0, cnt = numbers.size(); start < cnt; start += FETCH_BATCH_SIZE) {
+			List<Integer> batch = numbers.subList(start, Math.min(cnt, start + FETCH_BATCH_SIZE));
+			List<Object[]> params = new ArrayList<Object[]>(batch.size());
+			for (Integer number : batch) {
+				params.add(new Object[] { number });
+			}
+
+			Object[] values = trac.multicall("ticket.get", params);
+			for (Object value : values) {
+				if (value instanceof Object[]) {
+					Object[] ticket = (Object[]) value;
+					result.put(
+						(Integer) ticket[0],
+						new TracTicket((Integer) ticket[0], (Date) ticket[1], (Date) ticket[2], (Map) ticket[3]));
+				}
+			}
+		}
+		return result;
+	}
+
     public static TracTicket getTicket(TracConnection trac, Integer aTicketNumber) {
         Ticket ticket = trac.getTicket();
 		int i = 0;
@@ -18,8 +18,12 @@
 package com.subcherry.util;
 
 import java.io.File;
-import java.util.Iterator;
-import java.util.TreeSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Keeps track of adds and removes to the file system when creating a merge.
@@ -29,14 +33,31 @@ import java.util.TreeSet;
  * operations before the merges are actually performed.
  * </p>
  * 
+ * <p>
+ * Adds and removes are recorded in a trie of path segments. Each operation marks the entry of its
+ * resource and drops all marks below. The existence of a resource is decided by the deepest mark
+ * on its path. Resources without marks are looked up in cached directory listings of the
+ * workspace.
+ * </p>
+ * 
  * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
  * @version $Revision$ $Author$ $Date$
  */
 public class VirtualFS {
 
-	private final TreeSet<String> _deletedPaths = new TreeSet<>();
+	private Entry _root = new Entry();
+
+	/**
+	 * Names in workspace directories indexed by the directory path relative to the workspace
+	 * root.
+	 */
+	private final Map<String, Set<String>> _listings = new HashMap<>();
 
-	private final TreeSet<String> _addedPaths = new TreeSet<>();
+	/**
+	 * Resources looked up in the workspace since the last {@link #clear()} mapped to whether they
+	 * exist.
+	 */
+	private final Map<String, Boolean> _workspaceQueries = new HashMap<>();
 
 	private File _workspaceRoot;
 
@@ -48,48 +69,60 @@ public class VirtualFS {
 		_workspaceRoot = workspaceRoot;
 	}
 
+	/**
+	 * Drops all recorded adds and removes.
+	 * 
+	 * <p>
+	 * Since the workspace is expected to be modified between merges, cached directory listings
+	 * are dropped as well.
+	 * </p>
+	 */
 	public void clear() {
-		_deletedPaths.clear();
-		_addedPaths.clear();
+		_root = new Entry();
+		_listings.clear();
+		_workspaceQueries.clear();
 	}
 
-	public void delete(String resource) {
-		removeDescendents(_deletedPaths, resource);
-		removeDescendentsOrSelf(_addedPaths, resource);
+	/**
+	 * Drops all recorded adds and removes, but keeps workspace lookups, since the workspace was
+	 * not modified.
+	 */
+	public void revert() {
+		_root = new Entry();
+	}
 
-		_deletedPaths.add(resource);
+	public void delete(String resource) {
+		mkEntry(resource).mark(Entry.DELETED);
 	}
 
 	public void add(String resource) {
-		removeDescendents(_addedPaths, resource);
-		removeDescendentsOrSelf(_deletedPaths, resource);
-
-		_addedPaths.add(resource);
+		mkEntry(resource).mark(Entry.ADDED);
 	}
 
 	public boolean exists(final String resource) {
-		if (_addedPaths.contains(resource)) {
-			// Some ancestor of the resource has been added.
-			return true;
+		byte state = _root.state();
+		Entry entry = _root;
+		int start = 0;
+		int length = pathLength(resource);
+		while (start <= length) {
+			int end = segmentEnd(resource, start, length);
+			entry = entry.getChild(resource.substring(start, end));
+			if (entry == null) {
+				break;
+			}
+			if (entry.state() != Entry.NONE) {
+				state = entry.state();
+			}
+			start = end + 1;
 		}
 
-		String ancestor = resource;
-		while (true) {
-			if (_deletedPaths.contains(ancestor)) {
+		switch (state) {
+			case Entry.DELETED:
 				return false;
-			}
-			if (_addedPaths.contains(ancestor)) {
+			case Entry.ADDED:
 				// There is no evidence that the added parent might not provide the resource in
 				// question.
 				return true;
-			}
-
-			int dirSeparatorIndex = ancestor.lastIndexOf('/');
-			if (dirSeparatorIndex < 0) {
-				break;
-			}
-
-			ancestor = ancestor.substring(0, dirSeparatorIndex);
 		}
 
 		if (_workspaceRoot == null) {
@@ -99,32 +132,148 @@ public class VirtualFS {
 
 		// If there is no change in the current commit to the requested path, the current workspace
 		// is up to date and the file system can be checked directly.
-		return new File(_workspaceRoot, resource).exists();
+		return existsInWorkspace(resource);
+	}
+
+	/**
+	 * Whether the given resource exists in the workspace, ignoring recorded adds and removes.
+	 */
+	public boolean existsInWorkspace(String resource) {
+		String path = resource.substring(0, pathLength(resource));
+		Boolean result = _workspaceQueries.get(path);
+		if (result == null) {
+			result = Boolean.valueOf(lookupWorkspace(path));
+			_workspaceQueries.put(path, result);
+		}
+		return result.booleanValue();
+	}
+
+	/**
+	 * All resources looked up in the workspace since the last {@link #clear()} mapped to whether
+	 * they exist.
+	 * 
+	 * <p>
+	 * Predictions made since the last {@link #clear()} are still valid, if the workspace
+	 * {@link #matchesWorkspace(Map) matches} these lookups.
+	 * </p>
+	 */
+	public Map<String, Boolean> getWorkspaceQueries() {
+		return new HashMap<>(_workspaceQueries);
+	}
+
+	/**
+	 * Whether all given resources still exist (or do not exist) in the workspace.
+	 * 
+	 * @param queries
+	 *        Result of {@link #getWorkspaceQueries()}.
+	 */
+	public boolean matchesWorkspace(Map<String, Boolean> queries) {
+		for (Map.Entry<String, Boolean> query : queries.entrySet()) {
+			if (existsInWorkspace(query.getKey()) != query.getValue().booleanValue()) {
+				return false;
+			}
+		}
+		return true;
 	}
 
-	private static void removeDescendentsOrSelf(TreeSet<String> paths, String resource) {
-		paths.remove(resource);
-		removeDescendents(paths, resource);
+	private boolean lookupWorkspace(String resource) {
+		int dirSeparatorIndex = resource.lastIndexOf('/');
+		if (dirSeparatorIndex < 0) {
+			return getListing("").contains(resource);
+		}
+		return getListing(resource.substring(0, dirSeparatorIndex)).contains(resource.substring(dirSeparatorIndex + 1));
 	}
 
-	private static void removeDescendents(TreeSet<String> paths, String resource) {
-		String dirPrefix = prefix(resource);
-		Iterator<String> descendents = paths.tailSet(dirPrefix, false).iterator();
-		while (descendents.hasNext()) {
-			String potentialDescendent = descendents.next();
-			if (potentialDescendent.startsWith(dirPrefix)) {
-				descendents.remove();
+	private Set<String> getListing(String dir) {
+		Set<String> result = _listings.get(dir);
+		if (result == null) {
+			String[] names = new File(_workspaceRoot, dir).list();
+			if (names == null) {
+				// Not a directory.
+				result = Collections.emptySet();
 			} else {
-				break;
+				result = new HashSet<>(Arrays.asList(names));
 			}
+			_listings.put(dir, result);
+		}
+		return result;
+	}
+
+	private Entry mkEntry(String resource) {
+		Entry entry = _root;
+		int start = 0;
+		int length = pathLength(resource);
+		while (start <= length) {
+			int end = segmentEnd(resource, start, length);
+			entry = entry.mkChild(resource.substring(start, end));
+			start = end + 1;
+		}
+		return entry;
+	}
+
+	/**
+	 * The length of the given resource path without a trailing separator.
+	 */
+	private static int pathLength(String resource) {
+		int length = resource.length();
+		if (length > 0 && resource.charAt(length - 1) == '/') {
+			return length - 1;
 		}
+		return length;
 	}
 
-	private static String prefix(String resource) {
-		if (resource.endsWith("/")) {
-			return resource;
-		} else {
-			return resource + '/';
+	private static int segmentEnd(String resource, int start, int length) {
+		int end = resource.indexOf('/', start);
+		if (end < 0 || end > length) {
+			return length;
+		}
+		return end;
+	}
+
+	/**
+	 * Node in the path trie of a {@link VirtualFS}.
+	 */
+	private static final class Entry {
+
+		static final byte NONE = 0;
+
+		static final byte ADDED = 1;
+
+		static final byte DELETED = 2;
+
+		private byte _state = NONE;
+
+		private Map<String, Entry> _children;
+
+		public byte state() {
+			return _state;
+		}
+
+		/**
+		 * Sets the state of this entry and drops all entries below.
+		 */
+		public void mark(byte state) {
+			_state = state;
+			_children = null;
+		}
+
+		public Entry getChild(String name) {
+			if (_children == null) {
+				return null;
+			}
+			return _children.get(name);
+		}
+
+		public Entry mkChild(String name) {
+			if (_children == null) {
+				_children = new HashMap<>();
+			}
+			Entry result = _children.get(name);
+			if (result == null) {
+				result = new Entry();
+				_children.put(name, result);
+			}
+			return result;
 		}
 	}
 
@@ -0,0 +1,164 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+import test.com.subcherry.trac.TracStub;
+
+import com.subcherry.Configuration.DependencyReport;
+import com.subcherry.ConflictReport;
+import com.subcherry.ReportPrinter;
+import com.subcherry.history.Change;
+import com.subcherry.history.DependencyBuilder.Dependency;
+import com.subcherry.history.History;
+import com.subcherry.history.Node;
+import com.subcherry.history.Node.Kind;
+import com.subcherry.trac.TicketStub;
+
+import de.haumacher.common.config.ValueFactory;
+
+/**
+ * Test case for {@link ConflictReport}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestConflictReport extends TestCase {
+
+	private TracStub _trac;
+
+	private History _history;
+
+	private PrintStream _out;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		TicketStub.setCache(null);
+		_trac = new TracStub();
+		_history = new History(1);
+		_out = System.out;
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		System.setOut(_out);
+		_trac = null;
+		_history = null;
+		_out = null;
+
+		super.tearDown();
+	}
+
+	public void testPrint() {
+		_trac.addTicket(5001, "First ticket", "1.0");
+
+		Change add = _history.createChange(1, "alice", new Date(), "Ticket #5001: Add files.");
+		_history.addedNode(Kind.FILE, "/source/a", add, null, 0);
+		_history.addedNode(Kind.FILE, "/source/b", add, null, 0);
+		Change fix = _history.createChange(2, "bob", new Date(), "Fix \"quoted\"\u0001 path\\name.\n\tSecond line.");
+		_history.modifiedNode(Kind.FILE, "/source/a", fix);
+		Change delete = _history.createChange(3, "carol", new Date(), "Ticket #5001: Delete file.");
+		_history.deletedNode(Kind.FILE, "/source/b", delete);
+		Change merged = _history.createChange(4, "dave", new Date(), "Ticket #5002: Merged change.");
+		_history.modifiedNode(Kind.FILE, "/source/a", merged);
+
+		Node a = _history.getNodes("/source/a").get(0);
+		Node b = _history.getNodes("/source/b").get(0);
+		assertFalse(b.isAlive());
+		Dependency dependency = new Dependency(merged);
+		dependency.add(Collections.singleton(add), b);
+		dependency.add(Collections.singleton(add), a);
+		dependency.add(Collections.singleton(fix), a);
+
+		ConflictReport report = new ConflictReport(_trac.createConnection(),
+			ValueFactory.newInstance(DependencyReport.class));
+		report.add(dependency);
+
+		ByteArrayOutputStream text = new ByteArrayOutputStream();
+		StringWriter json = new StringWriter();
+		System.setOut(new PrintStream(text, true));
+		ReportPrinter printer = new ReportPrinter();
+		report.print(printer, new PrintWriter(json));
+		System.setOut(_out);
+
+		assertTrue(printer.hasConflictsReported());
+		assertEquals(Arrays.asList(
+			"= Conflict Report =",
+			"== Without ticket ==",
+			"[2]: Fix \"quoted\"\u0001 path\\name. Second line. (bob)",
+			" * /source/a",
+			"    * [4]: Ticket #5002: Merged change. (dave)",
+			"",
+			"== Ticket #5001 -/1.0: First ticket (closed) ==",
+			"[1]: Ticket #5001: Add files. (alice)",
+			" * /source/a",
+			"    * [4]: Ticket #5002: Merged change. (dave)",
+			" * /source/b (deleted in [3])",
+			"    * [4]: Ticket #5002: Merged change. (dave)",
+			""), lines(text.toString()));
+
+		String conflict = "\"conflicts\":[{\"revision\":4,\"author\":\"dave\",\"message\":\"Ticket #5002: Merged change.\"}]";
+		assertEquals(Arrays.asList(
+			"{\"ticket\":null,\"milestone\":null,"
+				+ "\"missing\":{\"revision\":2,\"author\":\"bob\","
+				+ "\"message\":\"Fix \\\"quoted\\\"\\u0001 path\\\\name.\\n\\tSecond line.\"},"
+				+ "\"path\":\"/source/a\"," + conflict + "}",
+			"{\"ticket\":\"5001\",\"milestone\":\"1.0\","
+				+ "\"missing\":{\"revision\":1,\"author\":\"alice\",\"message\":\"Ticket #5001: Add files.\"},"
+				+ "\"path\":\"/source/a\"," + conflict + "}",
+			"{\"ticket\":\"5001\",\"milestone\":\"1.0\","
+				+ "\"missing\":{\"revision\":1,\"author\":\"alice\",\"message\":\"Ticket #5001: Add files.\"},"
+				+ "\"path\":\"/source/b\",\"deleted\":3," + conflict + "}"),
+			lines(json.toString()));
+	}
+
+	public void testPrintEmpty() {
+		ConflictReport report = new ConflictReport(_trac.createConnection(),
+			ValueFactory.newInstance(DependencyReport.class));
+
+		ByteArrayOutputStream text = new ByteArrayOutputStream();
+		StringWriter json = new StringWriter();
+		System.setOut(new PrintStream(text, true));
+		ReportPrinter printer = new ReportPrinter();
+		report.print(printer, new PrintWriter(json));
+		System.setOut(_out);
+
+		assertFalse(printer.hasConflictsReported());
+		assertEquals(Arrays.asList("= Conflict Report =", "No conflicts detected."), lines(text.toString()));
+		assertEquals("", json.toString());
+	}
+
+	private static List<String> lines(String output) {
+		List<String> result = Arrays.asList(output.split("\\r?\\n", -1));
+		// Drop the empty remainder after the last line separator.
+		return result.subList(0, result.size() - 1);
+	}
+
+}
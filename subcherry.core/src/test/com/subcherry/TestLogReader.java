@@ -0,0 +1,239 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import com.subcherry.LogReader;
+import com.subcherry.repository.command.Client;
+import com.subcherry.repository.command.log.LogEntryHandler;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.LogEntryPath;
+import com.subcherry.repository.core.RepositoryException;
+import com.subcherry.repository.core.RepositoryURL;
+import com.subcherry.repository.core.Revision;
+
+/**
+ * Test case for reading the log in concurrent shards with {@link LogReader}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestLogReader extends TestCase {
+
+	private static final RepositoryURL URL = RepositoryURL.parse("http://localhost/repos");
+
+	private static final String[] PATHS = { "/branches/b", "/branches/b/m1", "/branches/b/m2" };
+
+	private static final Long[] REVISIONS = { 2L, 3L, 5L, 8L, 9L, 13L, 17L, 20L };
+
+	public void testShardsByRevisionRange() throws RepositoryException {
+		TestClient client = new TestClient(20, REVISIONS);
+		// All shards must run at the same time to pass the barrier.
+		client.setBarrier(new CyclicBarrier(3));
+
+		List<Long> revisions = readLog(client, 3, Revision.create(1), Revision.HEAD);
+
+		assertEquals(Arrays.asList(REVISIONS), revisions);
+		assertEquals(Arrays.asList("HEAD:HEAD", "1:6", "7:13", "14:20"), client.getRequests());
+	}
+
+	public void testDuplicatesSkipped() throws RepositoryException {
+		TestClient client = new TestClient(20, REVISIONS);
+		client.setReportPrevious(true);
+
+		List<Long> revisions = readLog(client, 4, Revision.create(1), Revision.create(20));
+
+		assertEquals(Arrays.asList(REVISIONS), revisions);
+		assertEquals(Arrays.asList("1:5", "6:10", "11:15", "16:20"), client.getRequests());
+	}
+
+	public void testLessRevisionsThanShards() throws RepositoryException {
+		TestClient client = new TestClient(20, REVISIONS);
+
+		List<Long> revisions = readLog(client, 4, Revision.create(19), Revision.create(20));
+
+		assertEquals(Arrays.asList(20L), revisions);
+		assertEquals(Arrays.asList("19:19", "20:20"), client.getRequests());
+	}
+
+	public void testNotShardedWithLimit() throws RepositoryException {
+		TestClient client = new TestClient(20, REVISIONS);
+		LogReader reader = createReader(client, 4);
+		reader.setLimit(2);
+		reader.setStartRevision(Revision.create(1));
+		reader.setEndRevision(Revision.create(20));
+
+		LogCollector log = new LogCollector();
+		reader.readLog(PATHS, log);
+
+		assertEquals(Arrays.asList(2L, 3L), log.getRevisions());
+		assertEquals(Arrays.asList("1:20"), client.getRequests());
+	}
+
+	private static List<Long> readLog(TestClient client, int shards, Revision start, Revision end)
+			throws RepositoryException {
+		LogReader reader = createReader(client, shards);
+		reader.setStartRevision(start);
+		reader.setEndRevision(end);
+
+		LogCollector log = new LogCollector();
+		reader.readLog(PATHS, log);
+		return log.getRevisions();
+	}
+
+	private static LogReader createReader(TestClient client, int shards) {
+		LogReader reader = new LogReader(client.getClient(), URL);
+		reader.setPegRevision(Revision.HEAD);
+		reader.setDiscoverChangedPaths(true);
+		reader.setShards(shards);
+		return reader;
+	}
+
+	static final class LogCollector implements LogEntryHandler {
+
+		private final List<Long> _revisions = new ArrayList<>();
+
+		@Override
+		public void handleLogEntry(LogEntry logEntry) {
+			_revisions.add(logEntry.getRevision());
+		}
+
+		public List<Long> getRevisions() {
+			return _revisions;
+		}
+	}
+
+	static final class TestClient {
+
+		private final long _head;
+
+		private final List<Long> _revisions;
+
+		private final List<String> _requests = Collections.synchronizedList(new ArrayList<String>());
+
+		private final Client _client;
+
+		private CyclicBarrier _barrier;
+
+		private boolean _reportPrevious;
+
+		public TestClient(long head, Long... revisions) {
+			_head = head;
+			_revisions = Arrays.asList(revisions);
+			_client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[] { Client.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+						if (method.getName().equals("log") && args.length == 9) {
+							log((String[]) args[1], (Revision) args[3], (Revision) args[4], (Long) args[7], (LogEntryHandler) args[8]);
+							return null;
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		}
+
+		public Client getClient() {
+			return _client;
+		}
+
+		public void setBarrier(CyclicBarrier barrier) {
+			_barrier = barrier;
+		}
+
+		/**
+		 * Whether the last revision before the requested range is reported, too.
+		 */
+		public void setReportPrevious(boolean reportPrevious) {
+			_reportPrevious = reportPrevious;
+		}
+
+		/**
+		 * The requested revision ranges in the order of the requests, head requests first.
+		 */
+		public List<String> getRequests() {
+			List<String> result = new ArrayList<>(_requests);
+			Collections.sort(result, new Comparator<String>() {
+				@Override
+				public int compare(String r1, String r2) {
+					return Long.compare(start(r1), start(r2));
+				}
+
+				private long start(String request) {
+					return request.startsWith("HEAD") ? -1 : Long.parseLong(request.substring(0, request.indexOf(':')));
+				}
+			});
+			return result;
+		}
+
+		void log(String[] paths, Revision start, Revision end, long limit, LogEntryHandler handler)
+				throws Exception {
+			if (start.kind() == Revision.Kind.HEAD) {
+				_requests.add("HEAD:HEAD");
+				handler.handleLogEntry(entry(_head));
+				return;
+			}
+			// Each shard reads the log of all paths.
+			assertEquals(Arrays.asList(PATHS), Arrays.asList(paths));
+			_requests.add(start.getNumber() + ":" + end.getNumber());
+			if (_barrier != null) {
+				_barrier.await(10, TimeUnit.SECONDS);
+			}
+
+			int cnt = 0;
+			long previous = -1;
+			for (Long revision : _revisions) {
+				if (revision < start.getNumber()) {
+					previous = revision;
+					continue;
+				}
+				if (revision > end.getNumber()) {
+					break;
+				}
+				if (_reportPrevious && previous > 0) {
+					handler.handleLogEntry(entry(previous));
+					previous = -1;
+				}
+				handler.handleLogEntry(entry(revision));
+				if (limit > 0 && ++cnt == limit) {
+					break;
+				}
+			}
+		}
+
+		private static LogEntry entry(long revision) {
+			return new LogEntry(Collections.<String, LogEntryPath> emptyMap(), revision, "", new Date(),
+				"Revision " + revision, false);
+		}
+	}
+
+}
@@ -0,0 +1,391 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.subcherry.CommitSet;
+import com.subcherry.Configuration;
+import com.subcherry.MergeCommitHandler;
+import com.subcherry.commit.Commit;
+import com.subcherry.merge.MergePlanner;
+import com.subcherry.repository.command.Client;
+import com.subcherry.repository.command.ClientManager;
+import com.subcherry.repository.command.Command;
+import com.subcherry.repository.command.OperationFactory;
+import com.subcherry.repository.command.Settings;
+import com.subcherry.repository.command.merge.CommandContext;
+import com.subcherry.repository.command.merge.CommandExecutor;
+import com.subcherry.repository.command.merge.ConflictAction;
+import com.subcherry.repository.command.merge.ConflictDescription;
+import com.subcherry.repository.command.merge.ConflictReason;
+import com.subcherry.repository.command.merge.MergeOperation;
+import com.subcherry.repository.command.merge.TreeConflictDescription;
+import com.subcherry.repository.command.wc.LocalMkDir;
+import com.subcherry.repository.core.CommitInfo;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.LogEntryPath;
+import com.subcherry.repository.core.RepositoryException;
+import com.subcherry.repository.core.Target;
+import com.subcherry.repository.impl.DefaultOperationFactory;
+import com.subcherry.utils.Utils;
+
+import de.haumacher.common.config.ValueFactory;
+
+/**
+ * Test case for committing conflict-free revisions in groups with {@link MergeCommitHandler}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestMergeCommitHandler extends TestCase {
+
+	private static final File ROOT = new File("/workspace");
+
+	private static final File RESTART_FILE = new File("conf/restart.properties");
+
+	private static final long FIRST_COMMIT = 1001;
+
+	private TestClientManager _clientManager;
+
+	private Configuration _config;
+
+	private MergeCommitHandler _handler;
+
+	private BufferedReader _systemIn;
+
+	private byte[] _restart;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		_clientManager = new TestClientManager();
+		_config = ValueFactory.newInstance(Configuration.class);
+		_config.setWorkspaceRoot(ROOT);
+		_config.setAutoCommit(true);
+		_config.setStopOnRevisions(new ArrayList<Long>());
+		_systemIn = Utils.SYSTEM_IN;
+		// Keep the restart point of a real run.
+		_restart = RESTART_FILE.exists() ? Files.readAllBytes(RESTART_FILE.toPath()) : null;
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (_restart != null) {
+			Files.write(RESTART_FILE.toPath(), _restart);
+		} else {
+			RESTART_FILE.delete();
+		}
+		Utils.SYSTEM_IN = _systemIn;
+		_systemIn = null;
+		_handler = null;
+		_config = null;
+		_clientManager = null;
+
+		super.tearDown();
+	}
+
+	public void testGroup() throws RepositoryException {
+		_config.setCommitGroupSize(2);
+
+		run(1, 2, 3);
+
+		assertEquals(Arrays.asList(1L, 2L, 3L), _clientManager.getExecuted());
+		assertEquals(Arrays.asList("Revision 1\nRevision 2", "Revision 3"), _clientManager.getCommitted());
+		assertRewritten(FIRST_COMMIT, 1, 2);
+		assertRewritten(FIRST_COMMIT + 1, 3);
+	}
+
+	public void testConflictMergesGroup() throws RepositoryException {
+		_config.setCommitGroupSize(3);
+		_clientManager.setConflict(2);
+		input("commit");
+
+		run(1, 2, 3);
+
+		assertEquals(Arrays.asList(1L, 2L, 3L), _clientManager.getExecuted());
+		// Following revisions are committed one by one.
+		assertEquals(Arrays.asList("Revision 1\nRevision 2", "Revision 3"), _clientManager.getCommitted());
+		assertRewritten(FIRST_COMMIT, 1, 2);
+		assertRewritten(FIRST_COMMIT + 1, 3);
+	}
+
+	public void testReapplyGroupOnConflict() throws RepositoryException {
+		_config.setCommitGroupSize(3);
+		_clientManager.setConflict(2);
+		input("re-apply", "commit");
+
+		run(1, 2, 3);
+
+		// All revisions of the group are re-applied, not only the conflicting one.
+		assertEquals(Arrays.asList(1L, 2L, 1L, 2L, 3L), _clientManager.getExecuted());
+		assertEquals(Arrays.asList("Revision 1\nRevision 2", "Revision 3"), _clientManager.getCommitted());
+		assertRewritten(FIRST_COMMIT, 1, 2);
+	}
+
+	public void testSkipGroupOnConflict() throws RepositoryException {
+		_config.setCommitGroupSize(3);
+		_clientManager.setConflict(2);
+		input("skip");
+
+		run(1, 2, 3);
+
+		assertEquals(Arrays.asList("Revision 3"), _clientManager.getCommitted());
+		assertRewritten(1, 1);
+		assertRewritten(2, 2);
+		assertRewritten(FIRST_COMMIT, 3);
+	}
+
+	public void testReapplyGroupOnCommitFailure() throws RepositoryException {
+		_config.setCommitGroupSize(2);
+		_clientManager.setCommitFailures(1);
+		input("re-apply");
+
+		run(1, 2, 3);
+
+		assertEquals(Arrays.asList(1L, 2L, 1L, 2L, 3L), _clientManager.getExecuted());
+		// Grouping is switched off after the failure.
+		assertEquals(Arrays.asList("Revision 1\nRevision 2", "Revision 3"), _clientManager.getCommitted());
+		assertRewritten(FIRST_COMMIT, 1, 2);
+		assertRewritten(FIRST_COMMIT + 1, 3);
+	}
+
+	private void run(long... revisions) throws RepositoryException {
+		MergeCommitHandler handler = new MergeCommitHandler(null, _clientManager, _config);
+		TestPlanner planner = new TestPlanner();
+		handler.setPlanner(planner);
+
+		List<CommitSet> commitSets = new ArrayList<>();
+		for (long revision : revisions) {
+			LogEntry logEntry = logEntry(revision);
+			planner.addMerge(logEntry, mkDirMerge(revision));
+
+			Commit commit = new Commit(_config, logEntry, null);
+			commit.setCommitMessage(logEntry.getMessage());
+			commitSets.add(new CommitSet(logEntry, commit));
+		}
+		handler.run(commitSets);
+		_handler = handler;
+	}
+
+	private void assertRewritten(long expected, long... revisions) {
+		for (long revision : revisions) {
+			assertEquals(expected, _handler.getRevisionRewriter().rewrite(revision));
+		}
+	}
+
+	private static void input(String... lines) {
+		StringBuilder input = new StringBuilder();
+		for (String line : lines) {
+			input.append(line);
+			input.append('\n');
+		}
+		Utils.SYSTEM_IN = new BufferedReader(new StringReader(input.toString()));
+	}
+
+	private MergeOperation mkDirMerge(long revision) {
+		LocalMkDir command = _clientManager.getOperationsFactory().newLocalMkDir();
+		command.setTarget(Target.fromFile(file(revision)));
+		Set<String> touchedResources = Collections.singleton("module/" + revision);
+		return new MergeOperation(revision, Collections.<Command> singletonList(command), touchedResources);
+	}
+
+	private static LogEntry logEntry(long revision) {
+		return new LogEntry(Collections.<String, LogEntryPath> emptyMap(), revision, "", new Date(),
+			"Revision " + revision, false);
+	}
+
+	static File file(long revision) {
+		return new File(ROOT, "module/" + revision);
+	}
+
+	static long revision(File file) {
+		return Long.parseLong(file.getName());
+	}
+
+	static final class TestPlanner extends MergePlanner {
+
+		private final Map<LogEntry, MergeOperation> _merges = new HashMap<>();
+
+		public TestPlanner() {
+			super(null, ROOT, 1);
+		}
+
+		public void addMerge(LogEntry logEntry, MergeOperation merge) {
+			_merges.put(logEntry, merge);
+		}
+
+		@Override
+		public synchronized void schedule(List<LogEntry> entries) {
+			// Ignore.
+		}
+
+		@Override
+		public synchronized MergeOperation getMerge(LogEntry logEntry) {
+			return _merges.get(logEntry);
+		}
+
+		@Override
+		public synchronized void reset() {
+			// Ignore.
+		}
+
+		@Override
+		public synchronized void shutdown() {
+			// Ignore.
+		}
+	}
+
+	static final class TestClientManager implements ClientManager {
+
+		private final List<Long> _executed = new ArrayList<>();
+
+		private final List<String> _committed = new ArrayList<>();
+
+		private final Set<Long> _conflicts = new HashSet<>();
+
+		private int _commitFailures;
+
+		private final OperationFactory _operations = new DefaultOperationFactory() {
+			private final CommandExecutor _executor = new TestExecutor();
+
+			@Override
+			public CommandExecutor getExecutor() {
+				return _executor;
+			}
+
+			@Override
+			public Settings settings() {
+				return new Settings() {
+					@Override
+					public void setSleepForTimestamp(boolean value) {
+						// Ignore.
+					}
+				};
+			}
+		};
+
+		private final Client _client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(),
+			new Class<?>[] { Client.class }, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+					switch (method.getName()) {
+						case "commit":
+							return commit((String) args[2]);
+						case "update":
+							return null;
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				}
+			});
+
+		public void setConflict(long revision) {
+			_conflicts.add(revision);
+		}
+
+		public void setCommitFailures(int commitFailures) {
+			_commitFailures = commitFailures;
+		}
+
+		public List<Long> getExecuted() {
+			return _executed;
+		}
+
+		public List<String> getCommitted() {
+			return _committed;
+		}
+
+		@Override
+		public OperationFactory getOperationsFactory() {
+			return _operations;
+		}
+
+		@Override
+		public Client getClient() {
+			return _client;
+		}
+
+		@Override
+		public void close() {
+			// Ignore.
+		}
+
+		CommitInfo commit(String message) throws RepositoryException {
+			if (_commitFailures > 0) {
+				_commitFailures--;
+				throw new RepositoryException(new IOException("Commit failed."));
+			}
+			_committed.add(message);
+			final long newRevision = FIRST_COMMIT + _committed.size() - 1;
+			return new CommitInfo() {
+				@Override
+				public long getNewRevision() {
+					return newRevision;
+				}
+			};
+		}
+
+		final class TestExecutor extends CommandExecutor {
+
+			@Override
+			public CommandContext createContext() {
+				final Map<File, List<ConflictDescription>> conflicts = new HashMap<>();
+				return new CommandContext() {
+					@Override
+					public Map<File, List<ConflictDescription>> getConflicts() {
+						return conflicts;
+					}
+				};
+			}
+
+			@Override
+			public void execute(CommandContext context, Command command) {
+				File file = ((Target.FileTarget) ((LocalMkDir) command).getTarget()).getFile();
+				long revision = revision(file);
+				_executed.add(revision);
+				if (_conflicts.contains(revision)) {
+					context.getConflicts().put(file,
+						Collections.<ConflictDescription> singletonList(
+							new TreeConflictDescription(ConflictAction.ADDED, ConflictReason.OBSTRUCTED)));
+				}
+			}
+		}
+	}
+
+}
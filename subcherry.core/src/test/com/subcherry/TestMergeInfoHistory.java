@@ -0,0 +1,284 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+import com.subcherry.MergeInfoHistory;
+import com.subcherry.repository.command.Client;
+import com.subcherry.repository.command.wc.PropertyHandler;
+import com.subcherry.repository.core.ChangeType;
+import com.subcherry.repository.core.Depth;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.LogEntryPath;
+import com.subcherry.repository.core.NodeKind;
+import com.subcherry.repository.core.PropertyData;
+import com.subcherry.repository.core.PropertyValue;
+import com.subcherry.repository.core.RepositoryException;
+import com.subcherry.repository.core.RepositoryURL;
+import com.subcherry.repository.core.Revision;
+import com.subcherry.repository.core.RevisionRange;
+
+/**
+ * Test case for computing merge info diffs with {@link MergeInfoHistory}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestMergeInfoHistory extends TestCase {
+
+	private static final RepositoryURL URL = RepositoryURL.parse("http://localhost/repos");
+
+	private static final String[] LOGGED_PATHS = { "/branches" };
+
+	private TestRepository _repository;
+
+	private List<LogEntry> _log;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		_repository = new TestRepository();
+		_log = new ArrayList<>();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		_repository = null;
+		_log = null;
+
+		super.tearDown();
+	}
+
+	public void testCopyWithExistingMergeInfo() throws RepositoryException {
+		commit(1, added("/branches/b1"), added("/branches/b1/m1"));
+		commit(2, modified("/branches/b1/m1"));
+		_repository.setMergeInfo(2, "/branches/b1/m1", "/trunk/m1:10-12");
+
+		// Branch copied and a merge recorded in the same revision.
+		commit(3, copied("/branches/b2", "/branches/b1", 2), modified("/branches/b2/m1"));
+		_repository.setMergeInfo(3, "/branches/b2/m1", "/trunk/m1:10-13");
+
+		commit(4, modified("/branches/b1/m1"));
+		_repository.setMergeInfo(4, "/branches/b1/m1", "/trunk/m1:10-12,15");
+
+		// Module copied from an older revision with an additional merge.
+		commit(5, added("/branches/b3"), copied("/branches/b3/m1", "/branches/b2/m1", 3));
+		_repository.setMergeInfo(5, "/branches/b3/m1", "/trunk/m1:10-13,17");
+
+		Map<String, Set<Long>> revisions = new HashMap<>();
+		revisions.put("/branches/b2/m1", set(3L));
+		revisions.put("/branches/b3/m1", set(5L));
+		MergeInfoHistory history = analyze(revisions);
+
+		// Merge info inherited from the copy source was not recorded in the copy revision.
+		assertEquals(diff("/trunk/m1", range(13, 13)), history.getMergeInfoDiff("/branches/b2/m1", 3));
+		assertEquals(diff("/trunk/m1", range(17, 17)), history.getMergeInfoDiff("/branches/b3/m1", 5));
+	}
+
+	public void testRequestCount() throws RepositoryException {
+		commit(1, added("/branches/b"), added("/branches/b/m1"), added("/branches/b/m2"), added("/branches/b/m3"));
+		merge(2, "2", "m1", "m2", "m3");
+		merge(3, "2-3", "m1", "m2", "m3");
+
+		// Not analyzed, the value before revision 5 must be requested explicitly.
+		commit(4, modified("/branches/b/m2"));
+		_repository.setMergeInfo(4, "/branches/b/m2", "/trunk/m2:2-3,4");
+
+		merge(5, "2-3,5", "m1", "m3");
+		merge(5, "2-3,4-5", "m2");
+
+		Map<String, Set<Long>> revisions = new HashMap<>();
+		int candidates = 0;
+		for (String module : Arrays.asList("m1", "m2", "m3")) {
+			revisions.put("/branches/b/" + module, set(2L, 3L, 5L));
+			candidates += 3;
+		}
+		MergeInfoHistory history = analyze(revisions);
+
+		for (String module : Arrays.asList("m1", "m2", "m3")) {
+			String path = "/branches/b/" + module;
+			assertEquals(diff("/trunk/" + module, range(2, 2)), history.getMergeInfoDiff(path, 2));
+			assertEquals(diff("/trunk/" + module, range(3, 3)), history.getMergeInfoDiff(path, 3));
+			assertEquals(diff("/trunk/" + module, range(5, 5)), history.getMergeInfoDiff(path, 5));
+		}
+
+		// Requesting a merge info diff for each analyzed revision requires one request per
+		// candidate. The values of all modules are fetched with a single request per revision
+		// (1, 2, 3 and 5), only the value of m2 before revision 5 is requested separately.
+		assertEquals(9, candidates);
+		assertEquals(5, _repository.getRequests());
+	}
+
+	private MergeInfoHistory analyze(Map<String, Set<Long>> revisions) throws RepositoryException {
+		MergeInfoHistory history = new MergeInfoHistory(_repository.getClient(), URL);
+		history.analyze(_log, LOGGED_PATHS, revisions);
+		return history;
+	}
+
+	private void merge(long revision, String ranges, String... modules) {
+		Map<String, LogEntryPath> changedPaths = changedPaths(revision);
+		for (String module : modules) {
+			String path = "/branches/b/" + module;
+			LogEntryPath changedPath = modified(path);
+			changedPaths.put(changedPath.getPath(), changedPath);
+			_repository.setMergeInfo(revision, path, "/trunk/" + module + ":" + ranges);
+		}
+	}
+
+	private void commit(long revision, LogEntryPath... paths) {
+		Map<String, LogEntryPath> changedPaths = changedPaths(revision);
+		for (LogEntryPath path : paths) {
+			changedPaths.put(path.getPath(), path);
+		}
+	}
+
+	private Map<String, LogEntryPath> changedPaths(long revision) {
+		if (!_log.isEmpty()) {
+			LogEntry last = _log.get(_log.size() - 1);
+			if (last.getRevision() == revision) {
+				return last.getChangedPaths();
+			}
+		}
+		Map<String, LogEntryPath> result = new LinkedHashMap<>();
+		_log.add(new LogEntry(result, revision, "", new Date(), "Revision " + revision, false));
+		return result;
+	}
+
+	private static LogEntryPath added(String path) {
+		return new LogEntryPath(NodeKind.DIR, path, ChangeType.ADDED, null, 0);
+	}
+
+	private static LogEntryPath copied(String path, String copyPath, long copyRevision) {
+		return new LogEntryPath(NodeKind.DIR, path, ChangeType.ADDED, copyPath, copyRevision);
+	}
+
+	private static LogEntryPath modified(String path) {
+		return new LogEntryPath(NodeKind.DIR, path, ChangeType.MODIFIED, null, 0);
+	}
+
+	private static Map<String, List<RevisionRange>> diff(String source, RevisionRange... ranges) {
+		return Collections.singletonMap(source, Arrays.asList(ranges));
+	}
+
+	private static RevisionRange range(long first, long last) {
+		return RevisionRange.create(Revision.create(first - 1), Revision.create(last));
+	}
+
+	private static Set<Long> set(Long... revisions) {
+		return new HashSet<>(Arrays.asList(revisions));
+	}
+
+	static final class TestRepository {
+
+		/**
+		 * Merge info values indexed by path and the revision in which they were set.
+		 */
+		private final Map<String, TreeMap<Long, String>> _mergeInfo = new HashMap<>();
+
+		private final Client _client;
+
+		private int _requests;
+
+		public TestRepository() {
+			_client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[] { Client.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+						if (method.getName().equals("getProperty") && args[0] instanceof RepositoryURL) {
+							_requests++;
+							RepositoryURL url = (RepositoryURL) args[0];
+							assertEquals(MergeInfoHistory.MERGE_INFO_PROPERTY, args[1]);
+							Revision revision = (Revision) args[3];
+							assertEquals(revision, args[2]);
+							if (args.length == 4) {
+								return getProperty(path(url), revision.getNumber());
+							}
+							assertEquals(Depth.IMMEDIATES, args[4]);
+							getProperties(path(url), revision.getNumber(), (PropertyHandler) args[5]);
+							return null;
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		}
+
+		public Client getClient() {
+			return _client;
+		}
+
+		public int getRequests() {
+			return _requests;
+		}
+
+		public void setMergeInfo(long revision, String path, String value) {
+			TreeMap<Long, String> values = _mergeInfo.get(path);
+			if (values == null) {
+				values = new TreeMap<>();
+				_mergeInfo.put(path, values);
+			}
+			values.put(revision, value);
+		}
+
+		PropertyData getProperty(String path, long revision) {
+			TreeMap<Long, String> values = _mergeInfo.get(path);
+			if (values == null) {
+				return null;
+			}
+			Entry<Long, String> value = values.floorEntry(revision);
+			if (value == null) {
+				return null;
+			}
+			return new PropertyData(MergeInfoHistory.MERGE_INFO_PROPERTY, PropertyValue.create(value.getValue()));
+		}
+
+		void getProperties(String directory, long revision, PropertyHandler handler) {
+			for (String path : _mergeInfo.keySet()) {
+				if (path.equals(directory) || path.substring(0, path.lastIndexOf('/')).equals(directory)) {
+					PropertyData property = getProperty(path, revision);
+					if (property != null) {
+						handler.handleProperty(URL.appendPath(path), property);
+					}
+				}
+			}
+		}
+
+		private static String path(RepositoryURL url) {
+			return url.getPath().substring(URL.getPath().length());
+		}
+	}
+
+}
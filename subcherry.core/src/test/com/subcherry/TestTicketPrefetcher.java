@@ -0,0 +1,152 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+import test.com.subcherry.trac.TracStub;
+
+import com.subcherry.TicketPrefetcher;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.LogEntryPath;
+import com.subcherry.trac.TicketStub;
+import com.subcherry.trac.TracConnection;
+import com.subcherry.trac.TracTicket;
+
+/**
+ * Test case for fetching tickets in the background with {@link TicketPrefetcher}.
+ *
+ * <p>
+ * Since {@link TicketStub} keeps fetched tickets in static maps, each test uses its own range of
+ * ticket numbers.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestTicketPrefetcher extends TestCase {
+
+	private TracStub _trac;
+
+	private TracConnection _connection;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		TicketStub.setCache(null);
+		_trac = new TracStub();
+		_connection = _trac.createConnection();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		_trac.release();
+		_trac = null;
+		_connection = null;
+
+		super.tearDown();
+	}
+
+	public void testGetTicketWaitsForPendingBatch() throws InterruptedException {
+		_trac.addTicket(1001, "First");
+		_trac.block(1001);
+
+		TicketPrefetcher prefetcher = new TicketPrefetcher(_connection, 2);
+		prefetcher.handleLogEntry(entry(1, 1001));
+		prefetcher.flush();
+
+		final AtomicReference<TracTicket> result = new AtomicReference<>();
+		Thread lookup = new Thread() {
+			@Override
+			public void run() {
+				result.set(TicketStub.getTicket(_connection, 1001));
+			}
+		};
+		lookup.start();
+		lookup.join(300);
+		assertTrue("Lookup does not wait for the pending batch.", lookup.isAlive());
+
+		_trac.release();
+		lookup.join(10000);
+		assertFalse(lookup.isAlive());
+		assertEquals("First", result.get().getSummary());
+		assertEquals("Ticket fetched twice.", Arrays.asList("system.multicall 1"), _trac.getRequests());
+
+		prefetcher.close();
+	}
+
+	public void testFailedBatchFallsBackToSingleFetch() {
+		_trac.addTicket(2001, "First");
+		_trac.addTicket(2002, "Second");
+		_trac.setFailBatches(true);
+
+		TicketPrefetcher prefetcher = new TicketPrefetcher(_connection, 2);
+		prefetcher.handleLogEntry(entry(1, 2001));
+		prefetcher.handleLogEntry(entry(2, 2002));
+		prefetcher.close();
+
+		assertEquals("First", TicketStub.getTicket(_connection, 2001).getSummary());
+		assertEquals("Second", TicketStub.getTicket(_connection, 2002).getSummary());
+		assertEquals(Arrays.asList("system.multicall 2", "ticket.get 2001", "ticket.get 2002"), _trac.getRequests());
+	}
+
+	public void testCloseDrainsPool() {
+		List<Integer> numbers = new ArrayList<>();
+		for (int n = 1; n <= 25; n++) {
+			int number = 4000 + n;
+			_trac.addTicket(number, "Ticket " + number);
+			numbers.add(number);
+		}
+		_trac.block(4001);
+
+		TicketPrefetcher prefetcher = new TicketPrefetcher(_connection, 2);
+		for (int n = 0; n < numbers.size(); n++) {
+			prefetcher.handleLogEntry(entry(n + 1, numbers.get(n)));
+		}
+		// Duplicate references are not fetched again.
+		prefetcher.handleLogEntry(entry(26, 4001));
+		prefetcher.close();
+
+		// Batches submitted before closing are completed after closing.
+		_trac.release();
+		for (Integer number : numbers) {
+			assertEquals("Ticket " + number, TicketStub.getTicket(_connection, number).getSummary());
+		}
+
+		List<Integer> delivered = _trac.getDelivered();
+		Collections.sort(delivered);
+		assertEquals(numbers, delivered);
+		List<String> requests = _trac.getRequests();
+		Collections.sort(requests);
+		assertEquals(Arrays.asList("system.multicall 20", "system.multicall 5"), requests);
+	}
+
+	private static LogEntry entry(long revision, int ticket) {
+		return new LogEntry(Collections.<String, LogEntryPath> emptyMap(), revision, "", new Date(),
+			"Ticket #" + ticket + ": Revision " + revision, false);
+	}
+
+}
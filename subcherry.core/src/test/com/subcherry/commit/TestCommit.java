@@ -0,0 +1,274 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry.commit;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.subcherry.CommitConfig;
+import com.subcherry.commit.Commit;
+import com.subcherry.commit.CommitContext;
+import com.subcherry.repository.command.Client;
+import com.subcherry.repository.core.CommitInfo;
+import com.subcherry.repository.core.Depth;
+import com.subcherry.repository.core.RepositoryException;
+import com.subcherry.repository.core.Revision;
+
+import de.haumacher.common.config.ValueFactory;
+
+/**
+ * Test case for {@link Commit} updating only committed resources.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestCommit extends TestCase {
+
+	private File _workspace;
+
+	private TestClient _client;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		_workspace = File.createTempFile("workspace", "");
+		_workspace.delete();
+		_workspace.mkdir();
+		_client = new TestClient();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(_workspace);
+		_workspace = null;
+		_client = null;
+
+		super.tearDown();
+	}
+
+	public void testUpdateCommitted() throws Exception {
+		touch("module/dir/sub/file");
+		touch("module/dir/other");
+
+		Commit commit = createCommit("module/dir/sub/file", "module/dir/other", "module/dir/deleted");
+		commit.run(new CommitContext(_client.getClient(), _client.getClient()));
+
+		assertEquals(1, _client.getCommits());
+		assertEquals(1, _client.getUpdates().size());
+		Update update = _client.getUpdates().get(0);
+		assertEquals(Revision.create(42), update.getRevision());
+		assertEquals(Depth.EMPTY, update.getDepth());
+		// The deleted resource is not updated, the parent walk stops at the module.
+		assertEquals(set(
+			file("module/dir/sub/file"),
+			file("module/dir/other"),
+			file("module/dir/sub"),
+			file("module/dir"),
+			file("module")), update.getPaths());
+	}
+
+	public void testNothingCommitted() throws Exception {
+		touch("module/file");
+		_client.setNewRevision(-1);
+
+		createCommit("module/file").run(new CommitContext(_client.getClient(), _client.getClient()));
+
+		assertEquals(0, _client.getUpdates().size());
+	}
+
+	public void testRetryOutOfDate() throws Exception {
+		touch("module/dir/file");
+		_client.setFailure(new Exception("svn: E155011: File '/module/dir/file' is out of date"));
+
+		createCommit("module/dir/file").run(new CommitContext(_client.getClient(), _client.getClient()));
+
+		assertEquals(2, _client.getCommits());
+		assertEquals(2, _client.getUpdates().size());
+
+		// The touched modules are updated to head before retrying.
+		Update head = _client.getUpdates().get(0);
+		assertEquals(Revision.HEAD, head.getRevision());
+		assertEquals(Depth.INFINITY, head.getDepth());
+		assertEquals(set(file("module")), head.getPaths());
+
+		assertEquals(Revision.create(42), _client.getUpdates().get(1).getRevision());
+	}
+
+	public void testNoRetryForOtherErrors() throws Exception {
+		assertNoRetry("svn: E160024: resource out of date; try updating");
+		assertNoRetry("Commit failed: out of date");
+		assertNoRetry("svn: E1550110: Unknown error");
+	}
+
+	private void assertNoRetry(String message) throws IOException {
+		TestClient client = new TestClient();
+		Exception failure = new Exception(message);
+		client.setFailure(failure);
+
+		touch("module/file");
+		try {
+			createCommit("module/file").run(new CommitContext(client.getClient(), client.getClient()));
+			fail("Commit must fail: " + message);
+		} catch (RepositoryException ex) {
+			assertSame(failure, ex.getCause());
+		}
+		assertEquals(1, client.getCommits());
+		assertEquals(0, client.getUpdates().size());
+	}
+
+	private Commit createCommit(String... resources) {
+		CommitConfig config = ValueFactory.newInstance(CommitConfig.class);
+		config.setWorkspaceRoot(_workspace);
+		config.setUpdateCommittedOnly(true);
+		Commit commit = new Commit(config, null, null);
+		commit.setCommitMessage("Ticket #1: Test.");
+		commit.addTouchedResources(new HashSet<>(Arrays.asList(resources)));
+		return commit;
+	}
+
+	private void touch(String resource) throws IOException {
+		File file = file(resource);
+		file.getParentFile().mkdirs();
+		file.createNewFile();
+	}
+
+	private File file(String resource) {
+		return new File(_workspace, resource);
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private static Set<File> set(File... files) {
+		return new HashSet<>(Arrays.asList(files));
+	}
+
+	static final class Update {
+
+		private final Set<File> _paths;
+
+		private final Revision _revision;
+
+		private final Depth _depth;
+
+		public Update(File[] paths, Revision revision, Depth depth) {
+			_paths = set(paths);
+			_revision = revision;
+			_depth = depth;
+		}
+
+		public Set<File> getPaths() {
+			return _paths;
+		}
+
+		public Revision getRevision() {
+			return _revision;
+		}
+
+		public Depth getDepth() {
+			return _depth;
+		}
+	}
+
+	static final class TestClient {
+
+		private final List<Update> _updates = new ArrayList<>();
+
+		private final Client _client;
+
+		private int _commits;
+
+		private long _newRevision = 42;
+
+		private Exception _failure;
+
+		public TestClient() {
+			_client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[] { Client.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+						switch (method.getName()) {
+							case "commit":
+								return commit();
+							case "update":
+								_updates.add(new Update((File[]) args[0], (Revision) args[1], (Depth) args[2]));
+								return null;
+							default:
+								throw new UnsupportedOperationException(method.getName());
+						}
+					}
+				});
+		}
+
+		public Client getClient() {
+			return _client;
+		}
+
+		public void setNewRevision(long newRevision) {
+			_newRevision = newRevision;
+		}
+
+		public void setFailure(Exception failure) {
+			_failure = failure;
+		}
+
+		public int getCommits() {
+			return _commits;
+		}
+
+		public List<Update> getUpdates() {
+			return _updates;
+		}
+
+		CommitInfo commit() throws RepositoryException {
+			_commits++;
+			if (_failure != null) {
+				Exception failure = _failure;
+				// Only the first commit fails.
+				_failure = null;
+				throw new RepositoryException(failure);
+			}
+			return new CommitInfo() {
+				@Override
+				public long getNewRevision() {
+					return _newRevision;
+				}
+			};
+		}
+	}
+
+}
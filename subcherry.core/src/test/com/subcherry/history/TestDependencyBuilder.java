@@ -0,0 +1,151 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry.history;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.subcherry.history.Change;
+import com.subcherry.history.DependencyBuilder;
+import com.subcherry.history.DependencyBuilder.Dependency;
+import com.subcherry.history.History;
+import com.subcherry.history.HistroyBuilder;
+import com.subcherry.history.Node;
+import com.subcherry.repository.core.ChangeType;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.LogEntryPath;
+import com.subcherry.repository.core.NodeKind;
+import com.subcherry.repository.core.RepositoryException;
+
+/**
+ * Test case for {@link DependencyBuilder}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestDependencyBuilder extends TestCase {
+
+	/**
+	 * More source files than analyzed by a single task, so that the analysis is split.
+	 */
+	private static final int FILES = 1500;
+
+	private HistroyBuilder _builder;
+
+	private List<LogEntry> _mergeLog;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		_builder = new HistroyBuilder(10);
+		_mergeLog = new ArrayList<>();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		_builder = null;
+		_mergeLog = null;
+
+		super.tearDown();
+	}
+
+	public void testParallelAnalysis() throws RepositoryException {
+		Map<String, LogEntryPath> files = new LinkedHashMap<>();
+		for (int n = 0; n < FILES; n++) {
+			files.put(file("/source", n), new LogEntryPath(NodeKind.FILE, file("/source", n), ChangeType.ADDED, null, 0));
+		}
+		apply(10, "Create branch.", dir("/source", ChangeType.ADDED, null), dir("/source/m", ChangeType.ADDED, null));
+		apply(11, "Add files.", files);
+		apply(12, "Create target branch.", dir("/target", ChangeType.ADDED, "/source"));
+
+		for (long revision = 20; revision < 40; revision++) {
+			String message = "Ticket #" + (revision % 7) + ": Change " + revision + ".";
+			apply(revision, message, modifications("/source", revision));
+			if (revision % 3 == 0) {
+				_mergeLog.add(logEntry(revision, message, new HashMap<String, LogEntryPath>()));
+			} else if (revision % 5 == 0) {
+				// Ported before.
+				apply(revision + 100, message, modifications("/target", revision));
+			}
+		}
+
+		History history = _builder.getHistory();
+		Map<Change, Map<Change, Set<Node>>> sequential = analyze(history, 1);
+		Map<Change, Map<Change, Set<Node>>> parallel = analyze(history, 4);
+
+		assertFalse(sequential.isEmpty());
+		assertEquals(sequential, parallel);
+	}
+
+	private Map<Change, Map<Change, Set<Node>>> analyze(History history, int parallelism) {
+		DependencyBuilder builder = new DependencyBuilder("/source", "/target", null);
+		builder.setParallelism(parallelism);
+		builder.analyzeConflicts(history, _mergeLog);
+
+		Map<Change, Map<Change, Set<Node>>> result = new HashMap<>();
+		for (Dependency dependency : builder.getDependencies().values()) {
+			result.put(dependency.getChange(), dependency.getRequiredChanges());
+		}
+		return result;
+	}
+
+	private static Map<String, LogEntryPath> modifications(String branch, long revision) {
+		Map<String, LogEntryPath> result = new LinkedHashMap<>();
+		for (int n = 0; n < FILES; n++) {
+			if ((n + revision) % 4 == 0 || n % (revision - 17) == 0) {
+				String path = file(branch, n);
+				result.put(path, new LogEntryPath(NodeKind.FILE, path, ChangeType.MODIFIED, null, 0));
+			}
+		}
+		return result;
+	}
+
+	private static String file(String branch, int n) {
+		return branch + "/m/file-" + n;
+	}
+
+	private void apply(long revision, String message, LogEntryPath... paths) throws RepositoryException {
+		Map<String, LogEntryPath> pathMap = new LinkedHashMap<>();
+		for (LogEntryPath path : paths) {
+			pathMap.put(path.getPath(), path);
+		}
+		apply(revision, message, pathMap);
+	}
+
+	private void apply(long revision, String message, Map<String, LogEntryPath> paths) throws RepositoryException {
+		_builder.handleLogEntry(logEntry(revision, message, paths));
+	}
+
+	private static LogEntry logEntry(long revision, String message, Map<String, LogEntryPath> paths) {
+		return new LogEntry(paths, revision, "", new Date(), message, false);
+	}
+
+	private static LogEntryPath dir(String path, ChangeType type, String copyPath) {
+		return new LogEntryPath(NodeKind.DIR, path, type, copyPath, copyPath == null ? 0 : 11);
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.subcherry.history.Change;
+import com.subcherry.history.History;
+import com.subcherry.history.HistorySnapshot;
+import com.subcherry.history.HistroyBuilder;
+import com.subcherry.history.Node;
+import com.subcherry.history.Node.Kind;
+import com.subcherry.repository.core.ChangeType;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.LogEntryPath;
+import com.subcherry.repository.core.NodeKind;
+import com.subcherry.repository.core.RepositoryException;
+
+/**
+ * Test case for {@link HistorySnapshot}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestHistorySnapshot extends TestCase {
+
+	private static final String KEY = "/branches/unstable /trunk";
+
+	private File _file;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		_file = File.createTempFile("history", ".bin");
+		_file.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		_file.delete();
+		_file = null;
+
+		super.tearDown();
+	}
+
+	public void testContinueSnapshot() throws RepositoryException, IOException {
+		HistroyBuilder builder = new HistroyBuilder(10);
+		apply(builder, 40, added("/branches/unstable"));
+		apply(builder, 50, added("/branches/unstable/module/file-1"));
+		apply(builder, 60, modified("/branches/unstable/module/file-1"));
+		apply(builder, 70, copied("/branches/unstable", "/branches/stable", 69), deleted("/branches/unstable"));
+
+		HistorySnapshot.save(builder.getHistory(), _file, KEY);
+
+		History loaded = HistorySnapshot.load(_file, KEY, 10);
+		assertNotNull(loaded);
+		assertEquals(70, loaded.getLastRevision());
+
+		HistroyBuilder continued = new HistroyBuilder(loaded);
+		apply(continued, 80, modified("/branches/stable/module/file-1"));
+		apply(continued, 90, copied("/branches/stable", "/trunk", 89), deleted("/branches/stable"));
+		apply(continued, 100, modified("/trunk/module/file-1"));
+
+		History history = continued.getHistory();
+		assertEquals(100, history.getLastRevision());
+		assertEquals(Arrays.asList(50L, 60L, 80L, 100L), revisions(history, "/trunk/module/file-1"));
+		assertEquals(Arrays.asList(40L, 70L, 90L), revisions(history, "/trunk"));
+		assertNull(history.getCurrentNode(Kind.UNKNOWN, "/branches/stable"));
+		assertEquals("message-60", history.getChange(60).getMessage());
+	}
+
+	public void testEquivalentChangesOfCopiedCopy() throws RepositoryException, IOException {
+		HistroyBuilder builder = new HistroyBuilder(10);
+		apply(builder, 40, added("/branches/c"));
+		apply(builder, 50, modified("/branches/c"));
+		apply(builder, 60, copied("/branches/c", "/branches/b", 59));
+		apply(builder, 70, copied("/branches/b", "/branches/a", 69));
+		apply(builder, 80, modified("/branches/c"));
+
+		HistorySnapshot.save(builder.getHistory(), _file, KEY);
+		History loaded = HistorySnapshot.load(_file, KEY, 10);
+		assertNotNull(loaded);
+
+		Node copy = loaded.getCurrentNode(Kind.UNKNOWN, "/branches/a");
+		assertTrue(copy.hasEquivalentChange(loaded.getChange(50)));
+		assertTrue(copy.hasEquivalentChange(loaded.getChange(70)));
+		assertFalse("Change of copy source after copy.", copy.hasEquivalentChange(loaded.getChange(80)));
+	}
+
+	public void testMismatch() throws RepositoryException {
+		HistroyBuilder builder = new HistroyBuilder(10);
+		apply(builder, 40, added("/trunk"));
+		HistorySnapshot.save(builder.getHistory(), _file, KEY);
+
+		assertNull(HistorySnapshot.load(_file, "/trunk", 10));
+		assertNull(HistorySnapshot.load(_file, KEY, 20));
+		assertNotNull(HistorySnapshot.load(_file, KEY, 10));
+	}
+
+	private static List<Long> revisions(History history, String path) {
+		Node node = history.getCurrentNode(Kind.UNKNOWN, path);
+		assertNotNull("Path not found: " + path, node);
+		List<Long> result = new ArrayList<>();
+		for (Change change : node.getChanges()) {
+			result.add(change.getRevision());
+		}
+		return result;
+	}
+
+	private static void apply(HistroyBuilder builder, long revision, LogEntryPath... paths)
+			throws RepositoryException {
+		Map<String, LogEntryPath> pathMap = new LinkedHashMap<>();
+		for (LogEntryPath path : paths) {
+			pathMap.put(path.getPath(), path);
+		}
+		builder.handleLogEntry(new LogEntry(pathMap, revision, "", new Date(), "message-" + revision, false));
+	}
+
+	private static LogEntryPath added(String path) {
+		return new LogEntryPath(NodeKind.UNKNOWN, path, ChangeType.ADDED, null, 0);
+	}
+
+	private static LogEntryPath copied(String fromPath, String toPath, long copyRevision) {
+		return new LogEntryPath(NodeKind.UNKNOWN, toPath, ChangeType.ADDED, fromPath, copyRevision);
+	}
+
+	private static LogEntryPath modified(String path) {
+		return new LogEntryPath(NodeKind.UNKNOWN, path, ChangeType.MODIFIED, null, 0);
+	}
+
+	private static LogEntryPath deleted(String path) {
+		return new LogEntryPath(NodeKind.UNKNOWN, path, ChangeType.DELETED, null, 0);
+	}
+
+}
@@ -233,6 +233,81 @@ public class TestHistroyBuilder extends TestCase {
 			"/branches/stable/file-3");
 	}
 
+	public void testExpandDirCopiedWithParent() throws RepositoryException {
+		create(50, "/b1");
+		create(60, "/b1/dir");
+		create(70, "/b1/dir/file");
+		copy(80, "/b1", "/b2");
+
+		assertExpanded(Arrays.asList("/b2", "/b2/dir", "/b2/dir/file"), "/b2");
+	}
+
+	public void testExpandDirReplacedInCopyOfParent() throws RepositoryException {
+		create(50, "/b1");
+		create(60, "/b1/dir");
+		create(70, "/b1/dir/file-1");
+		create(71, "/other");
+		create(72, "/other/dir");
+		create(73, "/other/dir/file-2");
+
+		// The replaced directory has the same copy revision as its parent, but a copy source
+		// outside the parent's copy source. It must be expanded separately.
+		apply(80, paths(copied("/b1", "/b2", 79), replaced("/other/dir", "/b2/dir", 79)));
+
+		assertTrue(expandedPaths("/b2").contains("/b2/dir/file-2"));
+	}
+
+	public void testExpansionUpdatedByLaterChanges() throws RepositoryException {
+		create(50, "/b1");
+		create(60, "/b1/file-1");
+		copy(70, "/b1", "/b2");
+
+		assertExpanded(Arrays.asList("/b2", "/b2/file-1"), "/b2");
+
+		create(80, "/b2/file-2");
+		assertExpanded(Arrays.asList("/b2", "/b2/file-1", "/b2/file-2"), "/b2");
+	}
+
+	private void assertExpanded(List<String> expectedPaths, String path) {
+		assertEquals(expectedPaths, expandedPaths(path));
+	}
+
+	private List<String> expandedPaths(String path) {
+		List<String> paths = new ArrayList<>();
+		for (Node node : _builder.getHistory().expandContents(path)) {
+			if (node.isAlive()) {
+				paths.add(node.getPath());
+			}
+		}
+		Collections.sort(paths);
+		return paths;
+	}
+
+	public void testEquivalentChangesOfCopy() throws RepositoryException {
+		create(50, "/b1");
+		create(60, "/b1/file");
+		modify(70, "/b1/file", "Ticket #1: Fix.");
+		copy(80, "/b1", "/b2");
+		modify(90, "/b1/file", "Ticket #2: Later.");
+		modify(100, "/b2/file", "Ticket #3: Own.");
+
+		Node copy = getNodeNotNull("/b2/file");
+		assertTrue(copy.hasEquivalentChange(change(70)));
+		assertFalse("Change of copy source after copy.", copy.hasEquivalentChange(change(90)));
+		assertTrue(copy.hasEquivalentChange(change(100)));
+
+		// Changes added after the first lookup.
+		modify(110, "/b2/file", "Ticket #2: Later.");
+		modify(120, "/b2/file", "Ticket #4: New.");
+		assertTrue(copy.hasEquivalentChange(change(90)));
+		assertTrue(copy.hasEquivalentChange(change(120)));
+		assertFalse(getNodeNotNull("/b1/file").hasEquivalentChange(change(100)));
+	}
+
+	private Change change(long revision) {
+		return _builder.getHistory().getChange(revision);
+	}
+
 	private void assertNodes(String... expectedPaths) {
 		List<Node> nodes = _builder.getHistory().getNodes(expectedPaths[0]);
 		List<String> paths = new ArrayList<>();
@@ -256,6 +331,11 @@ public class TestHistroyBuilder extends TestCase {
 		apply(revision, paths);
 	}
 
+	private void modify(long revision, String path, String message) throws RepositoryException {
+		Map<String, LogEntryPath> paths = paths(modified(path));
+		apply(revision, paths, message);
+	}
+
 	private void delete(long revision, String path) throws RepositoryException {
 		Map<String, LogEntryPath> paths = paths(deleted(path));
 		apply(revision, paths);
@@ -281,7 +361,11 @@ public class TestHistroyBuilder extends TestCase {
 	}
 
 	private void apply(long revision, Map<String, LogEntryPath> paths) throws RepositoryException {
-		LogEntry logEntry = new LogEntry(paths, revision, "", DATE, "message-" + revision, false);
+		apply(revision, paths, "message-" + revision);
+	}
+
+	private void apply(long revision, Map<String, LogEntryPath> paths, String message) throws RepositoryException {
+		LogEntry logEntry = new LogEntry(paths, revision, "", DATE, message, false);
 		_builder.handleLogEntry(logEntry);
 	}
 
@@ -0,0 +1,265 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.subcherry.log.LogCache;
+import com.subcherry.repository.command.Client;
+import com.subcherry.repository.command.log.LogEntryHandler;
+import com.subcherry.repository.core.ChangeType;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.LogEntryPath;
+import com.subcherry.repository.core.NodeKind;
+import com.subcherry.repository.core.RepositoryException;
+import com.subcherry.repository.core.RepositoryURL;
+import com.subcherry.repository.core.Revision;
+
+/**
+ * Test case for {@link LogCache}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestLogCache extends TestCase {
+
+	private static final RepositoryURL URL = RepositoryURL.parse("file:///repo");
+
+	private static final String[] PATHS = { "/trunk" };
+
+	private File _cacheDir;
+
+	private TestSource _source;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		_cacheDir = File.createTempFile("logcache", "");
+		_cacheDir.delete();
+		_cacheDir.mkdir();
+		_source = new TestSource();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(_cacheDir);
+		_cacheDir = null;
+		_source = null;
+
+		super.tearDown();
+	}
+
+	public void testRoundTrip() throws RepositoryException {
+		_source.commit(2);
+		_source.commit(3, "/branches/b1", 2);
+		_source.commit(5);
+
+		assertEquals(Arrays.asList(2L, 3L, 5L), revisions(readLog(1, Revision.create(5))));
+		assertEquals(Arrays.asList("1:5"), _source.getRequests());
+
+		List<LogEntry> entries = readLog(1, Revision.create(5));
+		assertEquals(Arrays.asList(2L, 3L, 5L), revisions(entries));
+		assertEquals("No request for a cached range.", Arrays.asList("1:5"), _source.getRequests());
+
+		LogEntry copy = entries.get(1);
+		assertEquals("author-3", copy.getAuthor());
+		assertEquals("message-3", copy.getMessage());
+		assertEquals(new Date(3000), copy.getDate());
+		LogEntryPath path = copy.getChangedPaths().get("/trunk/file-3");
+		assertEquals(NodeKind.FILE, path.getKind());
+		assertEquals(ChangeType.ADDED, path.getType());
+		assertEquals("/branches/b1", path.getCopyPath());
+		assertEquals(2, path.getCopyRevision());
+
+		LogEntryPath modification = entries.get(0).getChangedPaths().get("/trunk/file-2");
+		assertEquals(ChangeType.MODIFIED, modification.getType());
+		assertNull(modification.getCopyPath());
+
+		assertEquals(Arrays.asList(3L), revisions(readLog(3, Revision.create(4))));
+		assertEquals(Arrays.asList("1:5"), _source.getRequests());
+	}
+
+	public void testIncrementalFetch() throws RepositoryException {
+		_source.commit(2);
+		_source.commit(5);
+		_source.setHead(6);
+		assertEquals(Arrays.asList(2L, 5L), revisions(readLog(1, Revision.HEAD)));
+
+		_source.commit(7);
+		_source.commit(9);
+		assertEquals(Arrays.asList(2L, 5L, 7L, 9L), revisions(readLog(1, Revision.HEAD)));
+		assertEquals(Arrays.asList(5L, 7L, 9L), revisions(readLog(3, Revision.HEAD)));
+
+		// Only revisions after the high-water mark are requested, starting at the mark itself.
+		assertEquals(Arrays.asList("1:HEAD", "5:HEAD", "9:HEAD"), _source.getRequests());
+	}
+
+	public void testTruncatedFile() throws IOException, RepositoryException {
+		_source.commit(2);
+		_source.commit(5);
+		readLog(1, Revision.create(5));
+		long validLength = cacheFile().length();
+
+		_source.commit(7);
+		readLog(1, Revision.create(8));
+
+		// Cut off the high-water mark of the second fetch.
+		File file = cacheFile();
+		try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+			out.setLength(file.length() - 3);
+		}
+
+		assertEquals(Arrays.asList(2L, 5L, 7L), revisions(readLog(1, Revision.create(8))));
+		assertEquals(Arrays.asList("1:5", "5:8", "5:8"), _source.getRequests());
+		assertTrue(file.length() > validLength);
+
+		// The repaired file is complete again.
+		assertEquals(Arrays.asList(2L, 5L, 7L), revisions(readLog(1, Revision.create(8))));
+		assertEquals(3, _source.getRequests().size());
+	}
+
+	public void testResetOnLowerStart() throws RepositoryException {
+		_source.commit(2);
+		_source.commit(5);
+		_source.commit(7);
+		assertEquals(Arrays.asList(5L, 7L), revisions(readLog(4, Revision.create(8))));
+
+		assertEquals(Arrays.asList(2L, 5L, 7L), revisions(readLog(1, Revision.create(8))));
+		assertEquals(Arrays.asList(2L, 5L, 7L), revisions(readLog(2, Revision.create(8))));
+		assertEquals(Arrays.asList("4:8", "1:8"), _source.getRequests());
+	}
+
+	/**
+	 * Reads the log with a new {@link LogCache} loaded from the cache directory.
+	 */
+	private List<LogEntry> readLog(long startRevision, Revision endRevision) throws RepositoryException {
+		LogCache cache = new LogCache(_cacheDir, _source.getClient());
+		final List<LogEntry> result = new ArrayList<>();
+		cache.readLog(URL, PATHS, Revision.HEAD, startRevision, endRevision, new LogEntryHandler() {
+			@Override
+			public void handleLogEntry(LogEntry logEntry) {
+				result.add(logEntry);
+			}
+		}, _source);
+		return result;
+	}
+
+	private File cacheFile() {
+		File[] files = new File(_cacheDir, TestSource.UUID).listFiles();
+		assertEquals(1, files.length);
+		return files[0];
+	}
+
+	private static List<Long> revisions(List<LogEntry> entries) {
+		List<Long> result = new ArrayList<>();
+		for (LogEntry entry : entries) {
+			result.add(entry.getRevision());
+		}
+		return result;
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	static final class TestSource implements LogCache.Source {
+
+		static final String UUID = "test-uuid";
+
+		private final List<LogEntry> _log = new ArrayList<>();
+
+		private final List<String> _requests = new ArrayList<>();
+
+		private final Client _client;
+
+		private long _head;
+
+		public TestSource() {
+			_client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[] { Client.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						assertEquals("getRepositoryUUID", method.getName());
+						return UUID;
+					}
+				});
+		}
+
+		public Client getClient() {
+			return _client;
+		}
+
+		public List<String> getRequests() {
+			return _requests;
+		}
+
+		public void setHead(long head) {
+			_head = head;
+		}
+
+		public void commit(long revision) {
+			commit(revision, null, 0);
+		}
+
+		public void commit(long revision, String copyPath, long copyRevision) {
+			String path = "/trunk/file-" + revision;
+			ChangeType type = copyPath == null ? ChangeType.MODIFIED : ChangeType.ADDED;
+			Map<String, LogEntryPath> paths = new HashMap<>();
+			paths.put(path, new LogEntryPath(NodeKind.FILE, path, type, copyPath, copyRevision));
+			_log.add(new LogEntry(paths, revision, "author-" + revision, new Date(revision * 1000),
+				"message-" + revision, false));
+			_head = Math.max(_head, revision);
+		}
+
+		@Override
+		public void log(String[] paths, Revision startRevision, Revision endRevision, LogEntryHandler handler)
+				throws RepositoryException {
+			assertEquals(Arrays.asList(PATHS), Arrays.asList(paths));
+			boolean toHead = endRevision.kind() == Revision.Kind.HEAD;
+			_requests.add(startRevision.getNumber() + ":" + (toHead ? "HEAD" : endRevision.getNumber()));
+			long end = toHead ? _head : endRevision.getNumber();
+			for (LogEntry entry : _log) {
+				if (entry.getRevision() >= startRevision.getNumber() && entry.getRevision() <= end) {
+					handler.handleLogEntry(entry);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry.log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.subcherry.log.LogMerger;
+import com.subcherry.repository.command.log.LogEntryHandler;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.LogEntryPath;
+import com.subcherry.repository.core.RepositoryException;
+
+/**
+ * Test case for {@link LogMerger}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestLogMerger extends TestCase {
+
+	public void testInterleaved() throws RepositoryException {
+		List<LogEntry> merged = merge(log("a", 1, 4, 7), log("b", 2, 3, 8), log("c", 5, 6));
+
+		assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), revisions(merged));
+		assertEquals("b", merged.get(1).getMessage());
+		assertEquals("c", merged.get(4).getMessage());
+	}
+
+	public void testDuplicates() throws RepositoryException {
+		List<LogEntry> merged = merge(log("a", 1, 3, 5), log("b", 3, 4, 5, 6), log("c", 5));
+
+		assertEquals(Arrays.asList(1L, 3L, 4L, 5L, 6L), revisions(merged));
+	}
+
+	public void testEmpty() throws RepositoryException {
+		assertEquals(Collections.emptyList(), merge());
+		assertEquals(Collections.emptyList(), merge(log("a"), log("b")));
+		assertEquals(Arrays.asList(2L, 3L), revisions(merge(log("a"), log("b", 2, 3), log("c"))));
+	}
+
+	@SafeVarargs
+	private static List<LogEntry> merge(List<LogEntry>... logs) throws RepositoryException {
+		final List<LogEntry> result = new ArrayList<>();
+		LogMerger.merge(Arrays.asList(logs), new LogEntryHandler() {
+			@Override
+			public void handleLogEntry(LogEntry logEntry) {
+				result.add(logEntry);
+			}
+		});
+		return result;
+	}
+
+	private static List<LogEntry> log(String message, long... revisions) {
+		List<LogEntry> result = new ArrayList<>();
+		for (long revision : revisions) {
+			result.add(new LogEntry(Collections.<String, LogEntryPath> emptyMap(), revision, "", new Date(),
+				message, false));
+		}
+		return result;
+	}
+
+	private static List<Long> revisions(List<LogEntry> entries) {
+		List<Long> result = new ArrayList<>();
+		for (LogEntry entry : entries) {
+			result.add(entry.getRevision());
+		}
+		return result;
+	}
+
+}
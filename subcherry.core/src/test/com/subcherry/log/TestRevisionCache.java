@@ -0,0 +1,150 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.subcherry.log.RevisionCache;
+import com.subcherry.repository.command.Client;
+import com.subcherry.repository.command.log.LogEntryHandler;
+import com.subcherry.repository.core.ChangeType;
+import com.subcherry.repository.core.LogEntry;
+import com.subcherry.repository.core.LogEntryPath;
+import com.subcherry.repository.core.NodeKind;
+import com.subcherry.repository.core.RepositoryException;
+import com.subcherry.repository.core.RepositoryURL;
+import com.subcherry.repository.core.Revision;
+
+/**
+ * Test case for {@link RevisionCache}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestRevisionCache extends TestCase {
+
+	private File _file;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		_file = File.createTempFile("revisions", ".log");
+		_file.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		_file.delete();
+		_file = null;
+
+		super.tearDown();
+	}
+
+	public void testEviction() {
+		RevisionCache cache = new RevisionCache(2);
+		cache.put(entry(10));
+		cache.put(entry(11));
+		cache.put(entry(12));
+		assertNull(cache.lookup(10));
+		assertEquals(11, cache.lookup(11).getRevision());
+		assertEquals(12, cache.lookup(12).getRevision());
+
+		cache.addEntries(Collections.singletonList(entry(10)));
+		assertEquals(10, cache.lookup(10).getRevision());
+	}
+
+	public void testPersistence() throws IOException {
+		RevisionCache cache = new RevisionCache(1, _file);
+		cache.load();
+		cache.put(entry(10));
+		cache.put(entry(11));
+		assertEquals("/trunk/file-10", path(cache.lookup(10)));
+		cache.close();
+
+		RevisionCache reloaded = new RevisionCache(1, _file);
+		reloaded.load();
+		assertEquals("/trunk/file-11", path(reloaded.lookup(11)));
+		assertEquals("/trunk/file-10", path(reloaded.lookup(10)));
+		assertEquals("message-10", reloaded.lookup(10).getMessage());
+		assertNull(reloaded.lookup(12));
+		reloaded.close();
+	}
+
+	public void testGetRevisions() throws RepositoryException {
+		final List<String> requests = new ArrayList<>();
+		Client client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[] { Client.class },
+			new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					assertEquals("log", method.getName());
+					long start = ((Revision) args[3]).getNumber();
+					long end = ((Revision) args[4]).getNumber();
+					requests.add(start + ":" + end);
+					LogEntryHandler handler = (LogEntryHandler) args[args.length - 1];
+					for (long revision = start; revision <= end; revision++) {
+						handler.handleLogEntry(entry(revision));
+					}
+					return null;
+				}
+			});
+
+		RevisionCache cache = new RevisionCache(100);
+		cache.put(entry(12));
+		List<LogEntry> entries =
+			cache.getRevisions(client, RepositoryURL.parse("file:///repo"), Arrays.asList(1000L, 10L, 12L, 14L));
+		assertEquals(Arrays.asList("10:14", "1000:1000"), requests);
+		assertEquals(Arrays.asList(10L, 12L, 14L, 1000L), revisions(entries));
+		assertNull(cache.lookup(11));
+		assertEquals(14, cache.lookup(14).getRevision());
+	}
+
+	private static List<Long> revisions(List<LogEntry> entries) {
+		List<Long> result = new ArrayList<>();
+		for (LogEntry entry : entries) {
+			result.add(entry.getRevision());
+		}
+		return result;
+	}
+
+	private static String path(LogEntry entry) {
+		return entry.getChangedPaths().keySet().iterator().next();
+	}
+
+	private static LogEntry entry(long revision) {
+		String path = "/trunk/file-" + revision;
+		Map<String, LogEntryPath> paths = new HashMap<>();
+		paths.put(path, new LogEntryPath(NodeKind.FILE, path, ChangeType.MODIFIED, null, 0));
+		return new LogEntry(paths, revision, "author", new Date(), "message-" + revision, false);
+	}
+
+}
@@ -83,6 +83,18 @@ public class TestMappingLoader extends TestCase {
 		assertEquals("CDX", mapping("A\\\nB = \\\r\nC\\\rD").map("ABX"));
 	}
 
+	public void testSequence() throws IOException {
+		ResourceMapping mapping = mapping("a/ = b/\nb/x = c/\nab?c = X\n(foo|bar)/ = baz/");
+		assertEquals("c/y", mapping.map("a/xy"));
+		assertEquals("c/y", mapping.map("a/xy"));
+		assertEquals("b/y", mapping.map("a/y"));
+		assertEquals("Xd", mapping.map("acd"));
+		assertEquals("Xd", mapping.map("abcd"));
+		assertEquals("baz/z", mapping.map("bar/z"));
+		assertNull(mapping.map("d/x"));
+		assertNull(mapping.map("d/x"));
+	}
+
 	private ResourceMapping mapping(String definition) throws IOException, UnsupportedEncodingException {
 		return MappingLoader.loadMapping(new ByteArrayInputStream(definition.getBytes("ISO-8859-1")));
 	}
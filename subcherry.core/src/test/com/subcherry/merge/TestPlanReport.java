@@ -0,0 +1,84 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry.merge;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import com.subcherry.merge.PlanReport;
+import com.subcherry.repository.command.Client;
+import com.subcherry.repository.core.RepositoryException;
+import com.subcherry.repository.core.Revision;
+
+/**
+ * Test case for {@link PlanReport}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestPlanReport extends TestCase {
+
+	public void testCountCalls() throws RepositoryException {
+		Client client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[] { Client.class },
+			new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					if (method.getName().equals("mergeInfoDiff")) {
+						return Collections.emptyMap();
+					}
+					return null;
+				}
+			});
+
+		PlanReport report = new PlanReport();
+		Client countingClient = report.countCalls(client);
+
+		report.start(100);
+		log(countingClient, false);
+		log(countingClient, true);
+		log(countingClient, true);
+		report.stop(3);
+
+		report.start(101);
+		assertEquals(Collections.emptyMap(), countingClient.mergeInfoDiff(null, 101));
+		report.stop(1);
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		report.print(new PrintStream(buffer, true));
+		String output = buffer.toString();
+
+		assertTrue(output, output.contains("Revision 100: "));
+		assertTrue(output, output.contains(" ms, 3 commands, 3 remote calls (copy-chain: 2, log: 1)"));
+		assertTrue(output, output.contains(" ms, 1 commands, 1 remote calls (mergeInfoDiff: 1)"));
+		assertTrue(output, output.contains("Planned 2 revisions: "));
+		assertTrue(output, output.contains(" ms, 4 commands, 4 remote calls (copy-chain: 2, log: 1, mergeInfoDiff: 1)."));
+	}
+
+	private static void log(Client client, boolean stopOnCopy) throws RepositoryException {
+		client.log(null, new String[] { "/" }, Revision.HEAD, Revision.HEAD, Revision.HEAD, stopOnCopy, true, false, 0,
+			new String[0], null);
+	}
+
+}
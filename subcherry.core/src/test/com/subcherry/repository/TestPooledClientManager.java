@@ -0,0 +1,227 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry.repository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import com.subcherry.repository.ClientManagerFactory;
+import com.subcherry.repository.LoginCredential;
+import com.subcherry.repository.PooledClientManager;
+import com.subcherry.repository.command.Client;
+import com.subcherry.repository.command.ClientManager;
+import com.subcherry.repository.command.OperationFactory;
+
+/**
+ * Test case for {@link PooledClientManager}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestPooledClientManager extends TestCase {
+
+	private TestFactory _factory;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		_factory = new TestFactory();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		_factory = null;
+
+		super.tearDown();
+	}
+
+	public void testConcurrentCalls() throws Exception {
+		final PooledClientManager pool = _factory.createPooledClientManager(null, 2, 60000);
+		// Both calls must be served at the same time to pass the barrier.
+		_factory.setBarrier(new CyclicBarrier(2));
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int n = 0; n < 2; n++) {
+				results.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						return pool.getClient().getRepositoryUUID(null);
+					}
+				}));
+			}
+
+			HashSet<String> connections = new HashSet<>();
+			for (Future<String> result : results) {
+				connections.add(result.get(10, TimeUnit.SECONDS));
+			}
+			assertEquals(2, connections.size());
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(2, pool.getOpenCount());
+
+		pool.close();
+		assertEquals(0, pool.getOpenCount());
+		// Including the connection for operations.
+		assertEquals(3, _factory.getClosed());
+	}
+
+	public void testReuse() throws Exception {
+		PooledClientManager pool = _factory.createPooledClientManager(null, 2, 60000);
+		String connection = pool.getClient().getRepositoryUUID(null);
+		assertEquals(connection, pool.getClient().getRepositoryUUID(null));
+		assertEquals(1, pool.getOpenCount());
+	}
+
+	public void testNestedCall() throws Exception {
+		final PooledClientManager pool = _factory.createPooledClientManager(null, 1, 60000);
+		_factory.setNested(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return pool.getClient().getRepositoryUUID(null);
+			}
+		});
+
+		// Would block, if the nested call tried to lease another connection.
+		pool.getClient().log(null, null, null, null, null, false, false, 0, null);
+		assertEquals(1, pool.getOpenCount());
+	}
+
+	public void testIdleEviction() throws Exception {
+		PooledClientManager pool = _factory.createPooledClientManager(null, 2, 0);
+		String first = pool.getClient().getRepositoryUUID(null);
+		Thread.sleep(10);
+
+		String second = pool.getClient().getRepositoryUUID(null);
+		assertFalse(first.equals(second));
+		assertEquals(1, _factory.getClosed());
+	}
+
+	public void testOperationsNotPooled() throws Exception {
+		PooledClientManager pool = _factory.createPooledClientManager(null, 1, 60000);
+		assertSame(pool.getOperationsFactory(), pool.getClient().getOperationsFactory());
+		assertEquals(0, pool.getOpenCount());
+	}
+
+	static final class TestFactory extends ClientManagerFactory {
+
+		private final AtomicInteger _created = new AtomicInteger();
+
+		private final AtomicInteger _closed = new AtomicInteger();
+
+		private volatile CyclicBarrier _barrier;
+
+		private volatile Callable<String> _nested;
+
+		public void setBarrier(CyclicBarrier barrier) {
+			_barrier = barrier;
+		}
+
+		public void setNested(Callable<String> nested) {
+			_nested = nested;
+		}
+
+		public int getClosed() {
+			return _closed.get();
+		}
+
+		@Override
+		public String getProviderName() {
+			return "test";
+		}
+
+		@Override
+		public ClientManager createClientManager(LoginCredential svnCredentials) {
+			return new TestClientManager("connection-" + _created.incrementAndGet());
+		}
+
+		final class TestClientManager implements ClientManager {
+
+			private final String _name;
+
+			private final OperationFactory _operations;
+
+			private final Client _client;
+
+			public TestClientManager(String name) {
+				_name = name;
+				_operations = (OperationFactory) Proxy.newProxyInstance(OperationFactory.class.getClassLoader(),
+					new Class<?>[] { OperationFactory.class }, new InvocationHandler() {
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							throw new UnsupportedOperationException();
+						}
+					});
+				_client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[] { Client.class },
+					new InvocationHandler() {
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+							switch (method.getName()) {
+								case "getOperationsFactory":
+									return _operations;
+								case "getRepositoryUUID":
+									CyclicBarrier barrier = _barrier;
+									if (barrier != null) {
+										barrier.await(10, TimeUnit.SECONDS);
+									}
+									return _name;
+								case "log":
+									assertEquals(_name, _nested.call());
+									return null;
+								default:
+									throw new UnsupportedOperationException(method.getName());
+							}
+						}
+					});
+			}
+
+			@Override
+			public OperationFactory getOperationsFactory() {
+				return _operations;
+			}
+
+			@Override
+			public Client getClient() {
+				return _client;
+			}
+
+			@Override
+			public void close() {
+				_closed.incrementAndGet();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry.repository.core;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import com.subcherry.repository.core.Revision;
+import com.subcherry.repository.core.RevisionRange;
+import com.subcherry.repository.core.RevisionRanges;
+import com.subcherry.repository.core.RevisionSet;
+
+/**
+ * Test case for {@link RevisionSet}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+public class TestRevisionSet extends TestCase {
+
+	public void testNormalize() {
+		RevisionSet set = set(range(20, 30), range(0, 5), range(25, 40), range(5, 10), range(50, 50));
+
+		assertEquals(2, set.getRangeCount());
+		assertEquals(set(range(0, 10), range(20, 40)), set);
+		assertEquals(Arrays.asList(range(0, 10), range(20, 40)), set.toRanges());
+	}
+
+	public void testContains() {
+		RevisionSet set = set(range(10, 20), range(30, 40));
+
+		assertFalse(set.contains(10));
+		assertTrue(set.contains(11));
+		assertTrue(set.contains(20));
+		assertFalse(set.contains(21));
+		assertFalse(set.contains(30));
+		assertTrue(set.contains(31));
+		assertTrue(set.contains(40));
+		assertFalse(set.contains(41));
+		assertFalse(RevisionSet.EMPTY.contains(1));
+	}
+
+	public void testContainsAll() {
+		RevisionSet set = set(range(10, 20), range(30, 40));
+
+		assertTrue(set.containsAll(set(range(10, 15), range(35, 40))));
+		assertTrue(set.containsAll(RevisionSet.EMPTY));
+		assertFalse(set.containsAll(set(range(15, 31))));
+		assertFalse(set.containsAll(set(range(9, 12))));
+		assertFalse(set.containsAll(set(range(35, 41))));
+		assertFalse(set.containsAll(RevisionSet.revisions(25)));
+	}
+
+	public void testUnion() {
+		RevisionSet union = set(range(10, 20), range(50, 60)).union(set(range(20, 30), range(40, 45)));
+
+		assertEquals(set(range(10, 30), range(40, 45), range(50, 60)), union);
+	}
+
+	public void testDifference() {
+		RevisionSet set = set(range(0, 100), range(200, 300));
+		RevisionSet difference = set.difference(set(range(10, 20), range(50, 250), range(290, 400)));
+
+		assertEquals(set(range(0, 10), range(20, 50), range(250, 290)), difference);
+		assertEquals(RevisionSet.EMPTY, set.difference(set));
+		assertEquals(set, set.difference(RevisionSet.EMPTY));
+	}
+
+	public void testRevisionRanges() {
+		assertTrue(RevisionRanges.contains(Arrays.asList(range(10, 20), range(20, 30)), 25));
+		assertTrue(RevisionRanges.containsAll(Arrays.asList(range(10, 20), range(20, 30)), range(15, 25)));
+		assertFalse(RevisionRanges.containsAll(Arrays.asList(range(10, 20), range(21, 30)), range(15, 25)));
+	}
+
+	private static RevisionSet set(RevisionRange... ranges) {
+		return RevisionSet.create(Arrays.asList(ranges));
+	}
+
+	private static RevisionRange range(long start, long end) {
+		return RevisionRange.create(Revision.create(start), Revision.create(end));
+	}
+
+}
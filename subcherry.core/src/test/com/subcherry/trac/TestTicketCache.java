@@ -0,0 +1,142 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry.trac;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.subcherry.trac.TicketCache;
+import com.subcherry.trac.TracTicket;
+
+/**
+ * Test case for {@link TicketCache}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestTicketCache extends TestCase {
+
+	private File _file;
+
+	private TracStub _trac;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		_file = File.createTempFile("tickets", ".cache");
+		_file.delete();
+		_trac = new TracStub();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		_file.delete();
+		_file = null;
+		_trac = null;
+
+		super.tearDown();
+	}
+
+	public void testRoundTrip() {
+		TicketCache cache = new TicketCache(_file);
+		cache.load();
+		cache.put(ticket(1, "First"));
+		cache.put(ticket(2, "Second"));
+		cache.save();
+
+		TicketCache loaded = new TicketCache(_file);
+		loaded.load();
+		TracTicket ticket = loaded.get(1);
+		assertNotNull(ticket);
+		assertEquals(Integer.valueOf(1), ticket.getNumber());
+		assertEquals("First", ticket.getSummary());
+		assertEquals("closed", ticket.getStatus());
+		assertEquals(TracStub.created(1), ticket.getCreated());
+		assertEquals(TracStub.modified(1), ticket.getModified());
+		assertEquals("Second", loaded.get(2).getSummary());
+		assertNull(loaded.get(3));
+	}
+
+	public void testFormatVersionMismatch() throws IOException {
+		try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(_file))) {
+			out.writeInt(Integer.MAX_VALUE);
+			out.writeLong(System.currentTimeMillis());
+			out.writeInt(1);
+			out.writeInt(1);
+		}
+
+		TicketCache cache = new TicketCache(_file);
+		cache.load();
+		assertNull(cache.get(1));
+
+		// Without a previous synchronization, nothing is queried and everything is dropped.
+		cache.put(ticket(1, "First"));
+		cache.refresh(_trac.createConnection());
+		assertNull(cache.get(1));
+		assertEquals(0, _trac.getRequests().size());
+	}
+
+	public void testRefreshDropsChangedTickets() {
+		TicketCache cache = new TicketCache(_file);
+		cache.load();
+		cache.refresh(_trac.createConnection());
+		cache.put(ticket(1, "First"));
+		cache.put(ticket(2, "Second"));
+		cache.put(ticket(3, "Third"));
+		cache.save();
+
+		_trac.setChangedTickets(Arrays.asList(2, 7));
+		TicketCache loaded = new TicketCache(_file);
+		loaded.load();
+		loaded.refresh(_trac.createConnection());
+
+		assertNotNull(loaded.get(1));
+		assertNull("Changed ticket not dropped.", loaded.get(2));
+		assertNotNull(loaded.get(3));
+
+		List<String> requests = _trac.getRequests();
+		assertEquals(1, requests.size());
+		assertTrue(requests.get(0), requests.get(0).matches(
+			"ticket\\.query changetime=\\d{4}-\\d\\d-\\d\\dT\\d\\d:\\d\\d:\\d\\dZ\\.\\.&max=0"));
+
+		// The refresh is persisted.
+		loaded.save();
+		TicketCache reloaded = new TicketCache(_file);
+		reloaded.load();
+		assertNull(reloaded.get(2));
+		assertNotNull(reloaded.get(3));
+	}
+
+	private static TracTicket ticket(int number, String summary) {
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put(TracTicket.TICKET_ATT_SUMMARY, summary);
+		attributes.put(TracTicket.TICKET_ATT_STATUS, "closed");
+		return new TracTicket(number, TracStub.created(number), TracStub.modified(number), attributes);
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry.trac;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import com.subcherry.trac.TicketStub;
+import com.subcherry.trac.TracConnection;
+
+/**
+ * Test case for {@link TicketStub}.
+ *
+ * <p>
+ * Since {@link TicketStub} keeps fetched tickets in static maps, each test uses its own range of
+ * ticket numbers.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestTicketStub extends TestCase {
+
+	private TracStub _trac;
+
+	private TracConnection _connection;
+
+	private ExecutorService _executor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		TicketStub.setCache(null);
+		_trac = new TracStub();
+		_connection = _trac.createConnection();
+		_executor = Executors.newSingleThreadExecutor();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		_trac.release();
+		_executor.shutdown();
+		_trac = null;
+		_connection = null;
+		_executor = null;
+
+		super.tearDown();
+	}
+
+	public void testFetchAllWaitsForPendingFetch() {
+		doTestFetchAllWaitsForPendingFetch(3000, 2);
+	}
+
+	public void testFetchAllSequentialWaitsForPendingFetch() {
+		doTestFetchAllWaitsForPendingFetch(3100, 1);
+	}
+
+	private void doTestFetchAllWaitsForPendingFetch(int base, int threads) {
+		final int pending = base + 1;
+		int missing = base + 2;
+		_trac.addTicket(pending, "Pending");
+		_trac.addTicket(missing, "Missing");
+		_trac.block(pending);
+		TicketStub.prefetchAsync(_executor, _connection, Arrays.asList(String.valueOf(pending)));
+
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(300);
+				} catch (InterruptedException ex) {
+					// Release anyway.
+				}
+				_trac.release();
+			}
+		}.start();
+		TicketStub.fetchAll(_connection, Arrays.asList(String.valueOf(pending), String.valueOf(missing)), threads);
+
+		List<Integer> delivered = _trac.getDelivered();
+		Collections.sort(delivered);
+		assertEquals("Pending fetch not completed.", Arrays.asList(pending, missing), delivered);
+		List<String> requests = _trac.getRequests();
+		assertEquals("Pending ticket requested again.", Arrays.asList("system.multicall 1", "system.multicall 1"),
+			requests);
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry.trac;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.xmlrpc.XmlRpcException;
+
+import com.subcherry.trac.TracConnection;
+import com.subcherry.trac.TracTicket;
+
+/**
+ * Test case for fetching tickets in batches with {@link TracConnection#multicall(String, List)}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TestTracConnection extends TestCase {
+
+	public void testMulticall() throws XmlRpcException {
+		TracStub trac = new TracStub();
+		trac.addTicket(1, "First");
+		trac.addTicket(2, "Second");
+
+		List<Object[]> params = new ArrayList<>();
+		params.add(new Object[] { 2 });
+		params.add(new Object[] { 5 });
+		params.add(new Object[] { 1 });
+		Object[] results = trac.createConnection().multicall("ticket.get", params);
+
+		assertEquals(Arrays.asList("system.multicall 3"), trac.getRequests());
+		assertEquals(3, results.length);
+		assertEquals(2, ((Object[]) results[0])[0]);
+		assertEquals("Second", ((Map<?, ?>) ((Object[]) results[0])[3]).get(TracTicket.TICKET_ATT_SUMMARY));
+		XmlRpcException fault = (XmlRpcException) results[1];
+		assertEquals(404, fault.code);
+		assertEquals("Ticket 5 does not exist.", fault.getMessage());
+		assertEquals(1, ((Object[]) results[2])[0]);
+	}
+
+	public void testGetTicketsInBatches() throws XmlRpcException {
+		TracStub trac = new TracStub();
+		List<Integer> numbers = new ArrayList<>();
+		for (int number = 1; number <= 251; number++) {
+			numbers.add(number);
+			if (number % 50 != 0) {
+				trac.addTicket(number, "Ticket " + number);
+			}
+		}
+
+		Map<Integer, TracTicket> tickets = TracTicket.getTickets(trac.createConnection(), numbers);
+
+		assertEquals(Arrays.asList("system.multicall 100", "system.multicall 100", "system.multicall 51"),
+			trac.getRequests());
+		assertEquals("Missing tickets are not reported.", 246, tickets.size());
+		for (int number : numbers) {
+			TracTicket ticket = tickets.get(number);
+			if (number % 50 == 0) {
+				assertNull(ticket);
+			} else {
+				assertEquals(Integer.valueOf(number), ticket.getNumber());
+				assertEquals("Ticket " + number, ticket.getSummary());
+				assertEquals(TracStub.created(number), ticket.getCreated());
+				assertEquals(TracStub.modified(number), ticket.getModified());
+			}
+		}
+	}
+
+	public void testGetTicketsEmpty() throws XmlRpcException {
+		TracStub trac = new TracStub();
+
+		assertTrue(TracTicket.getTickets(trac.createConnection(), new ArrayList<Integer>()).isEmpty());
+		assertEquals(0, trac.getRequests().size());
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package test.com.subcherry.trac;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.XmlRpcRequest;
+import org.apache.xmlrpc.client.XmlRpcClient;
+import org.apache.xmlrpc.client.XmlRpcTransport;
+import org.apache.xmlrpc.client.XmlRpcTransportFactory;
+
+import com.subcherry.trac.TracConnection;
+import com.subcherry.trac.TracTicket;
+
+/**
+ * Trac server answering the XML-RPC requests of a {@link TracConnection} in memory.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+@SuppressWarnings("javadoc")
+public class TracStub implements XmlRpcTransportFactory, XmlRpcTransport {
+
+	private final Map<Integer, Object[]> _tickets = new HashMap<>();
+
+	private final List<String> _requests = Collections.synchronizedList(new ArrayList<String>());
+
+	private final List<Integer> _delivered = Collections.synchronizedList(new ArrayList<Integer>());
+
+	private final Set<Integer> _blocked = Collections.synchronizedSet(new HashSet<Integer>());
+
+	private final CountDownLatch _release = new CountDownLatch(1);
+
+	private List<Integer> _changedTickets = Collections.emptyList();
+
+	private volatile boolean _failBatches;
+
+	/**
+	 * Creates a {@link TracConnection} sending its requests to this stub.
+	 */
+	public TracConnection createConnection() {
+		XmlRpcClient client = new XmlRpcClient();
+		client.setTransportFactory(this);
+		return new TracConnection(client);
+	}
+
+	/**
+	 * Adds a ticket with the given number and summary.
+	 */
+	public void addTicket(int number, String summary) {
+		addTicket(number, summary, null);
+	}
+
+	/**
+	 * Adds a ticket with the given number, summary and milestone.
+	 */
+	public void addTicket(int number, String summary, String milestone) {
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put(TracTicket.TICKET_ATT_SUMMARY, summary);
+		attributes.put(TracTicket.TICKET_ATT_STATUS, "closed");
+		if (milestone != null) {
+			attributes.put(TracTicket.TICKET_ATT_MILESTONE, milestone);
+		}
+		_tickets.put(number, new Object[] { number, created(number), modified(number), attributes });
+	}
+
+	public static Date created(int number) {
+		return new Date(number * 1000L);
+	}
+
+	public static Date modified(int number) {
+		return new Date(number * 2000L);
+	}
+
+	/**
+	 * Sets the ticket numbers reported by a <code>ticket.query</code> request.
+	 */
+	public void setChangedTickets(List<Integer> changedTickets) {
+		_changedTickets = changedTickets;
+	}
+
+	/**
+	 * Lets batch requests containing one of the given tickets wait until {@link #release()} is
+	 * called.
+	 */
+	public void block(Integer... numbers) {
+		_blocked.addAll(Arrays.asList(numbers));
+	}
+
+	/**
+	 * Answers all blocked batch requests.
+	 */
+	public void release() {
+		_release.countDown();
+	}
+
+	/**
+	 * Lets all batch requests fail as a whole.
+	 */
+	public void setFailBatches(boolean failBatches) {
+		_failBatches = failBatches;
+	}
+
+	/**
+	 * The numbers of all tickets answered so far.
+	 */
+	public List<Integer> getDelivered() {
+		synchronized (_delivered) {
+			return new ArrayList<>(_delivered);
+		}
+	}
+
+	/**
+	 * The method names and parameters of all requests in the order they were sent.
+	 */
+	public List<String> getRequests() {
+		synchronized (_requests) {
+			return new ArrayList<>(_requests);
+		}
+	}
+
+	@Override
+	public XmlRpcTransport getTransport() {
+		return this;
+	}
+
+	@Override
+	public Object sendRequest(XmlRpcRequest request) throws XmlRpcException {
+		String method = request.getMethodName();
+		switch (method) {
+			case "system.multicall":
+				return multicall((Object[]) request.getParameter(0));
+			case "ticket.query":
+				_requests.add(method + " " + request.getParameter(0));
+				return _changedTickets.toArray();
+			case "ticket.get":
+				_requests.add(method + " " + request.getParameter(0));
+				return getTicket((Integer) request.getParameter(0));
+			default:
+				throw new XmlRpcException("No such method: " + method);
+		}
+	}
+
+	private Object[] multicall(Object[] calls) throws XmlRpcException {
+		_requests.add("system.multicall " + calls.length);
+		if (_failBatches) {
+			throw new XmlRpcException("Batch request failed.");
+		}
+		if (isBlocked(calls)) {
+			try {
+				if (!_release.await(10, TimeUnit.SECONDS)) {
+					throw new XmlRpcException("Batch request not released.");
+				}
+			} catch (InterruptedException ex) {
+				throw new XmlRpcException("Interrupted.", ex);
+			}
+		}
+		Object[] result = new Object[calls.length];
+		for (int n = 0; n < calls.length; n++) {
+			Map<?, ?> call = (Map<?, ?>) calls[n];
+			Object[] params = (Object[]) call.get("params");
+			try {
+				if (!"ticket.get".equals(call.get("methodName"))) {
+					throw new XmlRpcException("No such method: " + call.get("methodName"));
+				}
+				result[n] = new Object[] { getTicket((Integer) params[0]) };
+			} catch (XmlRpcException ex) {
+				Map<String, Object> fault = new HashMap<>();
+				fault.put("faultCode", ex.code);
+				fault.put("faultString", ex.getMessage());
+				result[n] = fault;
+			}
+		}
+		return result;
+	}
+
+	private boolean isBlocked(Object[] calls) {
+		for (Object call : calls) {
+			Object[] params = (Object[]) ((Map<?, ?>) call).get("params");
+			if (_blocked.contains(params[0])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Object[] getTicket(Integer number) throws XmlRpcException {
+		Object[] ticket = _tickets.get(number);
+		if (ticket == null) {
+			throw new XmlRpcException(404, "Ticket " + number + " does not exist.");
+		}
+		_delivered.add(number);
+		return ticket;
+	}
+
+}
@@ -17,6 +17,11 @@
  */
 package test.com.subcherry.util;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
 import junit.framework.TestCase;
 
 import com.subcherry.util.VirtualFS;
@@ -73,4 +78,61 @@ public class TestVirtualFS extends TestCase {
 		assertTrue(fs.exists("foo/bar/bazz"));
 	}
 
+	public void testWorkspace() throws IOException {
+		File root = File.createTempFile("workspace", "");
+		root.delete();
+		File dir = new File(root, "foo");
+		dir.mkdirs();
+		File file = new File(dir, "bar");
+		file.createNewFile();
+		try {
+			VirtualFS fs = new VirtualFS(root);
+			assertTrue(fs.exists("foo"));
+			assertTrue(fs.exists("foo/bar"));
+			assertFalse(fs.exists("foo/bazz"));
+			assertFalse(fs.exists("foo/bar/bazz"));
+
+			fs.add("foo/bazz");
+			fs.delete("foo/bar");
+			assertTrue(fs.exists("foo/bazz"));
+			assertFalse(fs.exists("foo/bar"));
+
+			fs.clear();
+			assertTrue(fs.exists("foo/bar"));
+			assertFalse(fs.exists("foo/bazz"));
+		} finally {
+			file.delete();
+			dir.delete();
+			root.delete();
+		}
+	}
+
+	public void testWorkspaceQueries() throws IOException {
+		File root = File.createTempFile("workspace", "");
+		root.delete();
+		File dir = new File(root, "foo");
+		dir.mkdirs();
+		File file = new File(dir, "bar");
+		File other = new File(dir, "other");
+		try {
+			VirtualFS fs = new VirtualFS(root);
+			fs.add("foo/bazz");
+			assertTrue(fs.exists("foo/bazz"));
+			assertFalse(fs.exists("foo/bar"));
+			Map<String, Boolean> queries = fs.getWorkspaceQueries();
+			assertEquals(Collections.singletonMap("foo/bar", Boolean.FALSE), queries);
+
+			other.createNewFile();
+			assertTrue(new VirtualFS(root).matchesWorkspace(queries));
+
+			file.createNewFile();
+			assertFalse(new VirtualFS(root).matchesWorkspace(queries));
+		} finally {
+			file.delete();
+			other.delete();
+			dir.delete();
+			root.delete();
+		}
+	}
+
 }
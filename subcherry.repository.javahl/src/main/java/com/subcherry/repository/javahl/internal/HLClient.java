@@ -41,10 +41,13 @@ import org.apache.subversion.javahl.SubversionException;
 import org.apache.subversion.javahl.callback.CommitCallback;
 import org.apache.subversion.javahl.callback.CommitMessageCallback;
 import org.apache.subversion.javahl.callback.ConflictResolverCallback;
+import org.apache.subversion.javahl.callback.InfoCallback;
 import org.apache.subversion.javahl.callback.ListCallback;
 import org.apache.subversion.javahl.callback.LogMessageCallback;
+import org.apache.subversion.javahl.callback.ProplistCallback;
 import org.apache.subversion.javahl.callback.StatusCallback;
 import org.apache.subversion.javahl.types.DirEntry;
+import org.apache.subversion.javahl.types.Info;
 import org.apache.subversion.javahl.types.Lock;
 import org.apache.subversion.javahl.types.Mergeinfo.LogKind;
 import org.apache.subversion.javahl.types.Status;
@@ -377,6 +380,24 @@ public class HLClient extends DefaultClient {
 		return set(revisionProperties);
 	}
 
+	@Override
+	public String getRepositoryUUID(RepositoryURL url) throws RepositoryException {
+		final String[] result = { null };
+		InfoCallback callback = new InfoCallback() {
+			@Override
+			public void singleInfo(Info info) {
+				result[0] = info.getReposUUID();
+			}
+		};
+		try {
+			_client.info2(unwrap(url), unwrap(Revision.HEAD), unwrap(Revision.HEAD),
+				org.apache.subversion.javahl.types.Depth.empty, null, callback);
+		} catch (ClientException ex) {
+			throw wrap(ex);
+		}
+		return result[0];
+	}
+
 	@Override
 	public void list(RepositoryURL url, Revision pegRevision, Revision revision, boolean fetchLocks, Depth depth,
 			Kind entryFields, final DirEntryHandler handler) throws RepositoryException {
@@ -462,6 +483,35 @@ public class HLClient extends DefaultClient {
 		}
 	}
 
+	@Override
+	public PropertyData getProperty(RepositoryURL url, String propName,
+			Revision pegRevision, Revision revision) throws RepositoryException {
+		try {
+			return wrap(propName, _client.propertyGet(unwrap(url), propName, unwrap(revision), unwrap(pegRevision)));
+		} catch (ClientException ex) {
+			throw wrap(ex);
+		}
+	}
+
+	@Override
+	public void getProperty(RepositoryURL url, final String propName, Revision pegRevision, Revision revision,
+			Depth depth, final PropertyHandler handler) throws RepositoryException {
+		ProplistCallback callback = new ProplistCallback() {
+			@Override
+			public void singlePath(String path, Map<String, byte[]> properties) {
+				PropertyData property = wrap(propName, properties.get(propName));
+				if (property != null) {
+					handler.handleProperty(RepositoryURL.parse(path), property);
+				}
+			}
+		};
+		try {
+			_client.properties(unwrap(url), unwrap(revision), unwrap(pegRevision), unwrap(depth), null, callback);
+		} catch (ClientException ex) {
+			throw wrap(ex);
+		}
+	}
+
 	@Override
 	public void setProperty(File path, String propName,
 			PropertyValue propValue, boolean skipChecks, Depth depth,
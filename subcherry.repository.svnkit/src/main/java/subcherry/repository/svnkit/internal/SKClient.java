@@ -232,6 +232,16 @@ public class SKClient extends DefaultClient {
 		}
 	}
 
+	@Override
+	public String getRepositoryUUID(RepositoryURL url) throws RepositoryException {
+		try {
+			SVNWCClient wcClient = _clientManager.impl().getWCClient();
+			return wcClient.doInfo(unwrap(url), unwrap(Revision.HEAD), unwrap(Revision.HEAD)).getRepositoryUUID();
+		} catch (SVNException ex) {
+			throw wrap(ex);
+		}
+	}
+
 	@Override
 	public void list(RepositoryURL url, Revision pegRevision,
 			Revision revision, boolean fetchLocks, Depth depth, Kind entryFields,
@@ -288,6 +298,29 @@ public class SKClient extends DefaultClient {
 		}
 	}
 
+	@Override
+	public PropertyData getProperty(RepositoryURL url, String propName,
+			Revision pegRevision, Revision revision) throws RepositoryException {
+		try {
+			SVNWCClient wcClient = _clientManager.impl().getWCClient();
+			return wrap(wcClient.doGetProperty(unwrap(url), propName, unwrap(pegRevision), unwrap(revision)));
+		} catch (SVNException ex) {
+			throw wrap(ex);
+		}
+	}
+
+	@Override
+	public void getProperty(RepositoryURL url, String propName, Revision pegRevision, Revision revision, Depth depth,
+			PropertyHandler handler) throws RepositoryException {
+		try {
+			SVNWCClient wcClient = _clientManager.impl().getWCClient();
+			wcClient.doGetProperty(unwrap(url), propName, unwrap(pegRevision), unwrap(revision), unwrap(depth),
+				adapt(handler));
+		} catch (SVNException ex) {
+			throw wrap(ex);
+		}
+	}
+
 	@Override
 	public void setProperty(File path, String propName, PropertyValue propValue,
 			boolean skipChecks, Depth depth, PropertyHandler handler, Collection<String> changeLists) throws RepositoryException {
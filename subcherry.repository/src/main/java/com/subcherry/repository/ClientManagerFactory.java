@@ -62,4 +62,14 @@ public abstract class ClientManagerFactory {
 
 	public abstract ClientManager createClientManager(LoginCredential svnCredentials);
 
+	/**
+	 * Creates a {@link PooledClientManager} with connections of this factory.
+	 * 
+	 * @see PooledClientManager#PooledClientManager(ClientManagerFactory, LoginCredential, int, long)
+	 */
+	public final PooledClientManager createPooledClientManager(LoginCredential svnCredentials, int size,
+			long idleTimeout) {
+		return new PooledClientManager(this, svnCredentials, size, idleTimeout);
+	}
+
 }
@@ -0,0 +1,294 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.subcherry.repository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import com.subcherry.repository.command.Client;
+import com.subcherry.repository.command.ClientManager;
+import com.subcherry.repository.command.OperationFactory;
+import com.subcherry.repository.core.RepositoryException;
+
+/**
+ * {@link ClientManager} whose {@link #getClient() client} can be used by multiple threads
+ * concurrently.
+ *
+ * <p>
+ * Each call to the shared {@link Client} is forwarded to a client of a separate
+ * {@link ClientManager} that is leased exclusively to the calling thread for the duration of the
+ * call. Nested calls, e.g. from a log handler, reuse the lease of the calling thread. If all
+ * connections of the pool are in use, the caller waits until one is released.
+ * </p>
+ *
+ * <p>
+ * Connections not used for the idle timeout are closed lazily, the next time a connection is
+ * acquired or released. After the last request, idle connections stay open until {@link #close()}.
+ * </p>
+ *
+ * <p>
+ * The {@link #getOperationsFactory() operations} are not pooled, since commands are executed with
+ * the {@link OperationFactory} that created them. They must be executed by a single thread.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+public class PooledClientManager implements ClientManager {
+
+	/**
+	 * Default time in milliseconds after which an unused connection is closed.
+	 */
+	public static final long DEFAULT_IDLE_TIMEOUT = 60000;
+
+	private final ClientManagerFactory _factory;
+
+	private final LoginCredential _credentials;
+
+	private final int _size;
+
+	private final long _idleTimeout;
+
+	/**
+	 * Connection for executing commands.
+	 */
+	private final ClientManager _operations;
+
+	private final Client _client;
+
+	/**
+	 * Unused connections, the most recently used one first.
+	 */
+	private final Deque<Idle> _idle = new ArrayDeque<Idle>();
+
+	/**
+	 * The connection leased to the current thread.
+	 */
+	private final ThreadLocal<ClientManager> _lease = new ThreadLocal<ClientManager>();
+
+	/**
+	 * Number of open pooled connections, either leased or idle.
+	 */
+	private int _open;
+
+	private boolean _closed;
+
+	/**
+	 * Creates a {@link PooledClientManager}.
+	 *
+	 * @param factory
+	 *        The factory creating the pooled connections.
+	 * @param credentials
+	 *        The credentials used for all connections, <code>null</code> for anonymous access.
+	 * @param size
+	 *        The maximum number of pooled connections in use at the same time.
+	 * @param idleTimeout
+	 *        Time in milliseconds after which an unused connection is closed.
+	 */
+	public PooledClientManager(ClientManagerFactory factory, LoginCredential credentials, int size,
+			long idleTimeout) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Pool size must be positive: " + size);
+		}
+		_factory = factory;
+		_credentials = credentials;
+		_size = size;
+		_idleTimeout = idleTimeout;
+		_operations = factory.createClientManager(credentials);
+		_client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[] { Client.class },
+			new Dispatch());
+	}
+
+	@Override
+	public OperationFactory getOperationsFactory() {
+		return _operations.getOperationsFactory();
+	}
+
+	@Override
+	public Client getClient() {
+		return _client;
+	}
+
+	/**
+	 * The number of open pooled connections.
+	 */
+	public synchronized int getOpenCount() {
+		return _open;
+	}
+
+	@Override
+	public void close() {
+		List<ClientManager> closing = new ArrayList<ClientManager>();
+		synchronized (this) {
+			_closed = true;
+			while (!_idle.isEmpty()) {
+				closing.add(removeConnection(_idle.removeFirst()));
+			}
+			notifyAll();
+		}
+		closeAll(closing);
+		_operations.close();
+	}
+
+	private ClientManager acquire() throws RepositoryException {
+		List<ClientManager> closing = new ArrayList<ClientManager>();
+		try {
+			synchronized (this) {
+				while (true) {
+					if (_closed) {
+						throw new IllegalStateException("Client pool has been closed.");
+					}
+					evictIdle(closing);
+					if (!_idle.isEmpty()) {
+						return _idle.removeFirst().getManager();
+					}
+					if (_open < _size) {
+						_open++;
+						break;
+					}
+					try {
+						wait();
+					} catch (InterruptedException ex) {
+						throw new RepositoryException(ex);
+					}
+				}
+			}
+		} finally {
+			closeAll(closing);
+		}
+
+		boolean success = false;
+		try {
+			ClientManager result = _factory.createClientManager(_credentials);
+			success = true;
+			return result;
+		} finally {
+			if (!success) {
+				synchronized (this) {
+					_open--;
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	private void release(ClientManager manager) {
+		List<ClientManager> closing = new ArrayList<ClientManager>();
+		synchronized (this) {
+			Idle idle = new Idle(manager, System.currentTimeMillis());
+			if (_closed) {
+				closing.add(removeConnection(idle));
+			} else {
+				_idle.addFirst(idle);
+				evictIdle(closing);
+			}
+			notifyAll();
+		}
+		closeAll(closing);
+	}
+
+	/**
+	 * Removes connections exceeding the idle timeout from the pool.
+	 *
+	 * @param closing
+	 *        The list to add removed connections to. They must be closed after leaving the pool
+	 *        lock.
+	 */
+	private void evictIdle(List<ClientManager> closing) {
+		long limit = System.currentTimeMillis() - _idleTimeout;
+		while (!_idle.isEmpty() && _idle.getLast().getLastUse() < limit) {
+			closing.add(removeConnection(_idle.removeLast()));
+		}
+	}
+
+	private ClientManager removeConnection(Idle idle) {
+		_open--;
+		return idle.getManager();
+	}
+
+	private static void closeAll(List<ClientManager> managers) {
+		for (ClientManager manager : managers) {
+			manager.close();
+		}
+	}
+
+	/**
+	 * Forwards calls of the shared {@link Client} to the connection leased to the calling thread.
+	 */
+	private final class Dispatch implements InvocationHandler {
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getDeclaringClass() == Object.class) {
+				return method.invoke(this, args);
+			}
+			if (method.getName().equals("getOperationsFactory")) {
+				return getOperationsFactory();
+			}
+
+			ClientManager lease = _lease.get();
+			if (lease != null) {
+				return call(lease.getClient(), method, args);
+			}
+
+			lease = acquire();
+			_lease.set(lease);
+			try {
+				return call(lease.getClient(), method, args);
+			} finally {
+				_lease.remove();
+				release(lease);
+			}
+		}
+
+		private Object call(Client client, Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(client, args);
+			} catch (InvocationTargetException ex) {
+				throw ex.getCause();
+			}
+		}
+	}
+
+	private static final class Idle {
+
+		private final ClientManager _manager;
+
+		private final long _lastUse;
+
+		public Idle(ClientManager manager, long lastUse) {
+			_manager = manager;
+			_lastUse = lastUse;
+		}
+
+		public ClientManager getManager() {
+			return _manager;
+		}
+
+		public long getLastUse() {
+			return _lastUse;
+		}
+	}
+
+}
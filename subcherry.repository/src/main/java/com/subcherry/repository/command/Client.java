@@ -92,6 +92,11 @@ public interface Client {
 			Revision endRevision, boolean stopOnCopy, boolean discoverChangedPaths, boolean includeMergedRevisions,
 			long limit, String[] revisionProperties, LogEntryHandler handler) throws RepositoryException;
 
+	/**
+	 * The UUID of the repository the given URL points into.
+	 */
+	String getRepositoryUUID(RepositoryURL url) throws RepositoryException;
+
 	void list(RepositoryURL url, Revision pegRevision,
 			Revision revision, boolean fetchLocks, Depth depth, Kind entryFields,
 			DirEntryHandler handler) throws RepositoryException;
@@ -108,6 +113,12 @@ public interface Client {
 	PropertyData getProperty(File path, String propName,
 			Revision pegRevision, Revision revision) throws RepositoryException;
 
+	PropertyData getProperty(RepositoryURL url, String propName,
+			Revision pegRevision, Revision revision) throws RepositoryException;
+
+	void getProperty(RepositoryURL url, String propName, Revision pegRevision, Revision revision, Depth depth,
+			PropertyHandler handler) throws RepositoryException;
+
 	void setProperty(File path, String propName, PropertyValue propValue,
 			boolean skipChecks, Depth depth, PropertyHandler handler, Collection<String> changeLists)
 			throws RepositoryException;
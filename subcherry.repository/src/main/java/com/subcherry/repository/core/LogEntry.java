@@ -64,6 +64,10 @@ public class LogEntry {
 		return _date;
 	}
 
+	public boolean hasChildren() {
+		return _hasChildren;
+	}
+
 	@Override
 	public String toString() {
 		return getRevision() + " (" + getDate() + ", " + getAuthor() + "): " + getMessage();
@@ -19,35 +19,28 @@ package com.subcherry.repository.core;
 
 import java.util.List;
 
+/**
+ * Utilities for lists of {@link RevisionRange}s.
+ * 
+ * <p>
+ * For repeated tests against the same list of ranges, a {@link RevisionSet} should be created
+ * once.
+ * </p>
+ * 
+ * @see RevisionSet
+ */
 public class RevisionRanges {
 
 	public static boolean containsAll(List<RevisionRange> ranges, List<RevisionRange> values) {
-		for (RevisionRange value : values) {
-			if (!containsAll(ranges, value)) {
-				return false;
-			}
-		}
-		return true;
+		return RevisionSet.create(ranges).containsAll(RevisionSet.create(values));
 	}
 
 	public static boolean containsAll(List<RevisionRange> ranges, RevisionRange value) {
-		// TODO: Optimize:
-		for (long rev = value.getStart().getNumber() + 1, end = value.getEnd().getNumber(); rev <= end; rev++) {
-			if (!contains(ranges, rev)) {
-				return false;
-			}
-		}
-		return true;
+		return RevisionSet.create(ranges).containsAll(RevisionSet.create(value));
 	}
 
 	public static boolean contains(List<RevisionRange> ranges, long rev) {
-		// TODO: Optimize:
-		for (RevisionRange range : ranges) {
-			if (contains(range, rev)) {
-				return true;
-			}
-		}
-		return false;
+		return RevisionSet.create(ranges).contains(rev);
 	}
 
 	public static boolean contains(RevisionRange range, long rev) {
@@ -0,0 +1,320 @@
+/*
+ * SubCherry - Cherry Picking with Trac and Subversion
+ * Copyright (C) 2015 Bernhard Haumacher and others
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.subcherry.repository.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable set of commit revisions represented as list of disjoint intervals.
+ *
+ * <p>
+ * Intervals follow the {@link RevisionRange} convention: The start revision is exclusive, the end
+ * revision is inclusive. Intervals are kept sorted and normalized, i.e. overlapping and adjacent
+ * intervals are joined. Point lookup is done by binary search, all set operations run in linear
+ * time in the number of intervals.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version $Revision$ $Author$ $Date$
+ */
+public final class RevisionSet {
+
+	/**
+	 * The empty {@link RevisionSet}.
+	 */
+	public static final RevisionSet EMPTY = new RevisionSet(new long[0], new long[0], 0);
+
+	private static final Comparator<long[]> BY_START = new Comparator<long[]>() {
+		@Override
+		public int compare(long[] r1, long[] r2) {
+			return Long.compare(r1[0], r2[0]);
+		}
+	};
+
+	/**
+	 * The exclusive start revisions of all intervals in ascending order.
+	 */
+	private final long[] _starts;
+
+	/**
+	 * The inclusive end revisions of all intervals in ascending order.
+	 */
+	private final long[] _ends;
+
+	private final int _size;
+
+	private RevisionSet(long[] starts, long[] ends, int size) {
+		_starts = starts;
+		_ends = ends;
+		_size = size;
+	}
+
+	/**
+	 * Creates a {@link RevisionSet} with all revisions in the given ranges.
+	 *
+	 * <p>
+	 * The ranges may be given in any order and may overlap. Ranges with an end revision not greater
+	 * than their start revision are empty.
+	 * </p>
+	 */
+	public static RevisionSet create(Collection<RevisionRange> ranges) {
+		List<long[]> intervals = new ArrayList<long[]>(ranges.size());
+		for (RevisionRange range : ranges) {
+			long start = range.getStart().getNumber();
+			long end = range.getEnd().getNumber();
+			if (end > start) {
+				intervals.add(new long[] { start, end });
+			}
+		}
+		return fromIntervals(intervals);
+	}
+
+	/**
+	 * Creates a {@link RevisionSet} with the single given range.
+	 */
+	public static RevisionSet create(RevisionRange range) {
+		return create(Arrays.asList(range));
+	}
+
+	/**
+	 * Creates a {@link RevisionSet} with the given revisions.
+	 */
+	public static RevisionSet revisions(long... revisions) {
+		List<long[]> intervals = new ArrayList<long[]>(revisions.length);
+		for (long revision : revisions) {
+			intervals.add(new long[] { revision - 1, revision });
+		}
+		return fromIntervals(intervals);
+	}
+
+	private static RevisionSet fromIntervals(List<long[]> intervals) {
+		if (intervals.isEmpty()) {
+			return EMPTY;
+		}
+		long[][] sorted = intervals.toArray(new long[intervals.size()][]);
+		Arrays.sort(sorted, BY_START);
+
+		Builder builder = new Builder(sorted.length);
+		for (long[] interval : sorted) {
+			builder.add(interval[0], interval[1]);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Whether this set contains no revisions.
+	 */
+	public boolean isEmpty() {
+		return _size == 0;
+	}
+
+	/**
+	 * The number of disjoint intervals in this set.
+	 */
+	public int getRangeCount() {
+		return _size;
+	}
+
+	/**
+	 * Whether the given revision is contained in this set.
+	 */
+	public boolean contains(long revision) {
+		// Find the first interval whose end is not before the revision.
+		int low = 0;
+		int high = _size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (_ends[mid] < revision) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low < _size && _starts[low] < revision;
+	}
+
+	/**
+	 * Whether all revisions of the given set are also contained in this set.
+	 */
+	public boolean containsAll(RevisionSet other) {
+		int n = 0;
+		for (int m = 0; m < other._size; m++) {
+			long start = other._starts[m];
+			long end = other._ends[m];
+			while (n < _size && _ends[n] < end) {
+				n++;
+			}
+			// Since this set is normalized, the interval must be covered by a single interval.
+			if (n == _size || _starts[n] > start) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The set of revisions contained in this or the given set.
+	 */
+	public RevisionSet union(RevisionSet other) {
+		if (other.isEmpty()) {
+			return this;
+		}
+		if (isEmpty()) {
+			return other;
+		}
+		Builder builder = new Builder(_size + other._size);
+		int n = 0;
+		int m = 0;
+		while (n < _size || m < other._size) {
+			if (m == other._size || (n < _size && _starts[n] <= other._starts[m])) {
+				builder.add(_starts[n], _ends[n]);
+				n++;
+			} else {
+				builder.add(other._starts[m], other._ends[m]);
+				m++;
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * The set of revisions contained in this set but not in the given set.
+	 */
+	public RevisionSet difference(RevisionSet other) {
+		if (isEmpty() || other.isEmpty()) {
+			return this;
+		}
+		Builder builder = new Builder(_size + other._size);
+		int m = 0;
+		for (int n = 0; n < _size; n++) {
+			long start = _starts[n];
+			long end = _ends[n];
+
+			// Skip intervals of the other set that are completely before the current one.
+			while (m < other._size && other._ends[m] <= start) {
+				m++;
+			}
+
+			int k = m;
+			while (start < end && k < other._size && other._starts[k] < end) {
+				if (other._starts[k] > start) {
+					builder.add(start, other._starts[k]);
+				}
+				start = Math.max(start, other._ends[k]);
+				k++;
+			}
+			if (start < end) {
+				builder.add(start, end);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * The normalized list of {@link RevisionRange}s of this set.
+	 */
+	public List<RevisionRange> toRanges() {
+		List<RevisionRange> result = new ArrayList<RevisionRange>(_size);
+		for (int n = 0; n < _size; n++) {
+			result.add(RevisionRange.create(Revision.create(_starts[n]), Revision.create(_ends[n])));
+		}
+		return result;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 1;
+		for (int n = 0; n < _size; n++) {
+			result = 31 * result + (int) (_starts[n] ^ (_starts[n] >>> 32));
+			result = 31 * result + (int) (_ends[n] ^ (_ends[n] >>> 32));
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof RevisionSet))
+			return false;
+		RevisionSet other = (RevisionSet) obj;
+		if (_size != other._size)
+			return false;
+		for (int n = 0; n < _size; n++) {
+			if (_starts[n] != other._starts[n] || _ends[n] != other._ends[n])
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		result.append('[');
+		for (int n = 0; n < _size; n++) {
+			if (n > 0) {
+				result.append(", ");
+			}
+			result.append(_starts[n]);
+			result.append(':');
+			result.append(_ends[n]);
+		}
+		result.append(']');
+		return result.toString();
+	}
+
+	/**
+	 * Creates a normalized {@link RevisionSet} from intervals added in ascending start order.
+	 */
+	private static final class Builder {
+
+		private final long[] _starts;
+
+		private final long[] _ends;
+
+		private int _size;
+
+		public Builder(int capacity) {
+			_starts = new long[capacity];
+			_ends = new long[capacity];
+		}
+
+		public void add(long start, long end) {
+			if (_size > 0 && start <= _ends[_size - 1]) {
+				// Overlapping or adjacent, join with last interval.
+				_ends[_size - 1] = Math.max(_ends[_size - 1], end);
+			} else {
+				_starts[_size] = start;
+				_ends[_size] = end;
+				_size++;
+			}
+		}
+
+		public RevisionSet build() {
+			if (_size == 0) {
+				return EMPTY;
+			}
+			return new RevisionSet(_starts, _ends, _size);
+		}
+	}
+
+}